@@ -0,0 +1,70 @@
+package io.github.concurrentrecursion.sitemap.benchmarks;
+
+import io.github.concurrentrecursion.sitemap.adapters.OffsetDateTimeAdapter;
+import io.github.concurrentrecursion.sitemap.adapters.UrlAdapter;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URL;
+import java.time.OffsetDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the date and url adapters, which run for every element of every url
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AdapterBenchmark {
+    private static final int SIZE = 1024;
+
+    private final OffsetDateTimeAdapter dateAdapter = new OffsetDateTimeAdapter();
+    private final UrlAdapter urlAdapter = new UrlAdapter();
+    private OffsetDateTime[] dates;
+    private String[] dateStrings;
+    private URL[] urls;
+    private String[] urlStrings;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dates = SyntheticSitemaps.dates(SIZE);
+        dateStrings = new String[SIZE];
+        urls = new URL[SIZE];
+        urlStrings = new String[SIZE];
+        Random random = new Random(SyntheticSitemaps.SEED);
+        for (int i = 0; i < SIZE; i++) {
+            dateStrings[i] = dateAdapter.marshal(dates[i]);
+            urlStrings[i] = SyntheticSitemaps.location(random, i);
+            urls[i] = urlAdapter.unmarshal(urlStrings[i]);
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (SIZE - 1);
+        return index;
+    }
+
+    @Benchmark
+    public String marshalDate() throws Exception {
+        return dateAdapter.marshal(dates[next()]);
+    }
+
+    @Benchmark
+    public OffsetDateTime unmarshalDate() throws Exception {
+        return dateAdapter.unmarshal(dateStrings[next()]);
+    }
+
+    @Benchmark
+    public String marshalUrl() throws Exception {
+        return urlAdapter.marshal(urls[next()]);
+    }
+
+    @Benchmark
+    public URL unmarshalUrl() throws Exception {
+        return urlAdapter.unmarshal(urlStrings[next()]);
+    }
+}
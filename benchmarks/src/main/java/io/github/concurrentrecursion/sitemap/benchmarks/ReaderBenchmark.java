@@ -0,0 +1,58 @@
+package io.github.concurrentrecursion.sitemap.benchmarks;
+
+import io.github.concurrentrecursion.sitemap.io.SitemapReader;
+import io.github.concurrentrecursion.sitemap.io.StreamingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Unmarshalling a full urlset from memory, so only parsing and decompression are measured
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReaderBenchmark {
+    @Param({"50000"})
+    private int urlCount;
+    @Param({"false", "true"})
+    private boolean extensions;
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private byte[] sitemap;
+    private final SitemapReader reader = new SitemapReader();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream os = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            new StreamingSitemapWriter().write(SyntheticSitemaps.urls(urlCount, extensions).iterator(), os);
+        }
+        sitemap = bytes.toByteArray();
+    }
+
+    @Benchmark
+    public UrlSetSitemap readUrlSet() {
+        return reader.readUrlSet(new ByteArrayInputStream(sitemap));
+    }
+
+    @Benchmark
+    public void streamUrls(Blackhole blackhole) {
+        try (Stream<Url> urls = reader.streamUrls(new ByteArrayInputStream(sitemap))) {
+            urls.forEach(blackhole::consume);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.concurrentrecursion.sitemap.benchmarks;
+
+import io.github.concurrentrecursion.sitemap.model.ChangeFrequency;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.model.google.image.Image;
+import io.github.concurrentrecursion.sitemap.model.google.news.News;
+import io.github.concurrentrecursion.sitemap.model.google.news.Publication;
+import io.github.concurrentrecursion.sitemap.model.google.video.Video;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the same urls for a given seed, so benchmark runs are comparable.<br>
+ * With extensions, every url has an image, every 10th url has a video, and the first 1,000 urls have news, which
+ * keeps a 50,000 url urlset valid and under the 50MB file size limit.
+ */
+final class SyntheticSitemaps {
+    static final long SEED = 0x5173_3A9L;
+    static final int MAX_NEWS = 1_000;
+    private static final OffsetDateTime EPOCH = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final ChangeFrequency[] FREQUENCIES = ChangeFrequency.values();
+    private static final String[] SECTIONS = {"news", "sports", "business", "products", "blog", "help", "über-uns"};
+
+    private SyntheticSitemaps() {
+    }
+
+    static List<Url> urls(int count, boolean extensions) {
+        Random random = new Random(SEED);
+        List<Url> urls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            urls.add(url(random, i, extensions));
+        }
+        return urls;
+    }
+
+    static UrlSetSitemap urlSet(int count, boolean extensions) {
+        return UrlSetSitemap.fromUrls(urls(count, extensions).stream());
+    }
+
+    static OffsetDateTime[] dates(int count) {
+        Random random = new Random(SEED);
+        OffsetDateTime[] dates = new OffsetDateTime[count];
+        for (int i = 0; i < count; i++) {
+            dates[i] = date(random);
+        }
+        return dates;
+    }
+
+    static String location(Random random, int index) {
+        return "https://www.example.com/" + SECTIONS[random.nextInt(SECTIONS.length)] + "/" + index + "/page-" + random.nextInt(1_000_000) + ".html?ref=sitemap&id=" + index;
+    }
+
+    private static Url url(Random random, int index, boolean extensions) {
+        Url url = new Url(location(random, index))
+                .setLastModifiedDate(date(random))
+                .setChangeFrequency(FREQUENCIES[random.nextInt(FREQUENCIES.length)])
+                .setPriority(random.nextInt(11) / 10d);
+        if (extensions) {
+            url.addImage(new Image("https://images.example.com/" + index + "/photo-" + random.nextInt(1_000) + ".jpg"));
+            if (index % 10 == 0) {
+                url.addVideo(new Video()
+                        .setThumbnailUrl("https://images.example.com/" + index + "/thumbnail.jpg")
+                        .setTitle("Video " + index)
+                        .setDescription("A synthetic video description for url number " + index + " used to benchmark the writer")
+                        .setContentUrl("https://video.example.com/" + index + ".mp4")
+                        .setDuration(1 + random.nextInt(28_800))
+                        .setRating(random.nextInt(51) / 10d)
+                        .setViewCount(random.nextInt(1_000_000))
+                        .setPublicationDate(date(random))
+                        .setFamilyFriendly(random.nextBoolean())
+                        .setTags(List.of("benchmark", "synthetic")));
+            }
+            if (index < MAX_NEWS) {
+                url.setNews(new News()
+                        .setTitle("Synthetic headline number " + index)
+                        .setPublication(new Publication("The Example Times", "en"))
+                        .setPublicationDate(date(random)));
+            }
+        }
+        return url;
+    }
+
+    private static OffsetDateTime date(Random random) {
+        OffsetDateTime date = EPOCH.plusSeconds(random.nextInt(365 * 24 * 60 * 60));
+        switch (random.nextInt(3)) {
+            case 0:
+                return date.toLocalDate().atStartOfDay().atOffset(ZoneOffset.UTC);
+            case 1:
+                return date.withOffsetSameInstant(ZoneOffset.ofHours(-5));
+            default:
+                return date.plusNanos(random.nextInt(1_000) * 1_000_000L);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.concurrentrecursion.sitemap.benchmarks;
+
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.model.validation.WriteValidation;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the Bean Validation pass that runs before a urlset is written
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+    @Param({"50000"})
+    private int urlCount;
+    @Param({"false", "true"})
+    private boolean extensions;
+
+    private UrlSetSitemap urlSet;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        urlSet = SyntheticSitemaps.urlSet(urlCount, extensions);
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        Set<ConstraintViolation<UrlSetSitemap>> violations = validator.validate(urlSet, WriteValidation.class);
+        if (!violations.isEmpty()) {
+            throw new IllegalStateException("Synthetic urlset is invalid: " + violations);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UrlSetSitemap>> validate() {
+        return validator.validate(urlSet, WriteValidation.class);
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.concurrentrecursion.sitemap.benchmarks;
+
+import io.github.concurrentrecursion.sitemap.io.SitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.StreamingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marshalling a full urlset to a file with the JAXB and streaming writers
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriterBenchmark {
+    @Param({"50000"})
+    private int urlCount;
+    @Param({"false", "true"})
+    private boolean extensions;
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private UrlSetSitemap urlSet;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        urlSet = SyntheticSitemaps.urlSet(urlCount, extensions);
+        directory = Files.createTempDirectory("sitemap-benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Path jaxbWriter() throws IOException {
+        Path file = directory.resolve("jaxb.xml");
+        new SitemapWriter().setPrettyPrint(false).useGzipCompression(gzip).write(urlSet, file);
+        return urlSet.getFile();
+    }
+
+    @Benchmark
+    public Path streamingWriter() throws IOException {
+        return new StreamingSitemapWriter().setUseGzip(gzip).write(urlSet.getUrls().iterator(), directory.resolve("streaming.xml"));
+    }
+}
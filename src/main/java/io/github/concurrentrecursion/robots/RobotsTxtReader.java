@@ -1,5 +1,6 @@
 package io.github.concurrentrecursion.robots;
 
+import io.github.concurrentrecursion.sitemap.io.HttpCache;
 import io.github.concurrentrecursion.sitemap.io.SitemapReader;
 import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
 import io.github.concurrentrecursion.sitemap.model.Sitemap;
@@ -10,15 +11,20 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -52,16 +58,79 @@ public class RobotsTxtReader {
     @Builder.Default
     private Duration readTimeout = Duration.ofSeconds(30);
 
+    /**
+     * The executor the HttpClient uses for asynchronous and dependent tasks. When null the client's default executor is used
+     * @param executor the executor
+     * @return the executor
+     */
+    private Executor executor;
+    /**
+     * The preferred HTTP version. By default, it is HTTP/2, which falls back to HTTP/1.1 when the server doesn't support it.
+     * @param httpVersion the HTTP version
+     * @return the HTTP version
+     */
+    @Builder.Default
+    private HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+    /**
+     * Whether redirects are followed. By default, it is {@link HttpClient.Redirect#NORMAL}
+     * @param redirectPolicy the redirect policy
+     * @return the redirect policy
+     */
+    @Builder.Default
+    private HttpClient.Redirect redirectPolicy = HttpClient.Redirect.NORMAL;
+    /**
+     * The client used for every request, including the sitemaps read by {@link #getAllSitemaps(URL)}.
+     * When not given, one is created from the connection timeout, executor, HTTP version and redirect policy, and it is
+     * reused for the life of this reader.
+     * @param httpClient the http client
+     * @return the http client
+     */
+    private HttpClient httpClient;
+
+    /**
+     * An optional cache of the robots.txt files and sitemaps that have been read. When set, unchanged files are read
+     * from the cache instead of being downloaded again.
+     * @param httpCache the http cache
+     * @return the http cache
+     */
+    private HttpCache httpCache;
+
     @Builder
-    private RobotsTxtReader(@NotNull Duration connectionTimeout, @NotNull Duration readTimeout) {
+    private RobotsTxtReader(@NotNull Duration connectionTimeout, @NotNull Duration readTimeout, Executor executor,
+                            @NotNull HttpClient.Version httpVersion, @NotNull HttpClient.Redirect redirectPolicy,
+                            HttpClient httpClient, HttpCache httpCache) {
+        this.httpCache = httpCache;
         this.connectionTimeout = connectionTimeout;
         this.readTimeout = readTimeout;
+        this.executor = executor;
+        this.httpVersion = httpVersion;
+        this.redirectPolicy = redirectPolicy;
+        if (httpClient == null) {
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                    .followRedirects(redirectPolicy)
+                    .version(httpVersion)
+                    .connectTimeout(connectionTimeout);
+            if (executor != null) {
+                builder.executor(executor);
+            }
+            httpClient = builder.build();
+        }
+        this.httpClient = httpClient;
     }
 
-    private HttpResponse<Stream<String>> doRequest(final URI url) throws IOException, InterruptedException {
-        HttpClient httpClient = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).connectTimeout(connectionTimeout).build();
-        HttpRequest request = HttpRequest.newBuilder(url).timeout(readTimeout).build();
-        return httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+    private Stream<String> doRequest(final URI url) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(url).timeout(readTimeout);
+        if (httpCache == null) {
+            return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofLines()).body();
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(httpCache.send(httpClient, request).getBody(), StandardCharsets.UTF_8));
+        return reader.lines().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
     /**
@@ -76,7 +145,7 @@ public class RobotsTxtReader {
     public Stream<URL> getSitemapUrls(@NotNull final URL robotsTxtUrl) throws IOException, URISyntaxException, InterruptedException {
         final Pattern pattern = Pattern.compile("^Sitemap:\\s?(.*)");
 
-        return doRequest(robotsTxtUrl.toURI()).body()
+        return doRequest(robotsTxtUrl.toURI())
                 .filter(Objects::nonNull)
                 .filter(line -> pattern.matcher(line).matches()).map(line -> {
                     Matcher matcher = pattern.matcher(line);
@@ -100,7 +169,7 @@ public class RobotsTxtReader {
      * @throws InterruptedException    if the thread is interrupted
      */
     public Stream<UrlSetSitemap> getAllSitemaps(@NotNull final URL robotsTxtUrl) throws IOException, URISyntaxException, InterruptedException {
-        final SitemapReader reader = new SitemapReader();
+        final SitemapReader reader = new SitemapReader().setHttpClient(httpClient).setHttpCache(httpCache);
         return getSitemapUrls(robotsTxtUrl).flatMap(surl -> {
             final Stream<UrlSetSitemap> sitemaps;
             Sitemap sitemap = reader.read(surl);
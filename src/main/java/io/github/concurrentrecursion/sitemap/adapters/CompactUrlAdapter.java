@@ -0,0 +1,23 @@
+package io.github.concurrentrecursion.sitemap.adapters;
+
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
+import jakarta.xml.bind.annotation.adapters.XmlAdapter;
+
+/**
+ * Adapter class for converting between String and CompactUrl objects, which marshals them the same way as
+ * {@link UrlAdapter} without creating a URL.
+ */
+public class CompactUrlAdapter extends XmlAdapter<String, CompactUrl> {
+    @Override
+    public CompactUrl unmarshal(String s) throws Exception {
+        if(s == null) return null;
+        return CompactUrl.of(s);
+    }
+
+    @Override
+    public String marshal(CompactUrl url) throws Exception {
+        if(url == null) return null;
+        //Percent Encode, the encoded form is kept by the CompactUrl
+        return UrlAdapter.checkLength(url.toAsciiString());
+    }
+}
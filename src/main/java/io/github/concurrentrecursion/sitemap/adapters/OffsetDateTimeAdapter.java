@@ -3,6 +3,8 @@ package io.github.concurrentrecursion.sitemap.adapters;
 import jakarta.xml.bind.annotation.adapters.XmlAdapter;
 
 import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.temporal.ChronoField;
@@ -52,17 +54,57 @@ public class OffsetDateTimeAdapter extends XmlAdapter<String, OffsetDateTime> {
             .toFormatter(Locale.ENGLISH);
 
 
+    /**
+     * The most recently parsed offset, most sitemaps use a single offset for every date
+     */
+    private static volatile ParsedOffset lastOffset = new ParsedOffset("Z", ZoneOffset.UTC);
+
     @Override
     public OffsetDateTime unmarshal(String s) throws Exception {
         if(s == null){
             return null;
         }
-        return OffsetDateTime.parse(s,FORMAT_AUTO);
+        OffsetDateTime parsed = parse(s);
+        return parsed != null ? parsed : OffsetDateTime.parse(s,FORMAT_AUTO);
     }
 
     @Override
     public String marshal(final OffsetDateTime offsetDateTime) throws Exception {
         if(offsetDateTime == null){return null;}
+        int year = offsetDateTime.getYear();
+        if (year < 1 || year > 9999 || offsetDateTime.getOffset().getTotalSeconds() % 60 != 0) {
+            return marshalWithFormatter(offsetDateTime);
+        }
+        char[] buffer = new char[29];
+        int length = writeDate(buffer, year, offsetDateTime.getMonthValue(), offsetDateTime.getDayOfMonth());
+        int millis = offsetDateTime.getNano() / 1_000_000;
+        int second = offsetDateTime.getSecond();
+        int hour = offsetDateTime.getHour();
+        int minute = offsetDateTime.getMinute();
+        if (millis == 0 && second == 0 && hour + minute == 0) {
+            return new String(buffer, 0, length);
+        }
+        buffer[length++] = 'T';
+        length = writeTwoDigits(buffer, length, hour);
+        buffer[length++] = ':';
+        length = writeTwoDigits(buffer, length, minute);
+        if (millis > 0 || second > 0) {
+            buffer[length++] = ':';
+            length = writeTwoDigits(buffer, length, second);
+            if (millis > 0) {
+                buffer[length++] = '.';
+                buffer[length++] = (char) ('0' + millis / 100);
+                length = writeTwoDigits(buffer, length, millis % 100);
+            }
+        }
+        //ZoneOffset caches its id, which is already "Z" or "+HH:MM"
+        String offset = offsetDateTime.getOffset().getId();
+        offset.getChars(0, offset.length(), buffer, length);
+        length += offset.length();
+        return new String(buffer, 0, length);
+    }
+
+    private static String marshalWithFormatter(final OffsetDateTime offsetDateTime) {
         if (offsetDateTime.get(ChronoField.MILLI_OF_SECOND) > 0) {
             return FORMAT_MILLISECONDS.format(offsetDateTime);
         } else if (offsetDateTime.getSecond() > 0) {
@@ -73,4 +115,129 @@ public class OffsetDateTimeAdapter extends XmlAdapter<String, OffsetDateTime> {
             return FORMAT_DAYS.format(offsetDateTime);
         }
     }
+
+    private static int writeDate(char[] buffer, int year, int month, int day) {
+        buffer[0] = (char) ('0' + year / 1000);
+        buffer[1] = (char) ('0' + year / 100 % 10);
+        writeTwoDigits(buffer, 2, year % 100);
+        buffer[4] = '-';
+        writeTwoDigits(buffer, 5, month);
+        buffer[7] = '-';
+        return writeTwoDigits(buffer, 8, day);
+    }
+
+    private static int writeTwoDigits(char[] buffer, int index, int value) {
+        buffer[index] = (char) ('0' + value / 10);
+        buffer[index + 1] = (char) ('0' + value % 10);
+        return index + 2;
+    }
+
+    /**
+     * Parses the common W3C datetime forms without a DateTimeFormatter:
+     * {@code YYYY}, {@code YYYY-MM}, {@code YYYY-MM-DD}, and {@code YYYY-MM-DDThh[:mm[:ss[.sss]]]} with an optional
+     * {@code Z} or {@code +hh:mm} offset.
+     * @return the datetime, or null if the value isn't in one of those forms or is out of range, so that
+     * {@link #FORMAT_AUTO} decides how it is resolved or rejected
+     */
+    private static OffsetDateTime parse(String s) {
+        int length = s.length();
+        if (length < 4) {
+            return null;
+        }
+        int year = digits(s, 0, 4);
+        int month = 1;
+        int day = 1;
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int millis = 0;
+        ZoneOffset offset = ZoneOffset.UTC;
+        int index = 4;
+        if (index < length) {
+            if (s.charAt(index) != '-' || index + 3 > length) return null;
+            month = digits(s, index + 1, 2);
+            index += 3;
+            if (index < length) {
+                if (s.charAt(index) != '-' || index + 3 > length) return null;
+                day = digits(s, index + 1, 2);
+                index += 3;
+            }
+        }
+        if (index < length) {
+            if (s.charAt(index) != 'T' || index + 3 > length) return null;
+            hour = digits(s, index + 1, 2);
+            index += 3;
+            if (index + 3 <= length && s.charAt(index) == ':') {
+                minute = digits(s, index + 1, 2);
+                index += 3;
+                if (index + 3 <= length && s.charAt(index) == ':') {
+                    second = digits(s, index + 1, 2);
+                    index += 3;
+                    if (index + 4 <= length && s.charAt(index) == '.') {
+                        millis = digits(s, index + 1, 3);
+                        index += 4;
+                    }
+                }
+            }
+            if (index < length) {
+                offset = parseOffset(s, index);
+                if (offset == null) return null;
+            }
+        }
+        if (year < 1 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59 || millis < 0) {
+            return null;
+        }
+        if (day > 28 && day > YearMonth.of(year, month).lengthOfMonth()) {
+            return null;
+        }
+        return OffsetDateTime.of(year, month, day, hour, minute, second, millis * 1_000_000, offset);
+    }
+
+    private static ZoneOffset parseOffset(String s, int index) {
+        ParsedOffset cached = lastOffset;
+        if (s.regionMatches(index, cached.text, 0, cached.text.length()) && index + cached.text.length() == s.length()) {
+            return cached.offset;
+        }
+        char sign = s.charAt(index);
+        if (sign == 'Z') {
+            return index + 1 == s.length() ? ZoneOffset.UTC : null;
+        }
+        if ((sign != '+' && sign != '-') || index + 6 != s.length() || s.charAt(index + 3) != ':') {
+            return null;
+        }
+        int hours = digits(s, index + 1, 2);
+        int minutes = digits(s, index + 4, 2);
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59 || (hours == 18 && minutes > 0)) {
+            return null;
+        }
+        ZoneOffset offset = sign == '+' ? ZoneOffset.ofHoursMinutes(hours, minutes) : ZoneOffset.ofHoursMinutes(-hours, -minutes);
+        lastOffset = new ParsedOffset(s.substring(index), offset);
+        return offset;
+    }
+
+    /**
+     * @return the value of the digits, or -1 if any character isn't an ASCII digit
+     */
+    private static int digits(String s, int index, int count) {
+        int value = 0;
+        for (int i = index; i < index + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static final class ParsedOffset {
+        private final String text;
+        private final ZoneOffset offset;
+
+        private ParsedOffset(String text, ZoneOffset offset) {
+            this.text = text;
+            this.offset = offset;
+        }
+    }
 }
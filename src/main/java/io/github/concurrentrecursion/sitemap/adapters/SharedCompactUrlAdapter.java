@@ -0,0 +1,16 @@
+package io.github.concurrentrecursion.sitemap.adapters;
+
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
+import io.github.concurrentrecursion.sitemap.util.UrlPool;
+
+/**
+ * Adapter class for converting between String and CompactUrl objects, for urls that are often repeated between
+ * entries. Identical urls are shared when a default {@link UrlPool} is set.
+ */
+public class SharedCompactUrlAdapter extends CompactUrlAdapter {
+    @Override
+    public CompactUrl unmarshal(String s) throws Exception {
+        if(s == null) return null;
+        return CompactUrl.shared(s);
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.concurrentrecursion.sitemap.adapters;
 
+import io.github.concurrentrecursion.sitemap.util.UrlUtil;
 import jakarta.xml.bind.annotation.adapters.XmlAdapter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -21,10 +22,18 @@ public class UrlAdapter extends XmlAdapter<String, URL> {
     public String marshal(URL url) throws Exception {
         if(url == null) return null;
         //Percent Encode
-        String asciiUrl = URI.create(url.toString()).toASCIIString();
+        return checkLength(UrlUtil.toAsciiString(url.toString()));
+    }
+
+    /**
+     * Logs a warning if the percent encoded url is longer than a sitemap allows
+     * @param asciiUrl the percent encoded url
+     * @return the given url
+     */
+    static String checkLength(String asciiUrl) {
         if(asciiUrl.length() > 2048){
             log.warn("url loc is longer than 2048 characters. '{}'",asciiUrl);
         }
-        return URI.create(asciiUrl).toURL().toString();
+        return asciiUrl;
     }
 }
@@ -0,0 +1,122 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Computes a digest of the bytes written to a file, and writes it to a sidecar file next to it when closed.<br>
+ * The sidecar is only written when every write, the flush and the close of the file succeeded, so a file that failed
+ * part way never gets a checksum that matches it.<br>
+ * The sidecar is named after the file and the algorithm, for example {@code sitemap-1.xml.gz.sha256}, and has the same
+ * format as the output of {@code sha256sum}, so it can be checked with {@code sha256sum -c}.
+ */
+class ChecksumOutputStream extends FilterOutputStream {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+    private final Path file;
+    private final Path sidecar;
+    private boolean closed;
+    private boolean failed;
+
+    /**
+     * Create a stream that computes the digest of everything written to it
+     * @param out the stream of the file
+     * @param file the file being written
+     * @param algorithm the {@link MessageDigest} algorithm, such as SHA-256
+     */
+    ChecksumOutputStream(OutputStream out, Path file, String algorithm) {
+        super(out);
+        this.digest = messageDigest(algorithm);
+        this.file = file;
+        this.sidecar = sidecar(file, algorithm);
+    }
+
+    /**
+     * Gets the sidecar file of a file
+     * @param file the file
+     * @param algorithm the digest algorithm
+     * @return the sidecar file
+     */
+    static Path sidecar(Path file, String algorithm) {
+        return file.resolveSibling(file.getFileName() + "." + algorithm.toLowerCase(Locale.ROOT).replace("-", ""));
+    }
+
+    /**
+     * Checks the algorithm is supported
+     * @param algorithm the digest algorithm
+     * @return the digest
+     * @throws IllegalArgumentException if the algorithm isn't supported
+     */
+    static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported checksum algorithm " + algorithm, e);
+        }
+    }
+
+    /**
+     * Formats a digest as lowercase hex
+     * @param hash the digest
+     * @return the hex string
+     */
+    static String hex(byte[] hash) {
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        try {
+            out.write(b);
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+        digest.update((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        try {
+            out.write(b, off, len);
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+        digest.update(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        super.close();
+        if (!failed) {
+            Files.writeString(sidecar, hex(digest.digest()) + "  " + file.getFileName() + "\n", StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * How gzip compressed sitemap files are compressed.<br>
+ * The deflate level and strategy trade speed against file size, {@link #storeOnly()} skips compression entirely while
+ * still writing a valid gzip file, which is useful for staging environments. Deflaters are pooled by each Compression
+ * and reused between files, so the same instance should be shared by the writers that use the same settings.
+ * A Compression is immutable and thread safe.
+ */
+public final class Compression {
+    /**
+     * The default size of the buffers in front of and behind the deflater
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_DEFLATERS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static final Compression DEFAULT = new Compression(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, DEFAULT_BUFFER_SIZE);
+    private static final Compression STORE_ONLY = new Compression(Deflater.NO_COMPRESSION, Deflater.DEFAULT_STRATEGY, DEFAULT_BUFFER_SIZE);
+
+    private final int level;
+    private final int strategy;
+    private final int bufferSize;
+    private final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(MAX_POOLED_DEFLATERS);
+
+    private Compression(int level, int strategy, int bufferSize) {
+        if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("level must be between 0 and 9, or -1 for the default level");
+        }
+        if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY) {
+            throw new IllegalArgumentException("strategy must be Deflater.DEFAULT_STRATEGY, FILTERED or HUFFMAN_ONLY");
+        }
+        if (bufferSize < 512) {
+            throw new IllegalArgumentException("bufferSize must be at least 512 bytes");
+        }
+        this.level = level;
+        this.strategy = strategy;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Gzip compression with the default level and strategy
+     * @return the default compression
+     */
+    public static Compression gzip() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gzip compression with the given level
+     * @param level the deflate level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     * @return the compression
+     */
+    public static Compression gzip(int level) {
+        return DEFAULT.withLevel(level);
+    }
+
+    /**
+     * Gzip files without compression, the data is stored as is. This is the fastest option, but the files are
+     * slightly larger than uncompressed xml.
+     * @return the store only compression
+     */
+    public static Compression storeOnly() {
+        return STORE_ONLY;
+    }
+
+    /**
+     * Creates a compression with the given deflate level and the same strategy and buffer size as this one
+     * @param level the deflate level, from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @return the compression
+     */
+    public Compression withLevel(int level) {
+        return new Compression(level, strategy, bufferSize);
+    }
+
+    /**
+     * Creates a compression with the given deflate strategy and the same level and buffer size as this one
+     * @param strategy {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} or {@link Deflater#HUFFMAN_ONLY}
+     * @return the compression
+     */
+    public Compression withStrategy(int strategy) {
+        return new Compression(level, strategy, bufferSize);
+    }
+
+    /**
+     * Creates a compression with the given buffer size and the same level and strategy as this one
+     * @param bufferSize the size in bytes of the buffers in front of and behind the deflater
+     * @return the compression
+     */
+    public Compression withBufferSize(int bufferSize) {
+        return new Compression(level, strategy, bufferSize);
+    }
+
+    /**
+     * The deflate level
+     * @return the level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * The deflate strategy
+     * @return the strategy
+     */
+    public int getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * The size of the buffers in front of and behind the deflater
+     * @return the buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Wraps the stream so everything written to it is gzip compressed. The wrapped stream is closed when the returned
+     * stream is closed, and the deflater is returned to the pool.<br>
+     * The returned stream isn't buffered in front of the deflater, small writes should be buffered by the caller.
+     * @param out the stream to write the compressed data to
+     * @return the compressing stream
+     * @throws IOException if the gzip header can't be written
+     */
+    public OutputStream newOutputStream(OutputStream out) throws IOException {
+        return new GzipOutputStream(out, borrow(), bufferSize, this::release);
+    }
+
+    private Deflater borrow() {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+            deflater.setStrategy(strategy);
+        }
+        return deflater;
+    }
+
+    private void release(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Compression(level=" + level + ", strategy=" + strategy + ", bufferSize=" + bufferSize + ")";
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that counts the bytes written through it, and fails as soon as more than the given limit is written.
+ */
+class CountingOutputStream extends FilterOutputStream {
+    private final long limit;
+    private long count;
+
+    /**
+     * Create a counting stream with no limit
+     * @param out the underlying output stream
+     */
+    CountingOutputStream(OutputStream out) {
+        this(out, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a counting stream
+     * @param out the underlying output stream
+     * @param limit the maximum number of bytes that can be written
+     */
+    CountingOutputStream(OutputStream out, long limit) {
+        super(out);
+        this.limit = limit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkLimit(1);
+        out.write(b);
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkLimit(len);
+        out.write(b, off, len);
+        count += len;
+    }
+
+    private void checkLimit(int len) throws IOException {
+        if (count + len > limit) {
+            count += len;
+            throw new LimitExceededException(limit);
+        }
+    }
+
+    /**
+     * The number of bytes written so far, including the write that exceeded the limit
+     * @return the byte count
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Whether a write was attempted past the limit
+     * @return true if the limit was exceeded
+     */
+    boolean isLimitExceeded() {
+        return count > limit;
+    }
+
+    /**
+     * Thrown when a write would exceed the byte limit
+     */
+    static class LimitExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LimitExceededException(long limit) {
+            super("Output exceeds the limit of " + limit + " bytes");
+        }
+    }
+}
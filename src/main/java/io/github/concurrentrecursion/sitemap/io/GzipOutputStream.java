@@ -0,0 +1,88 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A gzip stream that uses a given {@link Deflater} instead of creating its own, so deflaters can be pooled.<br>
+ * The output is the same format as {@link java.util.zip.GZIPOutputStream}: a fixed header, the raw deflate data, and a
+ * trailer with the CRC-32 and length of the uncompressed data.
+ */
+class GzipOutputStream extends DeflaterOutputStream {
+    private static final byte[] HEADER = {
+            (byte) 0x1f, (byte) 0x8b, //Magic number
+            Deflater.DEFLATED,        //Compression method
+            0,                        //Flags
+            0, 0, 0, 0,               //Modification time
+            0,                        //Extra flags
+            (byte) 0xff               //Operating system unknown
+    };
+
+    private final CRC32 crc = new CRC32();
+    private final Consumer<Deflater> release;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Create a gzip stream and write the gzip header
+     * @param out the stream to write the compressed data to
+     * @param deflater a deflater created with nowrap, it is given to release when this stream is closed
+     * @param size the size of the output buffer
+     * @param release called with the deflater when this stream is closed
+     * @throws IOException if the header can't be written
+     */
+    GzipOutputStream(OutputStream out, Deflater deflater, int size, Consumer<Deflater> release) throws IOException {
+        super(out, deflater, size);
+        this.release = release;
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            //The deflater may already be in use by another stream
+            throw new IOException("Stream closed");
+        }
+        super.write(b, off, len);
+        crc.update(b, off, len);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        def.finish();
+        while (!def.finished()) {
+            deflate();
+        }
+        finished = true;
+        long crcValue = crc.getValue();
+        long length = def.getBytesRead();
+        out.write(new byte[]{
+                (byte) crcValue, (byte) (crcValue >> 8), (byte) (crcValue >> 16), (byte) (crcValue >> 24),
+                (byte) length, (byte) (length >> 8), (byte) (length >> 16), (byte) (length >> 24)
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            finish();
+        } finally {
+            try {
+                out.close();
+            } finally {
+                release.accept(def);
+            }
+        }
+    }
+}
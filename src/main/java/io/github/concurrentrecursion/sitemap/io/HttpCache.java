@@ -0,0 +1,304 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of HTTP response bodies that uses conditional requests to avoid downloading unchanged files.<br>
+ * Responses that have an {@code ETag} or {@code Last-Modified} header are saved to the cache directory. When the same
+ * URI is requested again, {@code If-None-Match} and {@code If-Modified-Since} are sent, and a {@code 304 Not Modified}
+ * response is served from the saved copy.<br>
+ * The total size of the saved bodies is kept under the maximum size by removing the least recently used entries.
+ * A cache directory should only be used by one HttpCache at a time, but the HttpCache itself can be shared between
+ * readers and threads.
+ */
+@Slf4j
+public class HttpCache {
+    private static final String BODY_EXTENSION = ".body";
+    private static final String META_EXTENSION = ".meta";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+    private static final String CONTENT_ENCODING = "content-encoding";
+    private static final String URI_KEY = "uri";
+
+    /**
+     * The directory the responses are saved in
+     * @return the cache directory
+     */
+    @Getter
+    private final Path directory;
+    /**
+     * The maximum total size in bytes of the saved response bodies
+     * @return the maximum size
+     */
+    @Getter
+    private final long maxSize;
+    private long size;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Creates a cache in the given directory, the directory is created if it doesn't exist.<br>
+     * Entries already in the directory are kept, starting with the least recently used.
+     * @param directory the cache directory
+     * @param maxSize the maximum total size in bytes of the saved response bodies
+     * @throws IOException if the directory can't be created or read
+     */
+    public HttpCache(Path directory, long maxSize) throws IOException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxSize = maxSize;
+        List<Path> bodies = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(BODY_EXTENSION)).forEach(bodies::add);
+        }
+        bodies.sort(Comparator.comparing(HttpCache::lastModifiedTime));
+        for (Path body : bodies) {
+            String name = body.getFileName().toString();
+            String key = name.substring(0, name.length() - BODY_EXTENSION.length());
+            if (Files.exists(metaFile(key))) {
+                long length = Files.size(body);
+                entries.put(key, length);
+                size += length;
+            }
+        }
+        evict(null);
+    }
+
+    /**
+     * Sends the request, adding the validators of the cached copy if there is one
+     * @param client the client to send the request with
+     * @param request the request to send, conditional headers are added to it
+     * @return the response, with its body read from the cache when it was saved or not modified
+     * @throws IOException in case of any I/O failure
+     * @throws InterruptedException if the request is interrupted
+     */
+    public Response send(HttpClient client, HttpRequest.Builder request) throws IOException, InterruptedException {
+        URI uri = request.build().uri();
+        String key = key(uri);
+        Properties meta = readMeta(key);
+        //Kept without the validators, in case the cached copy is gone by the time the server says it's not modified
+        HttpRequest.Builder unconditional = request.copy();
+        if (meta != null) {
+            if (meta.getProperty(ETAG) != null) {
+                request.header("If-None-Match", meta.getProperty(ETAG));
+            }
+            if (meta.getProperty(LAST_MODIFIED) != null) {
+                request.header("If-Modified-Since", meta.getProperty(LAST_MODIFIED));
+            }
+        }
+        HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 304 && meta != null) {
+            response.body().close();
+            InputStream body = open(key);
+            if (body != null) {
+                log.debug("{} not modified, using cached copy", uri);
+                return new Response(response.statusCode(), true, meta.getProperty(CONTENT_ENCODING), body);
+            }
+            log.debug("{} not modified but the cached copy was evicted, requesting it again", uri);
+            synchronized (this) {
+                remove(key);
+            }
+            response = client.send(unconditional.build(), HttpResponse.BodyHandlers.ofInputStream());
+        }
+        String contentEncoding = response.headers().firstValue("Content-Encoding").orElse(null);
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        if (response.statusCode() != 200 || (etag == null && lastModified == null)) {
+            return new Response(response.statusCode(), false, contentEncoding, response.body());
+        }
+        Properties newMeta = new Properties();
+        newMeta.setProperty(URI_KEY, uri.toString());
+        if (etag != null) newMeta.setProperty(ETAG, etag);
+        if (lastModified != null) newMeta.setProperty(LAST_MODIFIED, lastModified);
+        if (contentEncoding != null) newMeta.setProperty(CONTENT_ENCODING, contentEncoding);
+        return new Response(response.statusCode(), false, contentEncoding, store(key, newMeta, response.body()));
+    }
+
+    /**
+     * Gets the current total size in bytes of the saved response bodies
+     * @return the current size
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Removes every entry from the cache
+     * @throws IOException if a file can't be deleted
+     */
+    public synchronized void clear() throws IOException {
+        for (String key : new ArrayList<>(entries.keySet())) {
+            remove(key);
+        }
+    }
+
+    private InputStream store(String key, Properties meta, InputStream body) throws IOException {
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try (InputStream is = body; OutputStream os = Files.newOutputStream(temp)) {
+            is.transferTo(os);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        long length = Files.size(temp);
+        if (length > maxSize) {
+            log.debug("Response of {} bytes is larger than the cache", length);
+            return Files.newInputStream(temp, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        synchronized (this) {
+            try (BufferedWriter writer = Files.newBufferedWriter(metaFile(key), StandardCharsets.UTF_8)) {
+                meta.store(writer, null);
+            }
+            Files.move(temp, bodyFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Long previous = entries.put(key, length);
+            size += length - (previous == null ? 0 : previous);
+            evict(key);
+            //Opened while holding the lock so the entry can't be evicted before it is read
+            return Files.newInputStream(bodyFile(key));
+        }
+    }
+
+    private synchronized InputStream open(String key) throws IOException {
+        //get rather than containsKey, as only get counts as an access and moves the entry to the most recently used end
+        if (entries.get(key) == null) {
+            return null;
+        }
+        Path body = bodyFile(key);
+        try {
+            Files.setLastModifiedTime(body, FileTime.fromMillis(System.currentTimeMillis()));
+            return Files.newInputStream(body);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private synchronized Properties readMeta(String key) throws IOException {
+        if (entries.get(key) == null) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (BufferedReader reader = Files.newBufferedReader(metaFile(key), StandardCharsets.UTF_8)) {
+            meta.load(reader);
+        }
+        return meta;
+    }
+
+    private synchronized void evict(String keep) throws IOException {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            eldest.remove();
+            size -= entry.getValue();
+            deleteFiles(entry.getKey());
+            log.debug("Evicted {} from the http cache", entry.getKey());
+        }
+    }
+
+    private void remove(String key) throws IOException {
+        Long length = entries.remove(key);
+        if (length != null) {
+            size -= length;
+        }
+        deleteFiles(key);
+    }
+
+    private void deleteFiles(String key) throws IOException {
+        Files.deleteIfExists(metaFile(key));
+        Files.deleteIfExists(bodyFile(key));
+    }
+
+    private Path bodyFile(String key) {
+        return directory.resolve(key + BODY_EXTENSION);
+    }
+
+    private Path metaFile(String key) {
+        return directory.resolve(key + META_EXTENSION);
+    }
+
+    private static FileTime lastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String key(URI uri) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(uri.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A response sent through the cache
+     */
+    @Getter
+    public static class Response {
+        /**
+         * The HTTP status code of the response
+         * @return the status code
+         */
+        private final int statusCode;
+        /**
+         * Whether the server responded with 304 Not Modified and the body is the cached copy
+         * @return true if the cached copy was not modified
+         */
+        private final boolean notModified;
+        /**
+         * The Content-Encoding of the body, or null if it isn't encoded
+         * @return the content encoding
+         */
+        private final String contentEncoding;
+        /**
+         * The response body, which must be closed by the caller
+         * @return the body
+         */
+        private final InputStream body;
+
+        Response(int statusCode, boolean notModified, String contentEncoding, InputStream body) {
+            this.statusCode = statusCode;
+            this.notModified = notModified;
+            this.contentEncoding = contentEncoding;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.validation.MaxNewsConstraint;
+import io.github.concurrentrecursion.sitemap.model.validation.WriteValidation;
+import io.github.concurrentrecursion.sitemap.model.validation.WriteValidationChecker;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validates each url of a single write as it is written, and applies the {@link InvalidUrlPolicy} to the invalid ones.
+ * <br>
+ * Urls are checked with {@link WriteValidationChecker}, and Bean Validation only runs to find the violations of the
+ * urls that fail the check. The news urls are counted as they are accepted, so a write into a single urlset can
+ * enforce the limit of news urls in constant time per url, a news url past the limit is invalid. The other limits of a
+ * whole urlset, such as the number of urls, aren't checked.
+ */
+@Slf4j
+final class InlineValidator {
+    private static final String MAX_NEWS_CONSTRAINT = MaxNewsConstraint.class.getSimpleName();
+
+    private final InvalidUrlPolicy policy;
+    private final ValidationErrors errors;
+    private final long maxNews;
+    private long position;
+    private long newsCount;
+
+    /**
+     * Create a validator for one write that doesn't limit the number of news urls, such as one that is split into
+     * several files
+     * @param policy what to do with invalid urls, or null to write every url without validating it
+     * @param errors the collector of invalid urls, or null to only log them
+     */
+    InlineValidator(InvalidUrlPolicy policy, ValidationErrors errors) {
+        this(policy, errors, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a validator for one write
+     * @param policy what to do with invalid urls, or null to write every url without validating it
+     * @param errors the collector of invalid urls, or null to only log them
+     * @param maxNews the number of news urls that can be written
+     */
+    InlineValidator(InvalidUrlPolicy policy, ValidationErrors errors, long maxNews) {
+        this.policy = policy;
+        this.errors = errors;
+        this.maxNews = maxNews;
+    }
+
+    /**
+     * Validates the next url
+     * @param url the url
+     * @return true if the url should be written, false if it should be skipped
+     * @throws ConstraintViolationException if the url is invalid and the policy is {@link InvalidUrlPolicy#FAIL_FAST}
+     */
+    boolean accept(Url url) {
+        long current = position++;
+        if (policy == null) {
+            return true;
+        }
+        if (!WriteValidationChecker.isValid(url)) {
+            Set<ConstraintViolation<Url>> violations = SitemapWriter.ValidatorHolder.VALIDATOR.validate(url, WriteValidation.class);
+            if (!violations.isEmpty()) {
+                if (errors != null) {
+                    errors.add(current, url, violations);
+                }
+                if (!apply(url, current, null, violations)) {
+                    return false;
+                }
+            }
+        }
+        if (url.getNews() != null) {
+            if (newsCount >= maxNews) {
+                String message = String.format("UrlSet cannot contain more than %d news items", maxNews);
+                if (errors != null) {
+                    errors.add(current, url, List.of(new ValidationErrors.Violation(MAX_NEWS_CONSTRAINT, "news", message)));
+                }
+                if (!apply(url, current, message, Collections.emptySet())) {
+                    return false;
+                }
+            }
+            newsCount++;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the policy to an invalid url
+     * @param limit the limit the url is past, or null if it has violations of its own
+     * @return true if the url should be written anyway
+     */
+    private boolean apply(Url url, long current, String limit, Set<ConstraintViolation<Url>> violations) {
+        Object reason = limit != null ? limit : violations;
+        switch (policy) {
+            case FAIL_FAST:
+                throw new ConstraintViolationException(String.format("Url %s at position %d is invalid", url.getCompactLocation(), current)
+                        + (limit != null ? ": " + limit : ""), violations);
+            case SKIP:
+                log.debug("Skipped invalid url {}: {}", url.getCompactLocation(), reason);
+                return false;
+            default:
+                log.debug("Wrote invalid url {}: {}", url.getCompactLocation(), reason);
+                return true;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+/**
+ * What a streaming writer does with a {@link io.github.concurrentrecursion.sitemap.model.Url} that doesn't pass the
+ * {@link io.github.concurrentrecursion.sitemap.model.validation.WriteValidation} constraints.<br>
+ * Each url is validated as it is written, so the urls don't have to be collected into a urlset first. With every
+ * policy the invalid url is recorded in the {@link ValidationErrors} of the writer, if it has one.
+ */
+public enum InvalidUrlPolicy {
+    /**
+     * Stop writing and throw a {@link jakarta.validation.ConstraintViolationException} for the first invalid url
+     */
+    FAIL_FAST,
+    /**
+     * Leave the invalid url out of the sitemap and carry on with the next one
+     */
+    SKIP,
+    /**
+     * Write the invalid url anyway, it is only recorded
+     */
+    WRITE_ANYWAY
+}
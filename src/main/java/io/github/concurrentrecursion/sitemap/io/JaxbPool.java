@@ -0,0 +1,78 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A pool of the marshallers and unmarshallers of a {@link JAXBContext}.<br>
+ * Creating a marshaller and setting its properties costs more than marshalling a small urlset, so they are borrowed
+ * from the pool and given back after use instead. Marshallers aren't thread safe, so each one is only used by the thread
+ * that borrowed it. The pool is a bounded queue rather than a thread local, so it doesn't grow with the number of
+ * threads, and instances are shared between virtual threads. A marshaller that failed is not given back, as its state
+ * is unknown.
+ */
+final class JaxbPool {
+    private static final int MAX_POOLED = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final JAXBContext context;
+    private final BlockingQueue<Marshaller> compactMarshallers = new ArrayBlockingQueue<>(MAX_POOLED);
+    private final BlockingQueue<Marshaller> prettyMarshallers = new ArrayBlockingQueue<>(MAX_POOLED);
+    private final BlockingQueue<Unmarshaller> unmarshallers = new ArrayBlockingQueue<>(MAX_POOLED);
+
+    /**
+     * Create an empty pool
+     * @param context the context the marshallers are created from
+     */
+    JaxbPool(JAXBContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Borrows a marshaller that writes the XML declaration followed by the document
+     * @param prettyPrint whether the XML is indented and has newlines
+     * @return the marshaller, it should be given back with {@link #release(Marshaller, boolean)}
+     * @throws JAXBException if a marshaller can't be created
+     */
+    Marshaller borrowMarshaller(boolean prettyPrint) throws JAXBException {
+        Marshaller marshaller = (prettyPrint ? prettyMarshallers : compactMarshallers).poll();
+        if (marshaller == null) {
+            marshaller = context.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, prettyPrint);
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            marshaller.setProperty("org.glassfish.jaxb.xmlHeaders", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        }
+        return marshaller;
+    }
+
+    /**
+     * Gives a marshaller back to the pool after it was used successfully
+     * @param marshaller the marshaller
+     * @param prettyPrint the setting it was borrowed with
+     */
+    void release(Marshaller marshaller, boolean prettyPrint) {
+        (prettyPrint ? prettyMarshallers : compactMarshallers).offer(marshaller);
+    }
+
+    /**
+     * Borrows an unmarshaller
+     * @return the unmarshaller, it should be given back with {@link #release(Unmarshaller)}
+     * @throws JAXBException if an unmarshaller can't be created
+     */
+    Unmarshaller borrowUnmarshaller() throws JAXBException {
+        Unmarshaller unmarshaller = unmarshallers.poll();
+        return unmarshaller != null ? unmarshaller : context.createUnmarshaller();
+    }
+
+    /**
+     * Gives an unmarshaller back to the pool after it was used successfully
+     * @param unmarshaller the unmarshaller
+     */
+    void release(Unmarshaller unmarshaller) {
+        unmarshallers.offer(unmarshaller);
+    }
+}
@@ -0,0 +1,336 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.SitemapReference;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.google.news.News;
+import io.github.concurrentrecursion.sitemap.util.UrlUtil;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps the articles of a Google News sitemap for a sliding window of time, and writes them to as many news sitemap
+ * files as needed.<br>
+ * Google News only reads the articles published in the last two days, and no more than 1,000 of them per file.
+ * Articles are kept ordered by their {@link News#getPublicationDate() publication date}, so the articles that fall out
+ * of the window are evicted from the oldest, each in O(log n). Each article is assigned to a file when it is added,
+ * the first file with room for it, and stays in that file until it is evicted, so {@link #publish(URL, Path)} only
+ * rewrites the files that gained or lost articles since the last publish. A file that has no articles left is
+ * deleted.<br>
+ * The files are named {@code <filenamePrefix>-N.xml} and are referenced by {@code <filenamePrefix>-index.xml}. The
+ * window is only kept in memory, so after a restart every file is written again when the articles are added back.
+ * Adding articles and publishing can be done from different threads.
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+@Slf4j
+public class NewsSitemapWindow {
+    private static final int MAX_NEWS = 1_000;
+    private static final Comparator<Article> ARTICLE_ORDER = Comparator.comparing((Article article) -> article.publicationDate)
+            .thenComparing(article -> article.location);
+
+    /**
+     * How long an article stays in the sitemap after its publication date, two days by default
+     * @return the length of the window
+     */
+    @Setter(AccessLevel.NONE)
+    private Duration window = Duration.ofDays(2);
+    /**
+     * The maximum number of articles in each file, this cannot be more than 1,000
+     * @return the maximum number of articles per file
+     */
+    @Setter(AccessLevel.NONE)
+    private int maxNewsPerFile = MAX_NEWS;
+    /**
+     * The prefix of the generated file names. Its default value is {@code news-sitemap}
+     * @param filenamePrefix the filename prefix
+     * @return the filename prefix
+     */
+    private String filenamePrefix = "news-sitemap";
+    /**
+     * Whether the XML should be indented and have newlines
+     * @param prettyPrint true to use formatted human readable, false for smaller file size.
+     * @return true if pretty print is enabled, otherwise false
+     */
+    private boolean prettyPrint = false;
+    /**
+     * Whether the news sitemap files should be compressed with gzip. The sitemap index is never compressed.
+     * @param useGzip whether to use gzip
+     * @return whether to use gzip
+     */
+    private boolean useGzip = false;
+    /**
+     * How the files are compressed when gzip is used. Defaults to {@link Compression#gzip()}
+     * @param compression the compression settings
+     * @return the compression settings
+     */
+    private Compression compression = Compression.gzip();
+    /**
+     * The {@link java.security.MessageDigest} algorithm, such as {@code SHA-256}, of the checksum file written next to
+     * each sitemap file. No checksum files are written when it is null
+     * @param checksumAlgorithm the checksum algorithm
+     * @return the checksum algorithm
+     */
+    private String checksumAlgorithm;
+    /**
+     * The clock that decides which articles are in the window, and the last modified dates of the files
+     * @param clock the clock
+     * @return the clock
+     */
+    private Clock clock = Clock.systemUTC();
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final TreeMap<Article, Url> articles = new TreeMap<>(ARTICLE_ORDER);
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Map<String, Article> articlesByLocation = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final TreeMap<Integer, NewsFile> files = new TreeMap<>();
+    /**
+     * The numbers of the files that have room for another article, the lowest is filled first
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final TreeSet<Integer> filesWithRoom = new TreeSet<>();
+
+    /**
+     * Sets how long an article stays in the sitemap after its publication date
+     * @param window the length of the window, more than zero
+     * @return this window
+     */
+    public synchronized NewsSitemapWindow setWindow(Duration window) {
+        if (window == null || window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("window must be more than zero");
+        }
+        this.window = window;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of articles in each file. Files that already have more articles keep them until they
+     * are evicted
+     * @param maxNewsPerFile the maximum number of articles, between 1 and 1,000
+     * @return this window
+     */
+    public synchronized NewsSitemapWindow setMaxNewsPerFile(int maxNewsPerFile) {
+        if (maxNewsPerFile < 1 || maxNewsPerFile > MAX_NEWS) {
+            throw new IllegalArgumentException("maxNewsPerFile must be between 1 and " + MAX_NEWS);
+        }
+        this.maxNewsPerFile = maxNewsPerFile;
+        filesWithRoom.clear();
+        files.forEach((number, file) -> {
+            if (file.articles.size() < maxNewsPerFile) {
+                filesWithRoom.add(number);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Adds an article, or replaces the article with the same location. A replaced article stays in its file.
+     * @param article the url of the article, with news that has a publication date
+     * @return true if the article was added, false if it is already outside the window
+     * @throws IllegalArgumentException if the url has no news or no publication date
+     */
+    public synchronized boolean add(Url article) {
+        News news = article.getNews();
+        if (news == null || news.getPublicationDate() == null) {
+            throw new IllegalArgumentException("A news sitemap url must have news with a publication date");
+        }
+        String location = String.valueOf(article.getCompactLocation());
+        Article key = new Article(news.getPublicationDate(), location);
+        Article previous = articlesByLocation.get(location);
+        if (isExpired(key, windowStart())) {
+            if (previous != null) {
+                removeArticle(previous);
+            }
+            return false;
+        }
+        NewsFile file;
+        if (previous != null) {
+            //The article keeps its file, so only that file changes
+            articles.remove(previous);
+            key.file = previous.file;
+            file = files.get(key.file);
+            file.articles.remove(previous);
+        } else {
+            key.file = fileWithRoom();
+            file = files.get(key.file);
+        }
+        file.articles.add(key);
+        if (file.articles.size() >= maxNewsPerFile) {
+            filesWithRoom.remove(key.file);
+        }
+        file.dirty = true;
+        articles.put(key, article);
+        articlesByLocation.put(location, key);
+        return true;
+    }
+
+    /**
+     * Removes an article, such as one that was retracted
+     * @param location the location of the article's url
+     * @return true if the article was in the window
+     */
+    public synchronized boolean remove(String location) {
+        Article article = articlesByLocation.get(location);
+        if (article == null) {
+            return false;
+        }
+        removeArticle(article);
+        return true;
+    }
+
+    /**
+     * The number of articles in the window, including the expired articles that haven't been evicted yet
+     * @return the number of articles
+     */
+    public synchronized int size() {
+        return articles.size();
+    }
+
+    /**
+     * Removes the articles whose publication date is before the start of the window. It is done by
+     * {@link #publish(URL, Path)}, so it only needs to be called to free memory between publishes
+     * @return the number of articles removed
+     */
+    public synchronized int evictExpired() {
+        OffsetDateTime start = windowStart();
+        int evicted = 0;
+        while (!articles.isEmpty() && isExpired(articles.firstKey(), start)) {
+            removeArticle(articles.firstKey());
+            evicted++;
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} articles published before {}", evicted, start);
+        }
+        return evicted;
+    }
+
+    /**
+     * Evicts the expired articles and writes the files that changed since the last publish, then writes the sitemap
+     * index if any file changed. The files that have no articles left are deleted.
+     *
+     * @param sitemapDirectoryUrl the URL of the directory the sitemap files will be served from
+     * @param directory the directory to write the files to
+     * @return the sitemap index, the references don't contain the urlsets
+     * @throws IOException in case of any I/O failure, the files that weren't written are written by the next publish
+     */
+    public synchronized IndexSitemap publish(URL sitemapDirectoryUrl, Path directory) throws IOException {
+        evictExpired();
+        Compression fileCompression = SitemapFiles.compression(useGzip, compression);
+        StreamingSitemapWriter writer = new StreamingSitemapWriter().setPrettyPrint(prettyPrint).setUseGzip(useGzip)
+                .setCompression(compression).setChecksumAlgorithm(checksumAlgorithm);
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        boolean changed = false;
+        for (Iterator<Map.Entry<Integer, NewsFile>> entries = files.entrySet().iterator(); entries.hasNext(); ) {
+            Map.Entry<Integer, NewsFile> entry = entries.next();
+            NewsFile file = entry.getValue();
+            if (!file.dirty) {
+                continue;
+            }
+            Path path = SitemapFiles.withGzipExtension(directory.resolve(filenamePrefix + "-" + entry.getKey() + ".xml"), useGzip);
+            if (file.articles.isEmpty()) {
+                SitemapFiles.deleteIfExists(path, fileCompression, false, checksumAlgorithm);
+                entries.remove();
+                filesWithRoom.remove(entry.getKey());
+                log.debug("Deleted {}", path);
+            } else {
+                writer.write(file.articles.stream().map(articles::get).iterator(), path);
+                file.dirty = false;
+                file.lastModifiedDate = now;
+            }
+            changed = true;
+        }
+
+        IndexSitemap index = new IndexSitemap().setFile(directory.resolve(filenamePrefix + "-index.xml"));
+        files.forEach((number, file) -> index.getSitemapReferences().add(new SitemapReference()
+                .setLocation(UrlUtil.resolve(sitemapDirectoryUrl, SitemapFiles.withGzipExtension(directory.resolve(filenamePrefix + "-" + number + ".xml"), useGzip).getFileName().toString()))
+                .setLastModifiedDate(file.lastModifiedDate)));
+        if (changed || !Files.exists(index.getFile())) {
+            new SitemapWriter().setPrettyPrint(prettyPrint).setChecksumAlgorithm(checksumAlgorithm).write(index, index.getFile());
+            log.debug("Wrote {} articles in {} files to {}", articles.size(), files.size(), directory);
+        }
+        return index;
+    }
+
+    private OffsetDateTime windowStart() {
+        return OffsetDateTime.now(clock).minus(window);
+    }
+
+    private static boolean isExpired(Article article, OffsetDateTime windowStart) {
+        return article.publicationDate.isBefore(windowStart);
+    }
+
+    private int fileWithRoom() {
+        if (!filesWithRoom.isEmpty()) {
+            return filesWithRoom.first();
+        }
+        int number = files.isEmpty() ? 1 : files.lastKey() + 1;
+        //Numbers below the last file are taken by files that still exist or have room
+        for (int i = 1; i < number; i++) {
+            if (!files.containsKey(i)) {
+                number = i;
+                break;
+            }
+        }
+        files.put(number, new NewsFile());
+        filesWithRoom.add(number);
+        return number;
+    }
+
+    private void removeArticle(Article article) {
+        articles.remove(article);
+        articlesByLocation.remove(article.location);
+        NewsFile file = files.get(article.file);
+        file.articles.remove(article);
+        file.dirty = true;
+        if (file.articles.size() < maxNewsPerFile) {
+            filesWithRoom.add(article.file);
+        }
+    }
+
+    /**
+     * The position of an article in the window, and the file it is in
+     */
+    private static final class Article {
+        private final OffsetDateTime publicationDate;
+        private final String location;
+        private int file;
+
+        Article(OffsetDateTime publicationDate, String location) {
+            this.publicationDate = Objects.requireNonNull(publicationDate);
+            this.location = location;
+        }
+    }
+
+    /**
+     * The articles of a file, and whether it needs to be written
+     */
+    private static final class NewsFile {
+        private final TreeSet<Article> articles = new TreeSet<>(ARTICLE_ORDER);
+        private boolean dirty;
+        private OffsetDateTime lastModifiedDate;
+    }
+}
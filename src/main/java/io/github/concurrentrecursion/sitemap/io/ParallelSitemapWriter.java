@@ -0,0 +1,373 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.exception.DataSerializationException;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.SitemapReference;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.util.UrlUtil;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the urlsets of an {@link IndexSitemap} on several threads, and then writes the sitemap index.<br>
+ * Each urlset is validated, marshalled, compressed and written by its own task. The files are numbered by the order of
+ * the references in the index, {@code <filenamePrefix>-1.xml}, {@code <filenamePrefix>-2.xml}, ..., so the output is
+ * the same no matter the order the tasks finish in, or by the file name of each urlset when
+ * {@link #setKeepFilenames(boolean) keepFilenames} is set. The index is written to {@code <filenamePrefix>-index.xml} after
+ * every urlset has been written.<br>
+ * Every file is written with the settings of the {@link SitemapWriter} given to the constructor, including its
+ * filename prefix. When a urlset fails, the tasks that haven't finished are cancelled and the files already written
+ * are deleted.
+ */
+@Data
+@Accessors(chain = true)
+@Slf4j
+public class ParallelSitemapWriter {
+    private static final ThreadFactory WRITER_THREADS = new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "sitemap-writer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    /**
+     * The writer each urlset and the index are written with. Its settings, such as gzip, checksums and the filename
+     * prefix, apply to every file
+     * @return the sitemap writer
+     */
+    private final SitemapWriter writer;
+    /**
+     * Whether each urlset is written to the file name it already has, such as the names given by a
+     * {@link ShardPartitioner}, instead of being numbered by its position in the index. Every urlset must have its own
+     * file name, which isn't the name of the index
+     * @param keepFilenames whether to keep the file names of the urlsets
+     * @return whether the file names of the urlsets are kept
+     */
+    private boolean keepFilenames = false;
+    /**
+     * Whether only the urlsets whose content changed since the previous write to the same directory are written. The
+     * hash of the xml of each urlset, as the writer writes it, is kept in {@code <filenamePrefix>-manifest.properties}.
+     * An unchanged urlset is marshalled once to hash it, but isn't validated or written again and its reference keeps
+     * the last modified date of the previous write, while a changed urlset gets the current date. Use it with {@link #setKeepFilenames(boolean) keepFilenames} and a
+     * {@link ShardPartitioner}, so the same urls end up in the same file every time.
+     * @param incremental whether to skip unchanged urlsets
+     * @return whether unchanged urlsets are skipped
+     */
+    private boolean incremental = false;
+    /**
+     * The executor the urlsets are written on, such as a {@link java.util.concurrent.ForkJoinPool}. It is not shut
+     * down by this writer. When it is null, a pool of {@link #getParallelism()} threads is created for each write.
+     * @param executor the executor
+     * @return the executor
+     */
+    private ExecutorService executor;
+    /**
+     * The number of urlsets written at the same time when no executor is set. Defaults to the number of processors
+     * @return the number of threads
+     */
+    @Setter(AccessLevel.NONE)
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Create a parallel writer that writes with the default {@link SitemapWriter} settings
+     */
+    public ParallelSitemapWriter() {
+        this(new SitemapWriter());
+    }
+
+    /**
+     * Create a parallel writer
+     * @param writer the configured writer each urlset and the index are written with, it is shared by the threads
+     */
+    public ParallelSitemapWriter(SitemapWriter writer) {
+        this.writer = Objects.requireNonNull(writer, "writer");
+    }
+
+    /**
+     * Sets the number of urlsets written at the same time when no executor is set
+     * @param parallelism the number of threads, at least 1
+     * @return this writer
+     */
+    public ParallelSitemapWriter setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Writes every urlset referenced by the index, and then the index itself.<br>
+     * The file, location and, if it isn't set, the last modified date of each reference are updated to match the file
+     * that was written. References without a urlset are written to the index as they are. In incremental mode, the
+     * last modified date is the date the content of the file last changed.
+     *
+     * @param sitemapDirectoryUrl the URL of the directory the sitemap files will be served from
+     * @param index the sitemap index, with the urlsets set on its references
+     * @param directory the directory to write the files to
+     * @return the index that was written
+     * @throws IOException in case of any I/O failure
+     * @throws jakarta.validation.ConstraintViolationException if a urlset is not valid
+     * @throws IllegalArgumentException if file names are kept and two urlsets have the same file name, nothing is
+     * written
+     */
+    public IndexSitemap write(URL sitemapDirectoryUrl, IndexSitemap index, Path directory) throws IOException {
+        String filenamePrefix = writer.getFilenamePrefix();
+        //One timestamp for every file, so the index doesn't depend on how long each file took
+        OffsetDateTime now = OffsetDateTime.now();
+        SitemapManifest manifest = incremental ? SitemapManifest.load(directory.resolve(filenamePrefix + "-manifest.properties")) : null;
+        Compression fileCompression = writer.effectiveCompression();
+        List<SitemapReference> references = index.getSitemapReferences();
+        List<SitemapReference> written = new ArrayList<>(references.size());
+        List<Path> files = files(references, directory);
+        Progress progress = new Progress();
+        List<Callable<String>> tasks = new ArrayList<>(references.size());
+        for (int i = 0; i < references.size(); i++) {
+            SitemapReference reference = references.get(i);
+            UrlSetSitemap urlSet = reference.getSitemap();
+            if (urlSet == null) {
+                continue;
+            }
+            Path file = files.get(i);
+            reference.setLocation(UrlUtil.resolve(sitemapDirectoryUrl, file.getFileName().toString()));
+            if (reference.getLastModifiedDate() == null) {
+                reference.setLastModifiedDate(now);
+            }
+            urlSet.setFile(file);
+            written.add(reference);
+            if (manifest == null) {
+                tasks.add(progress.track(() -> {
+                    writer.write(urlSet, file);
+                    progress.written(file);
+                    return null;
+                }));
+                continue;
+            }
+            SitemapManifest.Entry previous = manifest.get(file.getFileName().toString());
+            tasks.add(progress.track(() -> {
+                String hash = writer.writeIfChanged(urlSet, file, previous == null ? null : previous.getHash());
+                if (hash == null) {
+                    log.debug("{} is unchanged", file);
+                }
+                return hash;
+            }));
+        }
+
+        ExecutorService executorService = executor != null ? executor
+                : Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, tasks.size())), WRITER_THREADS);
+        List<String> hashes;
+        try {
+            hashes = awaitAll(executorService, tasks, progress);
+        } catch (IOException | RuntimeException e) {
+            //An incremental write keeps the files it replaced, the manifest isn't saved so they are checked again next time
+            if (manifest == null) {
+                for (Path file : progress.getWritten()) {
+                    try {
+                        SitemapFiles.deleteIfExists(file, fileCompression, writer.isWriteUncompressedCopy(), writer.getChecksumAlgorithm());
+                    } catch (IOException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                }
+            }
+            throw e;
+        } finally {
+            if (executor == null) {
+                executorService.shutdownNow();
+            }
+        }
+
+        if (manifest != null) {
+            updateManifest(manifest, written, hashes, now);
+        }
+        index.setFile(directory.resolve(filenamePrefix + "-index.xml"));
+        writer.write(index, index.getFile());
+        if (manifest != null) {
+            manifest.save();
+        }
+        log.debug("Wrote {} sitemaps to {}", tasks.size(), directory);
+        return index;
+    }
+
+    /**
+     * Gets the file each urlset is written to, null for references without a urlset. The names are checked before
+     * anything is written, as two tasks writing the same file would leave only one of the urlsets
+     */
+    private List<Path> files(List<SitemapReference> references, Path directory) {
+        List<Path> files = new ArrayList<>(references.size());
+        Set<String> filenames = new HashSet<>();
+        filenames.add(writer.getFilenamePrefix() + "-index.xml");
+        for (int i = 0; i < references.size(); i++) {
+            UrlSetSitemap urlSet = references.get(i).getSitemap();
+            if (urlSet == null) {
+                files.add(null);
+                continue;
+            }
+            String filename = keepFilenames ? urlSet.getFile().getFileName().toString() : writer.getFilenamePrefix() + "-" + (i + 1) + ".xml";
+            Path file = SitemapFiles.withGzipExtension(directory.resolve(filename), writer.getUseGzipCompression());
+            if (!filenames.add(file.getFileName().toString())) {
+                throw new IllegalArgumentException("More than one sitemap would be written to " + file.getFileName()
+                        + ", give each urlset its own file name or don't keep the file names");
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Records the hashes of the urlsets that were written, and sets the last modified date of each reference to the
+     * date its content last changed
+     */
+    private void updateManifest(SitemapManifest manifest, List<SitemapReference> written, List<String> hashes, OffsetDateTime now) throws IOException {
+        Compression fileCompression = writer.effectiveCompression();
+        Set<String> filenames = new HashSet<>();
+        for (int i = 0; i < written.size(); i++) {
+            SitemapReference reference = written.get(i);
+            Path file = reference.getSitemap().getFile();
+            String name = file.getFileName().toString();
+            filenames.add(name);
+            if (hashes.get(i) != null) {
+                manifest.put(SitemapFiles.outputs(file, fileCompression, writer.isWriteUncompressedCopy(), writer.getChecksumAlgorithm()), hashes.get(i), now);
+                reference.setLastModifiedDate(now);
+            } else {
+                reference.setLastModifiedDate(manifest.get(name).getLastModifiedDate());
+            }
+        }
+        for (Path removed : manifest.removeStale(filenames)) {
+            log.debug("Removed {}", removed);
+        }
+    }
+
+    /**
+     * Runs the tasks and waits for every file to be written. The results are checked as the tasks complete, so the
+     * first failure cancels the rest without waiting for the tasks submitted before it
+     * @return the result of each task, in the order of the tasks
+     */
+    private static <T> List<T> awaitAll(ExecutorService executorService, List<Callable<T>> tasks, Progress progress) throws IOException {
+        CompletionService<T> completionService = new ExecutorCompletionService<>(executorService);
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(completionService.submit(task));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                completionService.take().get();
+            }
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            progress.cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new DataSerializationException(e);
+        } catch (ExecutionException e) {
+            progress.cancel(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new DataSerializationException(cause);
+        } catch (RuntimeException e) {
+            //The executor rejected a task
+            progress.cancel(futures);
+            throw e;
+        }
+    }
+
+    /**
+     * Keeps track of the running tasks and the files they wrote, so a failed write can stop the tasks and clean up
+     * once none of them is left running
+     */
+    private static final class Progress {
+        private final List<Path> written = new ArrayList<>();
+        private int running;
+        private boolean cancelled;
+
+        <T> Callable<T> track(Callable<T> task) {
+            return () -> {
+                if (!start()) {
+                    return null;
+                }
+                try {
+                    return task.call();
+                } finally {
+                    finish();
+                }
+            };
+        }
+
+        private synchronized boolean start() {
+            if (cancelled) {
+                return false;
+            }
+            running++;
+            return true;
+        }
+
+        private synchronized void finish() {
+            running--;
+            notifyAll();
+        }
+
+        synchronized void written(Path file) {
+            written.add(file);
+        }
+
+        synchronized List<Path> getWritten() {
+            return new ArrayList<>(written);
+        }
+
+        /**
+         * Cancels the tasks that haven't finished, and waits for the running ones to stop
+         */
+        void cancel(List<? extends Future<?>> futures) {
+            synchronized (this) {
+                cancelled = true;
+            }
+            futures.forEach(future -> future.cancel(true));
+            boolean interrupted = false;
+            synchronized (this) {
+                while (running > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
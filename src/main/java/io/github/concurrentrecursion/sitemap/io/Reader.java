@@ -1,8 +1,11 @@
 package io.github.concurrentrecursion.sitemap.io;
 
+import io.github.concurrentrecursion.exception.DataAccessException;
 import io.github.concurrentrecursion.robots.RobotsTxtReader;
 import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
 import io.github.concurrentrecursion.sitemap.model.Sitemap;
+import io.github.concurrentrecursion.sitemap.model.SitemapReference;
+import io.github.concurrentrecursion.sitemap.model.Url;
 import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
 import jakarta.validation.constraints.NotNull;
 
@@ -10,7 +13,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * The Reader interface provides methods for reading sitemap files.
@@ -27,6 +32,33 @@ public interface Reader {
      */
     List<UrlSetSitemap> readUrlSets(IndexSitemap index);
 
+    /**
+     * Reads all of the SitemapReferences of the given index, with up to {@code maxConcurrentRequests} requests in flight
+     * at once.<br>
+     * A failure to read one urlset is reported in its result and doesn't stop the others from being read.<br>
+     * The default implementation reads the references one at a time with {@link #readUrlSet(URL)}, like
+     * {@link #readUrlSets(IndexSitemap)}, so the results are always in the order of the references.
+     * @param index The sitemap index
+     * @param maxConcurrentRequests the maximum number of urlsets to read at the same time, at least 1
+     * @param preserveOrder true to return the results in the order of the sitemap references, false to return them in
+     *                      the order they complete
+     * @return one result for each sitemap reference in the index
+     */
+    default List<UrlSetResult> readUrlSets(IndexSitemap index, int maxConcurrentRequests, boolean preserveOrder) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        }
+        List<UrlSetResult> results = new ArrayList<>(index.getSitemapReferences().size());
+        for (SitemapReference reference : index.getSitemapReferences()) {
+            try {
+                results.add(UrlSetResult.success(reference, readUrlSet(reference.getLocation())));
+            } catch (RuntimeException e) {
+                results.add(UrlSetResult.failure(reference, e));
+            }
+        }
+        return results;
+    }
+
     /**
      * Reads a sitemap index file from the specified URL.
      *
@@ -77,6 +109,38 @@ public interface Reader {
      * @return The {@link UrlSetSitemap} object representing the sitemap file.
      */
     UrlSetSitemap readUrlSet(@NotNull final InputStream inputStream);
+
+    /**
+     * Reads the &lt;url&gt; entries of a urlset sitemap from the specified URL one at a time, without loading the whole
+     * sitemap into memory.<br>
+     * The returned stream holds the HTTP connection open until it is closed, so it should be used in a try-with-resources block.<br>
+     * The default implementation reads the whole urlset with {@link #readUrlSet(URL)} and streams its urls.
+     *
+     * @param url The URL of the sitemap file.
+     * @return A lazily populated stream of the urls in the sitemap
+     */
+    default Stream<Url> streamUrls(@NotNull final URL url) {
+        return readUrlSet(url).getUrls().stream();
+    }
+
+    /**
+     * Reads the &lt;url&gt; entries of a urlset sitemap from the specified InputStream one at a time, without loading
+     * the whole sitemap into memory.<br>
+     * The InputStream is closed when the returned stream is closed.<br>
+     * The default implementation reads the whole urlset with {@link #readUrlSet(InputStream)} and streams its urls.
+     *
+     * @param inputStream An inputstream to the urlset
+     * @return A lazily populated stream of the urls in the sitemap
+     */
+    default Stream<Url> streamUrls(@NotNull final InputStream inputStream) {
+        return readUrlSet(inputStream).getUrls().stream().onClose(() -> {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                throw new DataAccessException(e);
+            }
+        });
+    }
     /**
      * Sets the connection timeout value. This is the maximum time that the reader will attempt to establish a connection
      * before throwing an exception.
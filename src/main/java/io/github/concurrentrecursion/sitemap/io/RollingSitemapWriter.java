@@ -0,0 +1,423 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.exception.DataSerializationException;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.SitemapReference;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.util.UrlUtil;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Writes an unbounded stream of {@link Url}s as a set of &lt;urlset&gt; sitemap files and the &lt;sitemapindex&gt;
+ * that references them, in a single pass.<br>
+ * Each url is serialized once into a reusable buffer so its exact uncompressed size is known before it is written.
+ * When adding the url would push the current file past the maximum number of urls or the maximum file size, the
+ * current file is closed and the url starts the next file, as it is when a news url would be more than the maximum
+ * number of news urls in a file, named {@code <filenamePrefix>-N.xml} (or {@code .xml.gz}).
+ * After the last url, the index is written to {@code <filenamePrefix>-index.xml}.<br>
+ * In {@link #setIncremental(boolean) incremental} mode, the hash of each file's uncompressed xml is kept in
+ * {@code <filenamePrefix>-manifest.properties}. A file whose content hasn't changed since the previous run isn't
+ * compressed or written again, and keeps its previous last modified date in the index.<br>
+ * When an {@link #setInvalidUrlPolicy(InvalidUrlPolicy) invalid url policy} is set, each url is validated just before
+ * it is written.
+ */
+@Data
+@Accessors(chain = true)
+@Slf4j
+public class RollingSitemapWriter {
+    private static final int MAX_URLS = 50_000;
+    private static final long MAX_FILESIZE = 50L * 1024L * 1024L;// 50MB in bytes
+    private static final int MAX_SITEMAPS = 50_000;
+    private static final int MAX_NEWS = 1_000;
+
+    /**
+     * Whether the XML should be indented and have newlines
+     * @param prettyPrint true to use formatted human readable, false for smaller file size.
+     * @return true if pretty print is enabled, otherwise false
+     */
+    private boolean prettyPrint = false;
+    /**
+     * Whether the urlset files should be compressed with gzip. The sitemap index is never compressed.
+     * @param useGzip whether to use gzip
+     * @return whether to use gzip
+     */
+    private boolean useGzip = false;
+    /**
+     * How the files are compressed when gzip is used. Defaults to {@link Compression#gzip()}
+     * @param compression the compression settings
+     * @return the compression settings
+     */
+    private Compression compression = Compression.gzip();
+    /**
+     * Whether an uncompressed copy of each gzip file is written next to it, from the same serialization. For example
+     * {@code sitemap-1.xml} is written along with {@code sitemap-1.xml.gz}. Only used when gzip is enabled
+     * @param writeUncompressedCopy whether to write the uncompressed copy
+     * @return whether to write the uncompressed copy
+     */
+    private boolean writeUncompressedCopy = false;
+    /**
+     * The {@link java.security.MessageDigest} algorithm, such as {@code SHA-256}, of the checksum file written next to
+     * each sitemap file, for example {@code sitemap-1.xml.gz.sha256}. No checksum files are written when it is null
+     * @param checksumAlgorithm the checksum algorithm
+     * @return the checksum algorithm
+     */
+    private String checksumAlgorithm;
+    /**
+     * The prefix of the generated file names. Its default value is {@code sitemap}
+     * @param filenamePrefix the filename prefix
+     * @return the filename prefix
+     */
+    private String filenamePrefix = "sitemap";
+    /**
+     * Whether only the urlset files whose content changed since the previous write to the same directory are written.
+     * Each file is first written uncompressed to a temporary file while its hash is computed, and is only compressed
+     * and moved into place when the hash differs from the manifest. The last modified date of an unchanged file is
+     * kept from the previous write. Changing the compression settings doesn't cause the files to be written again.
+     * @param incremental whether to skip unchanged files
+     * @return whether unchanged files are skipped
+     */
+    private boolean incremental = false;
+    /**
+     * What is done with a url that doesn't pass the write validation constraints. The urls aren't validated when it is
+     * null, which is the default
+     * @param invalidUrlPolicy the policy for invalid urls
+     * @return the policy for invalid urls
+     */
+    private InvalidUrlPolicy invalidUrlPolicy;
+    /**
+     * Collects the invalid urls found while writing. When it is null the invalid urls are only logged
+     * @param validationErrors the collector of invalid urls
+     * @return the collector of invalid urls
+     */
+    private ValidationErrors validationErrors;
+    /**
+     * The maximum number of urls in each urlset file, this cannot be more than 50,000
+     * @return the maximum number of urls per file
+     */
+    @Setter(AccessLevel.NONE)
+    private int maxUrls = MAX_URLS;
+    /**
+     * The maximum uncompressed size of each urlset file in bytes, this cannot be more than 50MB
+     * @return the maximum file size
+     */
+    @Setter(AccessLevel.NONE)
+    private long maxFileSize = MAX_FILESIZE;
+    /**
+     * The maximum number of urls with news in each urlset file, this cannot be more than 1,000
+     * @return the maximum number of news urls per file
+     */
+    @Setter(AccessLevel.NONE)
+    private int maxNews = MAX_NEWS;
+
+    /**
+     * Sets the maximum number of urls in each urlset file
+     * @param maxUrls the maximum number of urls, between 1 and 50,000
+     * @return this writer
+     */
+    public RollingSitemapWriter setMaxUrls(int maxUrls) {
+        if (maxUrls < 1 || maxUrls > MAX_URLS) {
+            throw new IllegalArgumentException("maxUrls must be between 1 and " + MAX_URLS);
+        }
+        this.maxUrls = maxUrls;
+        return this;
+    }
+
+    /**
+     * Sets the maximum uncompressed size of each urlset file
+     * @param maxFileSize the maximum size in bytes, no more than 50MB
+     * @return this writer
+     */
+    public RollingSitemapWriter setMaxFileSize(long maxFileSize) {
+        if (maxFileSize < 1 || maxFileSize > MAX_FILESIZE) {
+            throw new IllegalArgumentException("maxFileSize must be between 1 and " + MAX_FILESIZE);
+        }
+        this.maxFileSize = maxFileSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of urls with news in each urlset file
+     * @param maxNews the maximum number of news urls, between 1 and 1,000
+     * @return this writer
+     */
+    public RollingSitemapWriter setMaxNews(int maxNews) {
+        if (maxNews < 1 || maxNews > MAX_NEWS) {
+            throw new IllegalArgumentException("maxNews must be between 1 and " + MAX_NEWS);
+        }
+        this.maxNews = maxNews;
+        return this;
+    }
+
+    /**
+     * Writes the urls to as many urlset files as needed, and then writes the sitemap index referencing them.
+     *
+     * @param sitemapDirectoryUrl the URL of the directory the sitemap files will be served from
+     * @param urls the urls to write, the stream is consumed but not closed
+     * @param directory the directory to write the files to
+     * @return the sitemap index that was written, the references don't contain the urlsets
+     * @throws IOException in case of any I/O failure
+     */
+    public IndexSitemap write(URL sitemapDirectoryUrl, Stream<Url> urls, Path directory) throws IOException {
+        return write(sitemapDirectoryUrl, urls.iterator(), directory);
+    }
+
+    /**
+     * Writes the urls in the store to as many urlset files as needed, and then writes the sitemap index referencing them.
+     *
+     * @param sitemapDirectoryUrl the URL of the directory the sitemap files will be served from
+     * @param urls the urls to write, the store is not closed
+     * @param directory the directory to write the files to
+     * @return the sitemap index that was written, the references don't contain the urlsets
+     * @throws IOException in case of any I/O failure
+     */
+    public IndexSitemap write(URL sitemapDirectoryUrl, UrlStore urls, Path directory) throws IOException {
+        try (Stream<Url> stream = urls.stream()) {
+            return write(sitemapDirectoryUrl, stream, directory);
+        }
+    }
+
+    /**
+     * Writes the urls to as many urlset files as needed, and then writes the sitemap index referencing them.
+     *
+     * @param sitemapDirectoryUrl the URL of the directory the sitemap files will be served from
+     * @param urls the urls to write
+     * @param directory the directory to write the files to
+     * @return the sitemap index that was written, the references don't contain the urlsets
+     * @throws IOException in case of any I/O failure
+     * @throws jakarta.validation.ConstraintViolationException if a url is invalid and the policy is
+     * {@link InvalidUrlPolicy#FAIL_FAST}, the index isn't written
+     */
+    public IndexSitemap write(URL sitemapDirectoryUrl, Iterator<Url> urls, Path directory) throws IOException {
+        IndexSitemap index = new IndexSitemap().setFile(directory.resolve(filenamePrefix + "-index.xml"));
+        SitemapManifest manifest = incremental ? SitemapManifest.load(directory.resolve(filenamePrefix + "-manifest.properties")) : null;
+        Set<String> filenames = new HashSet<>();
+        InlineValidator validator = new InlineValidator(invalidUrlPolicy, validationErrors);
+        try (Shard shard = new Shard(sitemapDirectoryUrl, directory, index, manifest, filenames)) {
+            while (urls.hasNext()) {
+                Url url = urls.next();
+                if (validator.accept(url)) {
+                    shard.write(url);
+                }
+            }
+            shard.complete = true;
+        }
+        new SitemapWriter().setPrettyPrint(prettyPrint).setChecksumAlgorithm(checksumAlgorithm).write(index, index.getFile());
+        if (manifest != null) {
+            for (Path removed : manifest.removeStale(filenames)) {
+                log.debug("Removed {}", removed);
+            }
+            manifest.save();
+        }
+        log.debug("Wrote {} sitemaps to {}", index.getSitemapReferences().size(), directory);
+        return index;
+    }
+
+    /**
+     * The urlset file currently being written
+     */
+    private class Shard implements AutoCloseable {
+        private final URL sitemapDirectoryUrl;
+        private final Path directory;
+        private final IndexSitemap index;
+        private final SitemapManifest manifest;
+        private final Set<String> filenames;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8 * 1024);
+        private final UrlSetXmlWriter urlWriter = new UrlSetXmlWriter(buffer, prettyPrint);
+        private final byte[] header;
+        private final byte[] footer;
+
+        private OutputStream out;
+        private Path file;
+        private int urlCount;
+        private int newsCount;
+        private long byteCount;
+        private Path spool;
+        private MessageDigest digest;
+        private boolean complete;
+
+        Shard(URL sitemapDirectoryUrl, Path directory, IndexSitemap index, SitemapManifest manifest, Set<String> filenames) {
+            this.sitemapDirectoryUrl = sitemapDirectoryUrl;
+            this.directory = directory;
+            this.index = index;
+            this.manifest = manifest;
+            this.filenames = filenames;
+            try (UrlSetXmlWriter xml = new UrlSetXmlWriter(buffer, prettyPrint)) {
+                xml.writeStartUrlSet();
+                xml.flush();
+                this.header = buffer.toByteArray();
+                buffer.reset();
+                xml.writeEndUrlSet();
+                this.footer = buffer.toByteArray();
+                buffer.reset();
+            }
+        }
+
+        void write(Url url) throws IOException {
+            int length;
+            boolean news = url.getNews() != null;
+            try {
+                urlWriter.writeUrl(url);
+                urlWriter.flush();
+                length = buffer.size();
+                if (header.length + length + footer.length > maxFileSize) {
+                    throw new DataSerializationException(String.format("Url %s is %d bytes and cannot fit in a sitemap file of %d bytes", url.getCompactLocation(), length, maxFileSize));
+                }
+                if (out != null && (urlCount + 1 > maxUrls || (news && newsCount + 1 > maxNews) || byteCount + length + footer.length > maxFileSize)) {
+                    finish();
+                }
+                if (out == null) {
+                    start();
+                }
+                buffer.writeTo(out);
+            } finally {
+                //A url that failed part way must not be written in front of the next one
+                buffer.reset();
+            }
+            byteCount += length;
+            urlCount++;
+            if (news) {
+                newsCount++;
+            }
+        }
+
+        private void start() throws IOException {
+            int number = index.getSitemapReferences().size() + 1;
+            if (number > MAX_SITEMAPS) {
+                throw new DataSerializationException("Maximum number of sitemaps in a sitemap index is " + MAX_SITEMAPS);
+            }
+            file = SitemapFiles.withGzipExtension(directory.resolve(filenamePrefix + "-" + number + ".xml"), useGzip);
+            if (manifest == null) {
+                out = SitemapFiles.newOutputStream(file, SitemapFiles.compression(useGzip, compression), writeUncompressedCopy, checksumAlgorithm);
+            } else {
+                //The file is only written once its hash shows that it changed
+                spool = Files.createTempFile(directory, filenamePrefix + "-" + number + "-", ".tmp");
+                digest = ChecksumOutputStream.messageDigest(SitemapManifest.HASH_ALGORITHM);
+                out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(spool), Compression.DEFAULT_BUFFER_SIZE), digest);
+            }
+            out.write(header);
+            byteCount = header.length;
+            urlCount = 0;
+            newsCount = 0;
+        }
+
+        private void finish() throws IOException {
+            try {
+                try (OutputStream os = out) {
+                    os.write(footer);
+                }
+            } catch (IOException | RuntimeException e) {
+                try {
+                    discard();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            } finally {
+                out = null;
+            }
+            byteCount += footer.length;
+            OffsetDateTime lastModified = manifest == null ? OffsetDateTime.now() : publish();
+            if (lastModified != null) {
+                log.debug("Wrote {} urls, {} bytes to {}", urlCount, byteCount, file);
+            } else {
+                log.debug("{} is unchanged", file);
+                lastModified = manifest.get(file.getFileName().toString()).getLastModifiedDate();
+            }
+            filenames.add(file.getFileName().toString());
+            index.getSitemapReferences().add(new SitemapReference()
+                    .setLocation(UrlUtil.resolve(sitemapDirectoryUrl, file.getFileName().toString()))
+                    .setLastModifiedDate(lastModified));
+        }
+
+        /**
+         * Moves the spooled file into place if its content changed
+         * @return the date the content changed, or null if it is unchanged
+         */
+        private OffsetDateTime publish() throws IOException {
+            String name = file.getFileName().toString();
+            String hash = ChecksumOutputStream.hex(digest.digest());
+            SitemapManifest.Entry previous = manifest.get(name);
+            try {
+                Compression fileCompression = SitemapFiles.compression(useGzip, compression);
+                if (previous != null && previous.getHash().equals(hash)
+                        && SitemapFiles.outputsExist(file, fileCompression, writeUncompressedCopy, checksumAlgorithm)) {
+                    return null;
+                }
+                if (fileCompression == null && checksumAlgorithm == null) {
+                    Files.move(spool, file, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    boolean copied = false;
+                    try {
+                        try (OutputStream os = SitemapFiles.newOutputStream(file, fileCompression, writeUncompressedCopy, checksumAlgorithm)) {
+                            Files.copy(spool, os);
+                        }
+                        copied = true;
+                    } finally {
+                        if (!copied) {
+                            SitemapFiles.deleteIfExists(file, fileCompression, writeUncompressedCopy, checksumAlgorithm);
+                        }
+                    }
+                }
+                OffsetDateTime now = OffsetDateTime.now();
+                manifest.put(SitemapFiles.outputs(file, fileCompression, writeUncompressedCopy, checksumAlgorithm), hash, now);
+                return now;
+            } finally {
+                Files.deleteIfExists(spool);
+                spool = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            urlWriter.close();
+            if (out == null) {
+                return;
+            }
+            if (complete) {
+                finish();
+                return;
+            }
+            //A partial file isn't finished: it would be served as a valid sitemap, or recorded as unchanged by the next
+            //incremental write
+            OutputStream os = out;
+            out = null;
+            try {
+                os.close();
+            } finally {
+                discard();
+            }
+        }
+
+        /**
+         * Deletes the file being written along with its uncompressed copy and checksums, or its spool in incremental mode
+         */
+        private void discard() throws IOException {
+            if (spool != null) {
+                Files.deleteIfExists(spool);
+                spool = null;
+            } else {
+                SitemapFiles.deleteIfExists(file, SitemapFiles.compression(useGzip, compression), writeUncompressedCopy, checksumAlgorithm);
+            }
+        }
+    }
+}
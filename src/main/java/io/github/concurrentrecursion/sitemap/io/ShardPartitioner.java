@@ -0,0 +1,377 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.exception.DataSerializationException;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.SitemapReference;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.util.UrlUtil;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Assigns urls to the urlset files of an {@link IndexSitemap} by a key computed from each url, instead of by the
+ * position of the url in the stream.<br>
+ * The urls with the same key are written to {@code <filenamePrefix>-<key>.xml}, sorted by location. Adding or removing
+ * a url only changes the file of its key, so the other files stay byte for byte the same, which lets
+ * {@link ParallelSitemapWriter#setIncremental(boolean) incremental} writes and CDN caches skip them.<br>
+ * When the urls of a key would exceed the maximum number of urls, news urls or the maximum file size, the key overflows into
+ * {@code <filenamePrefix>-<key>.2.xml}, {@code <filenamePrefix>-<key>.3.xml}, ... The urls are split between these parts
+ * by a consistent hash of their location rather than by their position, so adding a url only changes its own part, unless
+ * the key needs more parts than before. A part can be empty, in which case it has no file. The limits default to 45,000
+ * urls and 45MB, so a file is split before it reaches the 50,000 url and 50MB limits of the sitemap protocol.
+ */
+@Data
+@Accessors(chain = true)
+public class ShardPartitioner {
+    private static final int MAX_URLS = 50_000;
+    private static final long MAX_FILESIZE = 50L * 1024L * 1024L;// 50MB in bytes
+    private static final int MAX_SITEMAPS = 50_000;
+    private static final int MAX_NEWS = 1_000;
+    private static final Comparator<Located> LOCATION_ORDER = Comparator.comparing(located -> located.location);
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Function<Url, String> keyFunction;
+    /**
+     * The prefix of the generated file names. Its default value is {@code sitemap}
+     * @param filenamePrefix the filename prefix
+     * @return the filename prefix
+     */
+    private String filenamePrefix = "sitemap";
+    /**
+     * Whether the files will be written with pretty print, which makes each url larger
+     * @param prettyPrint whether the files will be pretty printed
+     * @return whether the files will be pretty printed
+     */
+    private boolean prettyPrint = false;
+    /**
+     * The number of urls a file can have before its key overflows into another file
+     * @return the maximum number of urls per file
+     */
+    @Setter(AccessLevel.NONE)
+    private int maxUrls = 45_000;
+    /**
+     * The uncompressed size in bytes a file can have before its key overflows into another file
+     * @return the maximum file size
+     */
+    @Setter(AccessLevel.NONE)
+    private long maxFileSize = 45L * 1024L * 1024L;
+    /**
+     * The number of urls with news a file can have before its key overflows into another file
+     * @return the maximum number of news urls per file
+     */
+    @Setter(AccessLevel.NONE)
+    private int maxNews = MAX_NEWS;
+
+    private ShardPartitioner(Function<Url, String> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * Partitions urls by a consistent hash of their location into the given number of files, numbered from 1.<br>
+     * A jump consistent hash is used, so when the number of files is increased, only the urls that move to the new
+     * files change files.
+     * @param shards the number of files, at least 1
+     * @return the partitioner
+     */
+    public static ShardPartitioner byHash(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be at least 1");
+        }
+        return new ShardPartitioner(url -> String.valueOf(jumpHash(fingerprint(String.valueOf(url.getCompactLocation())), shards) + 1));
+    }
+
+    /**
+     * Partitions urls by the first segments of their path, so each section of a site has its own files. For example
+     * with a depth of 1, {@code https://example.com/blog/2024/post} is in {@code sitemap-blog.xml}. Urls with fewer
+     * segments are in {@code sitemap-root.xml}, or the file of the segments they have.
+     * @param depth the number of path segments in the key, at least 1
+     * @return the partitioner
+     */
+    public static ShardPartitioner byPathPrefix(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be at least 1");
+        }
+        return new ShardPartitioner(url -> pathPrefix(String.valueOf(url.getCompactLocation()), depth));
+    }
+
+    /**
+     * Partitions urls by a key of your own, such as a category. Characters other than letters, digits, {@code -} and
+     * {@code _} are replaced in the file names.
+     * @param keyFunction computes the key of a url, it must return the same key for the same url every time
+     * @return the partitioner
+     */
+    public static ShardPartitioner byKey(Function<Url, String> keyFunction) {
+        return new ShardPartitioner(Objects.requireNonNull(keyFunction, "keyFunction"));
+    }
+
+    /**
+     * Sets the number of urls a file can have before its key overflows into another file
+     * @param maxUrls the maximum number of urls, between 1 and 50,000
+     * @return this partitioner
+     */
+    public ShardPartitioner setMaxUrls(int maxUrls) {
+        if (maxUrls < 1 || maxUrls > MAX_URLS) {
+            throw new IllegalArgumentException("maxUrls must be between 1 and " + MAX_URLS);
+        }
+        this.maxUrls = maxUrls;
+        return this;
+    }
+
+    /**
+     * Sets the number of urls with news a file can have before its key overflows into another file
+     * @param maxNews the maximum number of news urls, between 1 and 1,000
+     * @return this partitioner
+     */
+    public ShardPartitioner setMaxNews(int maxNews) {
+        if (maxNews < 1 || maxNews > MAX_NEWS) {
+            throw new IllegalArgumentException("maxNews must be between 1 and " + MAX_NEWS);
+        }
+        this.maxNews = maxNews;
+        return this;
+    }
+
+    /**
+     * Sets the uncompressed size a file can have before its key overflows into another file
+     * @param maxFileSize the maximum size in bytes, no more than 50MB
+     * @return this partitioner
+     */
+    public ShardPartitioner setMaxFileSize(long maxFileSize) {
+        if (maxFileSize < 1 || maxFileSize > MAX_FILESIZE) {
+            throw new IllegalArgumentException("maxFileSize must be between 1 and " + MAX_FILESIZE);
+        }
+        this.maxFileSize = maxFileSize;
+        return this;
+    }
+
+    /**
+     * Creates a sitemap index with a urlset for each file. The file of each urlset is set to its name, and the
+     * references are sorted by key, then by part. Write it with {@link ParallelSitemapWriter#setKeepFilenames(boolean)} so the
+     * names are kept.
+     * @param sitemapDirectoryUrl the URL of the directory the sitemap files will be served from
+     * @param urls the urls, the stream is consumed but not closed
+     * @return the sitemap index
+     */
+    public IndexSitemap partition(URL sitemapDirectoryUrl, Stream<Url> urls) {
+        Sizer sizer = new Sizer();
+        Map<String, List<Located>> groups = new TreeMap<>();
+        urls.forEach(url -> {
+            Located located = new Located(url, sizer.size(url));
+            if (sizer.header + located.size + sizer.footer > maxFileSize) {
+                throw new DataSerializationException(String.format("Url %s is %d bytes and cannot fit in a sitemap file of %d bytes", located.location, located.size, maxFileSize));
+            }
+            groups.computeIfAbsent(filenameKey(keyFunction.apply(url)), key -> new ArrayList<>()).add(located);
+        });
+
+        IndexSitemap index = new IndexSitemap();
+        for (Map.Entry<String, List<Located>> group : groups.entrySet()) {
+            List<List<Located>> parts = split(group.getValue(), sizer);
+            for (int part = 0; part < parts.size(); part++) {
+                List<Located> located = parts.get(part);
+                if (located.isEmpty()) {
+                    continue;
+                }
+                located.sort(LOCATION_ORDER);
+                //filenameKey never produces a '.', so an overflow part can't have the name of another key
+                String filename = filenamePrefix + "-" + group.getKey() + (part == 0 ? "" : "." + (part + 1)) + ".xml";
+                UrlSetSitemap urlSet = addUrlSet(index, sitemapDirectoryUrl, filename);
+                for (Located url : located) {
+                    urlSet.getUrls().add(url.url);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Splits the urls of a key into the fewest parts that are within the limits, by a consistent hash of their location.
+     * Only the part of a url that is added or removed changes, unless the number of parts has to grow.
+     */
+    private List<List<Located>> split(List<Located> urls, Sizer sizer) {
+        long size = 0;
+        long news = 0;
+        for (Located url : urls) {
+            size += url.size;
+            news += url.news ? 1 : 0;
+        }
+        long minimum = Math.max(Math.max(ceilDiv(urls.size(), maxUrls), ceilDiv(news, maxNews)),
+                ceilDiv(size, maxFileSize - sizer.header - sizer.footer));
+        for (long count = Math.max(1, minimum); count <= MAX_SITEMAPS; count++) {
+            List<List<Located>> parts = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                parts.add(new ArrayList<>());
+            }
+            for (Located url : urls) {
+                parts.get(count == 1 ? 0 : jumpHash(url.partHash, (int) count)).add(url);
+            }
+            if (parts.stream().allMatch(part -> fits(part, sizer))) {
+                return parts;
+            }
+        }
+        throw new DataSerializationException("Maximum number of sitemaps in a sitemap index is " + MAX_SITEMAPS);
+    }
+
+    private boolean fits(List<Located> part, Sizer sizer) {
+        if (part.size() > maxUrls) {
+            return false;
+        }
+        long size = sizer.header + sizer.footer;
+        int news = 0;
+        for (Located url : part) {
+            size += url.size;
+            news += url.news ? 1 : 0;
+        }
+        return size <= maxFileSize && news <= maxNews;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return (x + y - 1) / y;
+    }
+
+    private static UrlSetSitemap addUrlSet(IndexSitemap index, URL sitemapDirectoryUrl, String filename) {
+        if (index.getSitemapReferences().size() >= MAX_SITEMAPS) {
+            throw new DataSerializationException("Maximum number of sitemaps in a sitemap index is " + MAX_SITEMAPS);
+        }
+        UrlSetSitemap urlSet = new UrlSetSitemap().setFile(Paths.get(filename));
+        index.getSitemapReferences().add(new SitemapReference()
+                .setSitemap(urlSet)
+                .setLocation(UrlUtil.resolve(sitemapDirectoryUrl, filename)));
+        return urlSet;
+    }
+
+    /**
+     * A url with what it is sorted and split by, so the location is only turned into a string and measured once per url
+     */
+    private static final class Located {
+        private final Url url;
+        private final String location;
+        private final long size;
+        private final boolean news;
+        private final long partHash;
+
+        Located(Url url, long size) {
+            this.url = url;
+            this.location = String.valueOf(url.getCompactLocation());
+            this.size = size;
+            this.news = url.getNews() != null;
+            //Mixed, so the parts don't follow the buckets of byHash, which hashes the same fingerprint
+            this.partHash = mix(fingerprint(location));
+        }
+    }
+
+    /**
+     * Measures the serialized size of each url with the same writer that {@link RollingSitemapWriter} uses
+     */
+    private class Sizer {
+        private final CountingOutputStream counter = new CountingOutputStream(OutputStream.nullOutputStream());
+        private final UrlSetXmlWriter urlWriter = new UrlSetXmlWriter(counter, prettyPrint);
+        private final long header;
+        private final long footer;
+
+        Sizer() {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (UrlSetXmlWriter xml = new UrlSetXmlWriter(buffer, prettyPrint)) {
+                xml.writeStartUrlSet();
+                xml.flush();
+                header = buffer.size();
+                xml.writeEndUrlSet();
+                footer = buffer.size() - header;
+            }
+        }
+
+        long size(Url url) {
+            long before = counter.getCount();
+            urlWriter.writeUrl(url);
+            urlWriter.flush();
+            return counter.getCount() - before;
+        }
+    }
+
+    private static String pathPrefix(String location, int depth) {
+        String path = URI.create(location).getRawPath();
+        StringBuilder key = new StringBuilder();
+        int segments = 0;
+        for (String segment : path == null ? new String[0] : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segments++ == depth) {
+                break;
+            }
+            if (key.length() > 0) {
+                key.append('-');
+            }
+            key.append(segment);
+        }
+        return key.length() == 0 ? "root" : key.toString();
+    }
+
+    /**
+     * Makes a key safe to use in a file name
+     */
+    private static String filenameKey(String key) {
+        if (key == null || key.isEmpty()) {
+            return "root";
+        }
+        StringBuilder sb = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+            sb.append(safe ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 64-bit FNV-1a hash, so the assignment doesn't depend on {@link String#hashCode()}
+     */
+    private static long fingerprint(String s) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The finalizer of SplitMix64
+     */
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Jump consistent hash by Lamping and Veach
+     */
+    private static int jumpHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
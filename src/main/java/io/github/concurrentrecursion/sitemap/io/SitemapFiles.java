@@ -0,0 +1,166 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File handling shared by the sitemap writers
+ */
+final class SitemapFiles {
+
+    private SitemapFiles() {
+    }
+
+    /**
+     * Appends {@code .gz} to the file name when gzip is used and the file doesn't already have a gzip extension
+     * @param file the file
+     * @param gzip whether the file will be gzip compressed
+     * @return the file to write
+     */
+    static Path withGzipExtension(Path file, boolean gzip) {
+        String filename = file.getFileName().toString();
+        if (gzip && !(filename.endsWith(".gz") || filename.endsWith(".gzip"))) {
+            return file.resolveSibling(filename + ".gz");
+        }
+        return file;
+    }
+
+    /**
+     * Gets the compression to use for a file
+     * @param gzip whether the file is gzip compressed
+     * @param compression the configured compression, or null for the default
+     * @return the compression, or null if the file isn't compressed
+     */
+    static Compression compression(boolean gzip, Compression compression) {
+        if (!gzip) {
+            return null;
+        }
+        return compression == null ? Compression.gzip() : compression;
+    }
+
+    /**
+     * Gets the uncompressed copy of a gzip file, which is the file without its gzip extension
+     * @param file the gzip file
+     * @return the uncompressed file
+     */
+    static Path uncompressedCopy(Path file) {
+        String filename = file.getFileName().toString();
+        int extension = filename.endsWith(".gz") ? 3 : filename.endsWith(".gzip") ? 5 : 0;
+        if (extension == 0) {
+            throw new IllegalArgumentException(file + " doesn't have a gzip extension");
+        }
+        return file.resolveSibling(filename.substring(0, filename.length() - extension));
+    }
+
+    /**
+     * Opens a buffered output stream to the given file. When the file is compressed, the uncompressed data is buffered
+     * before the deflater and the compressed data is buffered by the deflater, so the file is written in large blocks.
+     * @param path the file to write
+     * @param compression how the file is compressed, or null for no compression
+     * @return the output stream
+     * @throws IOException in case of any I/O failure
+     */
+    static OutputStream newOutputStream(Path path, Compression compression) throws IOException {
+        return newOutputStream(path, compression, false, null);
+    }
+
+    /**
+     * Opens a buffered output stream to the given file.<br>
+     * When the file is compressed and an uncompressed copy is wanted, the data is serialized once and written to both
+     * the gzip file and the uncompressed copy next to it. When a checksum algorithm is given, a checksum sidecar is
+     * written for each file when the stream is closed.
+     * @param path the file to write
+     * @param compression how the file is compressed, or null for no compression
+     * @param uncompressedCopy whether to also write the uncompressed file when the file is compressed
+     * @param checksumAlgorithm the {@link java.security.MessageDigest} algorithm of the checksum sidecars, or null for none
+     * @return the output stream
+     * @throws IOException in case of any I/O failure
+     * @throws IllegalArgumentException if the checksum algorithm isn't supported
+     */
+    static OutputStream newOutputStream(Path path, Compression compression, boolean uncompressedCopy, String checksumAlgorithm) throws IOException {
+        if (checksumAlgorithm != null) {
+            ChecksumOutputStream.messageDigest(checksumAlgorithm);
+        }
+        OutputStream file = open(path, checksumAlgorithm);
+        if (compression == null) {
+            return new BufferedOutputStream(file, Compression.DEFAULT_BUFFER_SIZE);
+        }
+        OutputStream gzip;
+        try {
+            gzip = compression.newOutputStream(file);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+        if (!uncompressedCopy) {
+            return new BufferedOutputStream(gzip, compression.getBufferSize());
+        }
+        OutputStream copy;
+        try {
+            copy = open(uncompressedCopy(path), checksumAlgorithm);
+        } catch (IOException | RuntimeException e) {
+            gzip.close();
+            throw e;
+        }
+        return new BufferedOutputStream(new TeeOutputStream(gzip, copy), compression.getBufferSize());
+    }
+
+    private static OutputStream open(Path path, String checksumAlgorithm) throws IOException {
+        OutputStream file = Files.newOutputStream(path);
+        return checksumAlgorithm == null ? file : new ChecksumOutputStream(file, path, checksumAlgorithm);
+    }
+
+    /**
+     * Lists the files written by {@link #newOutputStream(Path, Compression, boolean, String)}: the file itself, its
+     * uncompressed copy and their checksum sidecars
+     * @param path the file
+     * @param compression how the file is compressed, or null if it isn't
+     * @param uncompressedCopy whether the uncompressed copy is written
+     * @param checksumAlgorithm the algorithm of the checksum sidecars, or null if there are none
+     * @return the files, starting with the file itself
+     */
+    static List<Path> outputs(Path path, Compression compression, boolean uncompressedCopy, String checksumAlgorithm) {
+        List<Path> files = new ArrayList<>(4);
+        files.add(path);
+        if (compression != null && uncompressedCopy) {
+            files.add(uncompressedCopy(path));
+        }
+        if (checksumAlgorithm != null) {
+            for (int i = 0, written = files.size(); i < written; i++) {
+                files.add(ChecksumOutputStream.sidecar(files.get(i), checksumAlgorithm));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Checks that every file written by {@link #newOutputStream(Path, Compression, boolean, String)} exists
+     * @param path the file
+     * @param compression how the file is compressed, or null if it isn't
+     * @param uncompressedCopy whether the uncompressed copy is written
+     * @param checksumAlgorithm the algorithm of the checksum sidecars, or null if there are none
+     * @return true if every file exists
+     */
+    static boolean outputsExist(Path path, Compression compression, boolean uncompressedCopy, String checksumAlgorithm) {
+        return outputs(path, compression, uncompressedCopy, checksumAlgorithm).stream().allMatch(Files::exists);
+    }
+
+    /**
+     * Deletes every file written by {@link #newOutputStream(Path, Compression, boolean, String)}
+     * @param path the file
+     * @param compression how the file was compressed, or null if it wasn't
+     * @param uncompressedCopy whether the uncompressed copy was written
+     * @param checksumAlgorithm the algorithm of the checksum sidecars, or null if there are none
+     * @throws IOException if a file can't be deleted
+     */
+    static void deleteIfExists(Path path, Compression compression, boolean uncompressedCopy, String checksumAlgorithm) throws IOException {
+        for (Path file : outputs(path, compression, uncompressedCopy, checksumAlgorithm)) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
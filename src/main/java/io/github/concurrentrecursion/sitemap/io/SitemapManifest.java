@@ -0,0 +1,162 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The content hash and last modified date of each urlset file written by an incremental {@link RollingSitemapWriter}
+ * or {@link ParallelSitemapWriter}.<br>
+ * It is saved as a properties file next to the sitemap index, each key is a file name and each value is the hash of
+ * the uncompressed xml followed by the date the content last changed and the names of the other files written with it,
+ * such as its uncompressed copy and checksum sidecars, separated by {@code /}.
+ */
+final class SitemapManifest {
+    /**
+     * The digest algorithm of the content hashes
+     */
+    static final String HASH_ALGORITHM = "SHA-256";
+
+    private final Path file;
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    private SitemapManifest(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads a manifest, a missing or unreadable manifest is empty, so every file is written again
+     * @param file the manifest file
+     * @return the manifest
+     * @throws IOException if the file exists but can't be read
+     */
+    static SitemapManifest load(Path file) throws IOException {
+        SitemapManifest manifest = new SitemapManifest(file);
+        if (!Files.exists(file)) {
+            return manifest;
+        }
+        Properties properties = new Properties();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        for (String name : properties.stringPropertyNames()) {
+            String[] value = properties.getProperty(name).split(" ", 3);
+            if (value.length < 2) {
+                continue;
+            }
+            List<String> files = value.length == 3 ? List.of(value[2].split("/")) : List.of();
+            try {
+                manifest.entries.put(name, new Entry(value[0], OffsetDateTime.parse(value[1]), files));
+            } catch (DateTimeParseException e) {
+                //The file is written again
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Gets the entry of a urlset file
+     * @param name the file name
+     * @return the entry, or null if the file isn't in the manifest
+     */
+    Entry get(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Sets the entry of a urlset file
+     * @param outputs every file written for the urlset, as listed by {@link SitemapFiles#outputs}, starting with the
+     *                urlset file itself
+     * @param hash the hash of the content
+     * @param lastModifiedDate the date the content last changed
+     */
+    void put(List<Path> outputs, String hash, OffsetDateTime lastModifiedDate) {
+        List<String> files = new ArrayList<>(outputs.size() - 1);
+        for (Path output : outputs.subList(1, outputs.size())) {
+            files.add(output.getFileName().toString());
+        }
+        entries.put(outputs.get(0).getFileName().toString(), new Entry(hash, lastModifiedDate, files));
+    }
+
+    /**
+     * Removes the urlset files of a previous write that weren't written this time, such as when there are fewer urls,
+     * from the manifest and deletes them along with every other file that was written with them
+     * @param current the names of the urlset files written this time
+     * @return the files that were deleted
+     * @throws IOException if a file can't be deleted
+     */
+    List<Path> removeStale(Set<String> current) throws IOException {
+        List<Path> removed = new ArrayList<>();
+        for (Iterator<Map.Entry<String, Entry>> stale = entries.entrySet().iterator(); stale.hasNext(); ) {
+            Map.Entry<String, Entry> entry = stale.next();
+            if (current.contains(entry.getKey())) {
+                continue;
+            }
+            stale.remove();
+            List<String> names = new ArrayList<>(entry.getValue().getFiles());
+            names.add(0, entry.getKey());
+            for (String name : names) {
+                Path path = file.resolveSibling(name);
+                if (Files.deleteIfExists(path)) {
+                    removed.add(path);
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Saves the manifest, replacing the file only once the new one has been written
+     * @throws IOException in case of any I/O failure
+     */
+    void save() throws IOException {
+        Properties properties = new Properties();
+        entries.forEach((name, entry) -> properties.setProperty(name, entry.getHash() + " " + entry.getLastModifiedDate()
+                + (entry.getFiles().isEmpty() ? "" : " " + String.join("/", entry.getFiles()))));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Content hashes of the sitemap files");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * The content hash and last modified date of a file, and the other files written with it
+     */
+    static final class Entry {
+        private final String hash;
+        private final OffsetDateTime lastModifiedDate;
+        private final List<String> files;
+
+        Entry(String hash, OffsetDateTime lastModifiedDate, List<String> files) {
+            this.hash = hash;
+            this.lastModifiedDate = lastModifiedDate;
+            this.files = files;
+        }
+
+        String getHash() {
+            return hash;
+        }
+
+        OffsetDateTime getLastModifiedDate() {
+            return lastModifiedDate;
+        }
+
+        List<String> getFiles() {
+            return files;
+        }
+    }
+}
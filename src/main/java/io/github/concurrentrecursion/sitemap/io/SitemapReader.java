@@ -4,16 +4,21 @@ import io.github.concurrentrecursion.exception.DataAccessException;
 import io.github.concurrentrecursion.robots.RobotsTxtReader;
 import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
 import io.github.concurrentrecursion.sitemap.model.Sitemap;
+import io.github.concurrentrecursion.sitemap.model.SitemapReference;
+import io.github.concurrentrecursion.sitemap.model.Url;
 import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Unmarshaller;
+import lombok.AccessLevel;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.xml.transform.stream.StreamSource;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
@@ -25,8 +30,25 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
 
 /**
  * The SitemapReader class implements the Reader interface and provides methods for reading sitemap files.
@@ -37,9 +59,68 @@ import java.util.stream.Collectors;
 @Accessors(chain = true)
 public class SitemapReader implements Reader {
     private static final JAXBContext JAXB_CONTEXT;
+    private static final JaxbPool JAXB_POOL;
 
-    private Duration connectionTimeout = Duration.ofSeconds(5);
-    private Duration readTimeout = Duration.ofSeconds(5);
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+
+    /**
+     * The maximum time to wait to establish a connection. Its default value is 5 seconds
+     * @return the connection timeout
+     */
+    @Setter(AccessLevel.NONE)
+    private Duration connectionTimeout = DEFAULT_TIMEOUT;
+    /**
+     * The maximum time to wait for a response. Its default value is 5 seconds
+     * @param readTimeout the read timeout
+     * @return the read timeout
+     */
+    private Duration readTimeout = DEFAULT_TIMEOUT;
+    /**
+     * The executor the HttpClient uses for asynchronous and dependent tasks. When null the client's default executor is used
+     * @return the executor
+     */
+    @Setter(AccessLevel.NONE)
+    private Executor executor;
+    /**
+     * The preferred HTTP version. Its default value is {@link HttpClient.Version#HTTP_2}, which falls back to HTTP/1.1
+     * when the server doesn't support it
+     * @return the HTTP version
+     */
+    @Setter(AccessLevel.NONE)
+    private HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+    /**
+     * Whether redirects are followed. Its default value is {@link HttpClient.Redirect#NORMAL}
+     * @return the redirect policy
+     */
+    @Setter(AccessLevel.NONE)
+    private HttpClient.Redirect redirectPolicy = HttpClient.Redirect.NORMAL;
+
+    /**
+     * An optional cache of the sitemaps that have been read. When set, unchanged sitemaps are read from the cache
+     * instead of being downloaded again.
+     * @param httpCache the http cache
+     * @return the http cache
+     */
+    private HttpCache httpCache;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile HttpClient httpClient;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean providedHttpClient;
+
+    private static final ThreadFactory READER_THREADS = new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "sitemap-reader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
 
     static {
         try {
@@ -47,20 +128,180 @@ public class SitemapReader implements Reader {
         } catch (JAXBException e) {
             throw new DataAccessException(e);
         }
+        JAXB_POOL = new JaxbPool(JAXB_CONTEXT);
+    }
+
+    /**
+     * Creates a reader with the default timeouts, whose HttpClient is created on first use
+     */
+    public SitemapReader(){
+    }
+
+    /**
+     * Creates a reader, any null argument uses its default value
+     * @param connectionTimeout the connection timeout, ignored when an httpClient is given
+     * @param readTimeout the read timeout
+     * @param httpClient the client used for every request, when null one is created from the other settings
+     * @param executor the executor of the created client, ignored when an httpClient is given
+     * @param httpVersion the HTTP version of the created client, ignored when an httpClient is given
+     * @param redirectPolicy the redirect policy of the created client, ignored when an httpClient is given
+     * @param httpCache the cache of responses, or null to not cache
+     */
+    @Builder
+    private SitemapReader(Duration connectionTimeout, Duration readTimeout, HttpClient httpClient, Executor executor,
+                          HttpClient.Version httpVersion, HttpClient.Redirect redirectPolicy, HttpCache httpCache) {
+        this.httpCache = httpCache;
+        this.connectionTimeout = connectionTimeout == null ? DEFAULT_TIMEOUT : connectionTimeout;
+        this.readTimeout = readTimeout == null ? DEFAULT_TIMEOUT : readTimeout;
+        this.executor = executor;
+        this.httpVersion = httpVersion == null ? HttpClient.Version.HTTP_2 : httpVersion;
+        this.redirectPolicy = redirectPolicy == null ? HttpClient.Redirect.NORMAL : redirectPolicy;
+        setHttpClient(httpClient);
+    }
+
+    @Override
+    public SitemapReader setConnectionTimeout(Duration connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+        resetHttpClient();
+        return this;
+    }
+
+    /**
+     * Sets the executor the HttpClient uses for asynchronous and dependent tasks
+     * @param executor the executor, or null to use the client's default
+     * @return this reader
+     */
+    public SitemapReader setExecutor(Executor executor) {
+        this.executor = executor;
+        resetHttpClient();
+        return this;
+    }
+
+    /**
+     * Sets the preferred HTTP version
+     * @param httpVersion the HTTP version
+     * @return this reader
+     */
+    public SitemapReader setHttpVersion(HttpClient.Version httpVersion) {
+        this.httpVersion = httpVersion;
+        resetHttpClient();
+        return this;
+    }
+
+    /**
+     * Sets whether redirects are followed
+     * @param redirectPolicy the redirect policy
+     * @return this reader
+     */
+    public SitemapReader setRedirectPolicy(HttpClient.Redirect redirectPolicy) {
+        this.redirectPolicy = redirectPolicy;
+        resetHttpClient();
+        return this;
+    }
+
+    /**
+     * Sets the client used for every request. A client that is set here is used as is, the connection timeout, executor,
+     * HTTP version and redirect policy of this reader don't apply to it.
+     * @param httpClient the client, or null to have one created from this reader's settings
+     * @return this reader
+     */
+    public SitemapReader setHttpClient(HttpClient httpClient) {
+        this.httpClient = httpClient;
+        this.providedHttpClient = httpClient != null;
+        return this;
+    }
+
+    /**
+     * Gets the client used for every request. Unless one was set, it is created on first use and reused for the life
+     * of this reader, so connections, HTTP/2 streams and TLS sessions are shared between requests.
+     * @return the http client
+     */
+    public HttpClient getHttpClient() {
+        HttpClient client = httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = httpClient;
+                if (client == null) {
+                    HttpClient.Builder builder = HttpClient.newBuilder()
+                            .followRedirects(redirectPolicy)
+                            .version(httpVersion)
+                            .connectTimeout(connectionTimeout);
+                    if (executor != null) {
+                        builder.executor(executor);
+                    }
+                    client = builder.build();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private synchronized void resetHttpClient() {
+        if (!providedHttpClient) {
+            httpClient = null;
+        }
+    }
+
+    private HttpCache.Response fetch(URL url) throws IOException, URISyntaxException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(url.toURI()).timeout(readTimeout)
+                .header("User-Agent", "SitemapReader")
+                .header("Accept-Encoding", "gzip");
+        if(httpCache != null){
+            return httpCache.send(getHttpClient(), request);
+        }
+        HttpResponse<InputStream> response = getHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        return new HttpCache.Response(response.statusCode(), false, response.headers().firstValue("Content-Encoding").orElse(null), response.body());
+    }
+
+    private InputStream openStream(URL url) throws IOException, URISyntaxException, InterruptedException {
+        return decode(fetch(url));
     }
 
-    private HttpResponse<InputStream> getConnection(URL url) throws IOException, URISyntaxException, InterruptedException {
-        HttpClient httpClient = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).connectTimeout(connectionTimeout).build();
-        HttpRequest request = HttpRequest.newBuilder(url.toURI()).timeout(readTimeout).header("User-Agent", "SitemapReader").build();
-        return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    /**
+     * Opens the body of the response, decompressing it if it was sent with {@code Content-Encoding: gzip} or is a gzip file
+     */
+    private static InputStream decode(HttpCache.Response response) throws IOException {
+        boolean gzipEncoded = response.getContentEncoding() != null && response.getContentEncoding().toLowerCase(Locale.ROOT).contains("gzip");
+        InputStream body = response.getBody();
+        try {
+            return gzipEncoded ? new GZIPInputStream(body, BUFFER_SIZE) : decode(body);
+        }catch (IOException e){
+            body.close();
+            throw e;
+        }
     }
 
+    /**
+     * Wraps the stream in a GZIPInputStream if it starts with the gzip magic number. This covers .xml.gz files, which
+     * are served without a Content-Encoding, as well as local files and streams.
+     */
+    private static InputStream decode(InputStream inputStream) throws IOException {
+        InputStream buffered = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if(first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8)){
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        return buffered;
+    }
 
+    private static InputStream decodeOrThrow(InputStream inputStream){
+        try {
+            return decode(inputStream);
+        }catch (IOException e){
+            throw new DataAccessException(e);
+        }
+    }
 
     private Sitemap unmarshal(final InputStream inputStream){
         try {
-            Unmarshaller unmarshaller = JAXB_CONTEXT.createUnmarshaller();
-            return (Sitemap) unmarshaller.unmarshal(new StreamSource(inputStream));
+            Unmarshaller unmarshaller = JAXB_POOL.borrowUnmarshaller();
+            Sitemap sitemap = (Sitemap) unmarshaller.unmarshal(new StreamSource(decodeOrThrow(inputStream)));
+            JAXB_POOL.release(unmarshaller);
+            return sitemap;
         }catch (JAXBException e){
             throw new DataAccessException(e);
         }
@@ -68,17 +309,21 @@ public class SitemapReader implements Reader {
 
     private <T> T unmarshal(final InputStream inputStream, final Class<T> clazz){
         try {
-            Unmarshaller unmarshaller = JAXB_CONTEXT.createUnmarshaller();
-            return unmarshaller.unmarshal(new StreamSource(inputStream), clazz).getValue();
+            Unmarshaller unmarshaller = JAXB_POOL.borrowUnmarshaller();
+            T sitemap = unmarshaller.unmarshal(new StreamSource(decodeOrThrow(inputStream)), clazz).getValue();
+            JAXB_POOL.release(unmarshaller);
+            return sitemap;
         }catch (JAXBException e){
             throw new DataAccessException(e);
         }
     }
     private <T> T unmarshal(URL url, Class<T> clazz){
         try {
-            Unmarshaller unmarshaller = JAXB_CONTEXT.createUnmarshaller();
-            try (InputStream inputStream = getConnection(url).body()) {
-                return unmarshaller.unmarshal(new StreamSource(inputStream), clazz).getValue();
+            Unmarshaller unmarshaller = JAXB_POOL.borrowUnmarshaller();
+            try (InputStream inputStream = openStream(url)) {
+                T sitemap = unmarshaller.unmarshal(new StreamSource(inputStream), clazz).getValue();
+                JAXB_POOL.release(unmarshaller);
+                return sitemap;
             }
         }catch (IOException | JAXBException | URISyntaxException e){
             throw new DataAccessException(e);
@@ -90,9 +335,11 @@ public class SitemapReader implements Reader {
 
     private Sitemap unmarshal(URL url){
         try {
-            Unmarshaller unmarshaller = JAXB_CONTEXT.createUnmarshaller();
-            try (InputStream inputStream = getConnection(url).body()) {
-                return (Sitemap) unmarshaller.unmarshal(new StreamSource(inputStream));
+            Unmarshaller unmarshaller = JAXB_POOL.borrowUnmarshaller();
+            try (InputStream inputStream = openStream(url)) {
+                Sitemap sitemap = (Sitemap) unmarshaller.unmarshal(new StreamSource(inputStream));
+                JAXB_POOL.release(unmarshaller);
+                return sitemap;
             }
         }catch (IOException | JAXBException | URISyntaxException e){
             throw new DataAccessException(e);
@@ -122,6 +369,33 @@ public class SitemapReader implements Reader {
         return unmarshal(inputStream);
     }
 
+    /**
+     * Reads the sitemap at the URL unless it hasn't changed since it was last read through the {@link #getHttpCache() http cache}.<br>
+     * Without an http cache this is the same as {@link #read(URL)}.
+     * @param url The URL of the sitemap file.
+     * @return The sitemap, or empty if the server responded with 304 Not Modified
+     */
+    public Optional<Sitemap> readIfModified(final URL url) {
+        try {
+            HttpCache.Response response = fetch(url);
+            if(response.isNotModified()){
+                response.getBody().close();
+                return Optional.empty();
+            }
+            Unmarshaller unmarshaller = JAXB_POOL.borrowUnmarshaller();
+            try (InputStream inputStream = decode(response)) {
+                Sitemap sitemap = (Sitemap) unmarshaller.unmarshal(new StreamSource(inputStream));
+                JAXB_POOL.release(unmarshaller);
+                return Optional.of(sitemap);
+            }
+        }catch (IOException | JAXBException | URISyntaxException e){
+            throw new DataAccessException(e);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new DataAccessException(e);
+        }
+    }
+
     @Override
     public UrlSetSitemap readUrlSet(final URL url) {
         return unmarshal(url, UrlSetSitemap.class);
@@ -132,8 +406,74 @@ public class SitemapReader implements Reader {
         return unmarshal(inputStream, UrlSetSitemap.class);
     }
 
+    @Override
+    public Stream<Url> streamUrls(final URL url) {
+        try {
+            return streamUrls(openStream(url));
+        }catch (IOException | URISyntaxException e){
+            throw new DataAccessException(e);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new DataAccessException(e);
+        }
+    }
+
+    @Override
+    public Stream<Url> streamUrls(InputStream inputStream) {
+        UrlStreamIterator urls = new UrlStreamIterator(decodeOrThrow(inputStream), JAXB_CONTEXT);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(urls, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        urls.close();
+                    } catch (IOException e) {
+                        throw new DataAccessException(e);
+                    }
+                });
+    }
+
     @Override
     public List<UrlSetSitemap> readUrlSets(IndexSitemap index) {
         return index.getSitemapReferences().stream().map(ref -> readUrlSet(ref.getLocation())).collect(Collectors.toList());
     }
+
+    @Override
+    public List<UrlSetResult> readUrlSets(IndexSitemap index, int maxConcurrentRequests, boolean preserveOrder) {
+        if(maxConcurrentRequests < 1){
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        }
+        List<SitemapReference> references = index.getSitemapReferences();
+        List<UrlSetResult> results = new ArrayList<>(references.size());
+        if(references.isEmpty()){
+            return results;
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(maxConcurrentRequests, references.size()), READER_THREADS);
+        try {
+            CompletionService<UrlSetResult> completionService = new ExecutorCompletionService<>(executorService);
+            List<Future<UrlSetResult>> futures = new ArrayList<>(references.size());
+            for (SitemapReference reference : references) {
+                futures.add(completionService.submit(() -> readUrlSetResult(reference)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Future<UrlSetResult> future = preserveOrder ? futures.get(i) : completionService.take();
+                results.add(future.get());
+            }
+            return results;
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new DataAccessException(e);
+        }catch (ExecutionException e){
+            throw new DataAccessException(e.getCause());
+        }finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private UrlSetResult readUrlSetResult(SitemapReference reference){
+        try {
+            return UrlSetResult.success(reference, readUrlSet(reference.getLocation()));
+        }catch (RuntimeException e){
+            log.warn("Exception reading sitemap {}", reference.getLocation(), e);
+            return UrlSetResult.failure(reference, e);
+        }
+    }
 }
@@ -4,17 +4,17 @@ import io.github.concurrentrecursion.exception.DataSerializationException;
 import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
 import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
 import io.github.concurrentrecursion.sitemap.model.validation.WriteValidation;
+import io.github.concurrentrecursion.sitemap.model.validation.WriteValidationChecker;
 import io.github.concurrentrecursion.sitemap.util.UrlUtil;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import jakarta.validation.ValidatorFactory;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Marshaller;
-import lombok.AccessLevel;
 import lombok.Data;
-import lombok.Getter;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 
@@ -26,8 +26,10 @@ import java.io.StringWriter;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.Set;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * The SitemapGenerator class is responsible for generating sitemap files and configuring various settings.
@@ -38,8 +40,7 @@ import java.util.zip.GZIPOutputStream;
 public class SitemapWriter implements Writer {
     private static final long MAX_FILESIZE = 50L * 1024L * 1024L;// 50MB in bytes
     private static final JAXBContext JAXB_CONTEXT;
-    @Getter(AccessLevel.NONE)
-    private final ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
+    private static final JaxbPool JAXB_POOL;
 
     /**
      * The base URL of the website
@@ -53,6 +54,14 @@ public class SitemapWriter implements Writer {
      * @return true if pretty print is enabled, otherwise false
      */
     private boolean prettyPrint = false;
+    /**
+     * Whether every sitemap is validated with Bean Validation. By default a urlset is checked with
+     * {@link WriteValidationChecker}, and Bean Validation only runs to find the violations when the check fails.
+     * Strict validation also applies constraints added to the model some other way, such as a constraint mapping file.
+     * @param strictValidation true to always use Bean Validation
+     * @return whether Bean Validation is always used
+     */
+    private boolean strictValidation = false;
     /**
      * Specifies whether to use Gzip compression in the application.
      *
@@ -74,6 +83,26 @@ public class SitemapWriter implements Writer {
      * @return useGzip whether to use gzip
      */
     private boolean useGzip = false;
+    /**
+     * How the files are compressed when gzip is used. Defaults to {@link Compression#gzip()}
+     * @param compression the compression settings
+     * @return the compression settings
+     */
+    private Compression compression = Compression.gzip();
+    /**
+     * Whether an uncompressed copy of each gzip file is written next to it, from the same serialization. For example
+     * {@code sitemap-1.xml} is written along with {@code sitemap-1.xml.gz}. Only used when gzip is enabled
+     * @param writeUncompressedCopy whether to write the uncompressed copy
+     * @return whether to write the uncompressed copy
+     */
+    private boolean writeUncompressedCopy = false;
+    /**
+     * The {@link java.security.MessageDigest} algorithm, such as {@code SHA-256}, of the checksum file written next to
+     * each sitemap file, for example {@code sitemap-1.xml.gz.sha256}. No checksum files are written when it is null
+     * @param checksumAlgorithm the checksum algorithm
+     * @return the checksum algorithm
+     */
+    private String checksumAlgorithm;
     /**
      * The variable filenamePrefix represents the prefix of a file name.
      * Its default value is {@code sitemap}
@@ -89,6 +118,15 @@ public class SitemapWriter implements Writer {
         } catch (JAXBException e) {
             throw new DataSerializationException(e);
         }
+        JAXB_POOL = new JaxbPool(JAXB_CONTEXT);
+    }
+
+    /**
+     * The validator is thread safe, so one is shared by every writer instead of building a factory for each writer
+     */
+    static final class ValidatorHolder {
+        static final ValidatorFactory FACTORY = Validation.buildDefaultValidatorFactory();
+        static final Validator VALIDATOR = FACTORY.getValidator();
     }
 
     @Override
@@ -105,7 +143,8 @@ public class SitemapWriter implements Writer {
     @Override
     public void write(IndexSitemap index, Path file) throws IOException {
         validate(index);
-        try(OutputStream os = getOutputStream(file)){
+        //The index isn't named as a gzip file, so there is no uncompressed copy of it
+        try(OutputStream os = SitemapFiles.newOutputStream(file, effectiveCompression(), false, checksumAlgorithm)){
             marshal(index,os);
         }
     }
@@ -116,45 +155,33 @@ public class SitemapWriter implements Writer {
         validate(urlSet);
         try(StringWriter sw = new StringWriter()){
             marshal(urlSet, sw);
-            return sw.toString();
+            String xml = sw.toString();
+            long bytes = utf8Length(xml);
+            if(bytes > MAX_FILESIZE){
+                double megabytes = bytes / 1024d / 1024d;
+                throw new DataSerializationException(String.format("UrlSet is too big. File size is %.2fMB, Maximum file size is 50MB uncompressed",megabytes));
+            }
+            return xml;
         }catch (IOException e){
             throw new DataSerializationException(e);
         }
     }
 
     private void validate(IndexSitemap index){
-        Set<ConstraintViolation<IndexSitemap>> errors = validatorFactory.getValidator().validate(index, WriteValidation.class);
+        if(!strictValidation && WriteValidationChecker.isValid(index)){
+            return;
+        }
+        Set<ConstraintViolation<IndexSitemap>> errors = ValidatorHolder.VALIDATOR.validate(index, WriteValidation.class);
         if(!errors.isEmpty()){
             throw new ConstraintViolationException(errors);
         }
     }
 
     private void validate(UrlSetSitemap urlSet) {
-        Set<ConstraintViolation<UrlSetSitemap>> errors = validatorFactory.getValidator().validate(urlSet, WriteValidation.class);
-        Path tempFile = null;
-        try{
-            tempFile = Files.createTempFile("temp-urlset",".xml");
-
-            getMarshaller().marshal(urlSet, Files.newOutputStream(tempFile));
-            long bytes = Files.size(tempFile);
-            log.debug("Temp Validation File:{}, bytes:{}",tempFile.toFile().getAbsoluteFile(),bytes);
-            if(bytes > MAX_FILESIZE){
-                double megabytes = bytes / 1024d / 1024d;
-                throw new DataSerializationException(String.format("UrlSet is too big. File size is %.2fMB, Maximum file size is 50MB uncompressed",megabytes));
-            }
-        }catch (IOException|JAXBException e){
-            log.error("Exception writing temp file for filesize check {}",tempFile,e);
-        }finally {
-            if(tempFile != null){
-                try {
-                    Files.deleteIfExists(tempFile);
-                }catch (IOException e){
-                    log.error("Exception deleting temp file: {}",tempFile,e);
-                }
-            }
-
+        if(!strictValidation && WriteValidationChecker.isValid(urlSet)){
+            return;
         }
-
+        Set<ConstraintViolation<UrlSetSitemap>> errors = ValidatorHolder.VALIDATOR.validate(urlSet, WriteValidation.class);
         if(!errors.isEmpty()){
             throw new ConstraintViolationException(errors);
         }
@@ -163,13 +190,86 @@ public class SitemapWriter implements Writer {
     @Override
     public void write(UrlSetSitemap urlSet, Path file) throws IOException {
         validate(urlSet);
-        if(useGzip && !(file.getFileName().endsWith(".gz") || file.getFileName().endsWith(".gzip"))){
-            file = file.resolveSibling(file.getFileName() + ".gz");
+        file = SitemapFiles.withGzipExtension(file, useGzip);
+        urlSet.setFile(file);
+        boolean complete = false;
+        try {
+            try(OutputStream os = SitemapFiles.newOutputStream(file, effectiveCompression(), writeUncompressedCopy, checksumAlgorithm)){
+                marshalLimited(urlSet, os, file);
+            }
+            //Only complete once the stream is closed, as closing finishes the compression and writes the checksums
+            complete = true;
+        }finally {
+            if(!complete){
+                SitemapFiles.deleteIfExists(file, effectiveCompression(), writeUncompressedCopy, checksumAlgorithm);
+            }
         }
+    }
+
+    /**
+     * Writes a urlset like {@link #write(UrlSetSitemap, Path)}, unless its xml is the same as when it was last written.<br>
+     * The urlset is marshalled once, to a temporary file next to the file while it is hashed, and is only validated,
+     * compressed and moved into place when the hash changed. The hash is of the bytes that are written, so it changes
+     * with the settings that change them, such as pretty print.
+     * @param urlSet the urlset to write
+     * @param file the file to write to, {@code .gz} is added when gzip is used
+     * @param previousHash the hash of the xml when the file was last written, or null
+     * @return the hash of the xml, or null if it is the previous hash and every file of the urlset exists
+     * @throws IOException in case of any I/O failure
+     */
+    String writeIfChanged(UrlSetSitemap urlSet, Path file, String previousHash) throws IOException {
+        file = SitemapFiles.withGzipExtension(file, useGzip);
         urlSet.setFile(file);
-        try(OutputStream os = getOutputStream(file)){
-            marshal(urlSet,os);
+        Compression fileCompression = effectiveCompression();
+        Path spool = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + "-", ".tmp");
+        try {
+            MessageDigest digest = ChecksumOutputStream.messageDigest(SitemapManifest.HASH_ALGORITHM);
+            try(OutputStream os = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(spool), Compression.DEFAULT_BUFFER_SIZE), digest)){
+                marshalLimited(urlSet, os, spool);
+            }
+            String hash = ChecksumOutputStream.hex(digest.digest());
+            if(hash.equals(previousHash) && SitemapFiles.outputsExist(file, fileCompression, writeUncompressedCopy, checksumAlgorithm)){
+                return null;
+            }
+            validate(urlSet);
+            if(fileCompression == null && checksumAlgorithm == null){
+                Files.move(spool, file, StandardCopyOption.REPLACE_EXISTING);
+                return hash;
+            }
+            boolean complete = false;
+            try {
+                try(OutputStream os = SitemapFiles.newOutputStream(file, fileCompression, writeUncompressedCopy, checksumAlgorithm)){
+                    Files.copy(spool, os);
+                }
+                complete = true;
+            }finally {
+                if(!complete){
+                    SitemapFiles.deleteIfExists(file, fileCompression, writeUncompressedCopy, checksumAlgorithm);
+                }
+            }
+            return hash;
+        }finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    /**
+     * Marshals a urlset, failing once its uncompressed xml is bigger than a sitemap file is allowed to be
+     */
+    private void marshalLimited(UrlSetSitemap urlSet, OutputStream os, Path file){
+        //The file size limit applies to the uncompressed xml, so the bytes are counted before compression
+        CountingOutputStream counter = new CountingOutputStream(os, MAX_FILESIZE);
+        try {
+            Marshaller marshaller = JAXB_POOL.borrowMarshaller(prettyPrint);
+            marshaller.marshal(urlSet, counter);
+            JAXB_POOL.release(marshaller, prettyPrint);
+        }catch (JAXBException e){
+            if(counter.isLimitExceeded()){
+                throw new DataSerializationException("UrlSet is too big. Maximum file size is 50MB uncompressed");
+            }
+            throw new DataSerializationException(e);
         }
+        log.debug("Wrote {} bytes to {}",counter.getCount(),file);
     }
 
     @Override
@@ -200,27 +300,33 @@ public class SitemapWriter implements Writer {
         return this;
     }
 
-    private OutputStream getOutputStream(Path path) throws IOException {
-        if(getUseGzipCompression()){
-            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(Files.newOutputStream(path));
-            return new BufferedOutputStream(gzipOutputStream);
-        }else{
-            return new BufferedOutputStream(Files.newOutputStream(path));
-        }
+    Compression effectiveCompression() {
+        return SitemapFiles.compression(getUseGzipCompression(), compression);
     }
 
-    private Marshaller getMarshaller() throws JAXBException {
-        Marshaller marshaller = JAXB_CONTEXT.createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, prettyPrint);
-        marshaller.setProperty(Marshaller.JAXB_FRAGMENT,true);
-        marshaller.setProperty("org.glassfish.jaxb.xmlHeaders", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-        return marshaller;
+    private static long utf8Length(CharSequence chars){
+        long length = 0;
+        for(int i = 0; i < chars.length(); i++){
+            char c = chars.charAt(i);
+            if(c < 0x80){
+                length++;
+            }else if(c < 0x800){
+                length += 2;
+            }else if(Character.isHighSurrogate(c)){
+                length += 4;
+                i++;
+            }else{
+                length += 3;
+            }
+        }
+        return length;
     }
 
-
     private void marshal(Object obj, java.io.Writer writer){
         try {
-            getMarshaller().marshal(obj, writer);
+            Marshaller marshaller = JAXB_POOL.borrowMarshaller(prettyPrint);
+            marshaller.marshal(obj, writer);
+            JAXB_POOL.release(marshaller, prettyPrint);
         }catch (JAXBException e){
             throw new DataSerializationException(e);
         }
@@ -228,7 +334,9 @@ public class SitemapWriter implements Writer {
 
     private void marshal(Object obj, OutputStream os){
         try {
-            getMarshaller().marshal(obj, os);
+            Marshaller marshaller = JAXB_POOL.borrowMarshaller(prettyPrint);
+            marshaller.marshal(obj, os);
+            JAXB_POOL.release(marshaller, prettyPrint);
         }catch (JAXBException e){
             throw new DataSerializationException(e);
         }
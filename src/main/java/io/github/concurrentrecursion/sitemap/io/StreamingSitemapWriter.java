@@ -0,0 +1,161 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.exception.DataSerializationException;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a &lt;urlset&gt; sitemap from a {@link Stream} or {@link Iterator} of {@link Url}s.<br>
+ * Unlike {@link SitemapWriter}, the urls are never collected into a {@link io.github.concurrentrecursion.sitemap.model.UrlSetSitemap},
+ * each &lt;url&gt; element is written as soon as it is read from the source, so memory use stays flat regardless of
+ * how many urls are written.<br>
+ * No size limits are applied by this writer. The urls are only validated when an {@link #setInvalidUrlPolicy(InvalidUrlPolicy)
+ * invalid url policy} is set, each url is then validated just before it is written, and the news urls are counted as
+ * they are written, so a news url past the limit of 1,000 in a urlset is invalid.
+ */
+@Data
+@Accessors(chain = true)
+@Slf4j
+public class StreamingSitemapWriter {
+    private static final int MAX_NEWS = 1_000;
+
+    /**
+     * Whether the XML should be indented and have newlines
+     * @param prettyPrint true to use formatted human readable, false for smaller file size.
+     * @return true if pretty print is enabled, otherwise false
+     */
+    private boolean prettyPrint = false;
+    /**
+     * Whether the sitemap file should be compressed with gzip. When enabled, {@code .gz} is appended to the file name
+     * if it doesn't already have it.
+     * @param useGzip whether to use gzip
+     * @return whether to use gzip
+     */
+    private boolean useGzip = false;
+    /**
+     * How the files are compressed when gzip is used. Defaults to {@link Compression#gzip()}
+     * @param compression the compression settings
+     * @return the compression settings
+     */
+    private Compression compression = Compression.gzip();
+    /**
+     * Whether an uncompressed copy of each gzip file is written next to it, from the same serialization. For example
+     * {@code sitemap-1.xml} is written along with {@code sitemap-1.xml.gz}. Only used when gzip is enabled
+     * @param writeUncompressedCopy whether to write the uncompressed copy
+     * @return whether to write the uncompressed copy
+     */
+    private boolean writeUncompressedCopy = false;
+    /**
+     * The {@link java.security.MessageDigest} algorithm, such as {@code SHA-256}, of the checksum file written next to
+     * each sitemap file, for example {@code sitemap-1.xml.gz.sha256}. No checksum files are written when it is null
+     * @param checksumAlgorithm the checksum algorithm
+     * @return the checksum algorithm
+     */
+    private String checksumAlgorithm;
+    /**
+     * What is done with a url that doesn't pass the write validation constraints. The urls aren't validated when it is
+     * null, which is the default
+     * @param invalidUrlPolicy the policy for invalid urls
+     * @return the policy for invalid urls
+     */
+    private InvalidUrlPolicy invalidUrlPolicy;
+    /**
+     * Collects the invalid urls found while writing. When it is null the invalid urls are only logged
+     * @param validationErrors the collector of invalid urls
+     * @return the collector of invalid urls
+     */
+    private ValidationErrors validationErrors;
+
+    /**
+     * Writes the urls to the given file as a &lt;urlset&gt; sitemap.
+     *
+     * @param urls the urls to write, the stream is consumed but not closed
+     * @param file the file to write
+     * @return the path of the file that was written, which has {@code .gz} appended when gzip is enabled
+     * @throws IOException in case of any I/O failure
+     */
+    public Path write(Stream<Url> urls, Path file) throws IOException {
+        return write(urls.iterator(), file);
+    }
+
+    /**
+     * Writes the urls to the given file as a &lt;urlset&gt; sitemap.
+     *
+     * @param urls the urls to write
+     * @param file the file to write
+     * @return the path of the file that was written, which has {@code .gz} appended when gzip is enabled
+     * @throws IOException in case of any I/O failure
+     * @throws jakarta.validation.ConstraintViolationException if a url is invalid and the policy is
+     * {@link InvalidUrlPolicy#FAIL_FAST}, the partly written file is deleted
+     */
+    public Path write(Iterator<Url> urls, Path file) throws IOException {
+        file = SitemapFiles.withGzipExtension(file, useGzip);
+        Compression fileCompression = SitemapFiles.compression(useGzip, compression);
+        boolean complete = false;
+        try {
+            //Only complete once the stream is closed, as closing finishes the compression and writes the checksums
+            try (OutputStream os = SitemapFiles.newOutputStream(file, fileCompression, writeUncompressedCopy, checksumAlgorithm)) {
+                long count = write(urls, os);
+                log.debug("Wrote {} urls to {}", count, file);
+            }
+            complete = true;
+        } finally {
+            if (!complete) {
+                SitemapFiles.deleteIfExists(file, fileCompression, writeUncompressedCopy, checksumAlgorithm);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Writes the urls to the given output stream as an uncompressed &lt;urlset&gt; sitemap.
+     *
+     * @param urls the urls to write
+     * @param outputStream the stream to write to, it is flushed but not closed
+     * @return the number of urls written, which doesn't include skipped invalid urls
+     * @throws jakarta.validation.ConstraintViolationException if a url is invalid and the policy is
+     * {@link InvalidUrlPolicy#FAIL_FAST}
+     */
+    public long write(Iterator<Url> urls, OutputStream outputStream) {
+        //Everything goes into one urlset, so the news urls are limited as they are written
+        InlineValidator validator = new InlineValidator(invalidUrlPolicy, validationErrors, MAX_NEWS);
+        long count = 0;
+        try (UrlSetXmlWriter xml = new UrlSetXmlWriter(outputStream, prettyPrint)) {
+            xml.writeStartUrlSet();
+            while (urls.hasNext()) {
+                Url url = urls.next();
+                if (validator.accept(url)) {
+                    xml.writeUrl(url);
+                    count++;
+                }
+            }
+            xml.writeEndUrlSet();
+        }
+        return count;
+    }
+
+    /**
+     * Converts the urls to the string representation of a &lt;urlset&gt; sitemap.
+     *
+     * @param urls the urls to write
+     * @return the sitemap xml
+     */
+    public String writeToString(Stream<Url> urls) {
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            write(urls.iterator(), os);
+            return os.toString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new DataSerializationException(e);
+        }
+    }
+}
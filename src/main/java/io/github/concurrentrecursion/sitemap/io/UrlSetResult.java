@@ -0,0 +1,54 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.sitemap.model.SitemapReference;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The outcome of reading a single {@link SitemapReference} of a sitemap index.<br>
+ * Exactly one of {@link #getSitemap()} and {@link #getError()} is non-null.
+ */
+@Getter
+@ToString
+public class UrlSetResult {
+    /**
+     * The sitemap reference that was read
+     * @return the sitemap reference
+     */
+    private final SitemapReference reference;
+    /**
+     * The urlset that was read, or null if reading it failed. It isn't part of {@link #toString()}, as it can hold
+     * tens of thousands of urls
+     * @return the urlset
+     */
+    @ToString.Exclude
+    private final UrlSetSitemap sitemap;
+    /**
+     * The exception that was thrown while reading the urlset, or null if it was read successfully
+     * @return the exception
+     */
+    private final RuntimeException error;
+
+    private UrlSetResult(SitemapReference reference, UrlSetSitemap sitemap, RuntimeException error) {
+        this.reference = reference;
+        this.sitemap = sitemap;
+        this.error = error;
+    }
+
+    static UrlSetResult success(SitemapReference reference, UrlSetSitemap sitemap) {
+        return new UrlSetResult(reference, sitemap, null);
+    }
+
+    static UrlSetResult failure(SitemapReference reference, RuntimeException error) {
+        return new UrlSetResult(reference, null, error);
+    }
+
+    /**
+     * Whether the urlset was read successfully
+     * @return true if the urlset was read, false if there was an error
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
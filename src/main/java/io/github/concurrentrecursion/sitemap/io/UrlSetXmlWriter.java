@@ -0,0 +1,315 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.exception.DataSerializationException;
+import io.github.concurrentrecursion.sitemap.adapters.BooleanYesNoAdapter;
+import io.github.concurrentrecursion.sitemap.adapters.OffsetDateTimeAdapter;
+import io.github.concurrentrecursion.sitemap.adapters.SpaceDelimitedPlatformTypeAdapter;
+import io.github.concurrentrecursion.sitemap.adapters.SpaceDelimitedStringListAdapter;
+import io.github.concurrentrecursion.sitemap.adapters.CompactUrlAdapter;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.google.image.Image;
+import io.github.concurrentrecursion.sitemap.model.google.news.News;
+import io.github.concurrentrecursion.sitemap.model.google.news.Publication;
+import io.github.concurrentrecursion.sitemap.model.google.video.Platform;
+import io.github.concurrentrecursion.sitemap.model.google.video.Restriction;
+import io.github.concurrentrecursion.sitemap.model.google.video.Uploader;
+import io.github.concurrentrecursion.sitemap.model.google.video.Video;
+import io.github.concurrentrecursion.sitemap.model.xhtml.Link;
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Writes a &lt;urlset&gt; document one &lt;url&gt; element at a time using an {@link XMLStreamWriter}.<br>
+ * The output matches what the JAXB marshaller produces for {@link Url} and the Google image, news, video, and xhtml
+ * extensions, including the indentation used when pretty printing.
+ */
+class UrlSetXmlWriter implements Closeable {
+    static final String SITEMAP_NS = "http://www.sitemaps.org/schemas/sitemap/0.9";
+    static final String NEWS_NS = "http://www.google.com/schemas/sitemap-news/0.9";
+    static final String IMAGE_NS = "http://www.google.com/schemas/sitemap-image/1.1";
+    static final String VIDEO_NS = "http://www.google.com/schemas/sitemap-video/1.1";
+    static final String XHTML_NS = "http://www.w3.org/1999/xhtml";
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newDefaultFactory();
+    private static final String INDENT = "    ";
+
+    private static final CompactUrlAdapter URL_ADAPTER = new CompactUrlAdapter();
+    private static final OffsetDateTimeAdapter DATE_ADAPTER = new OffsetDateTimeAdapter();
+    private static final BooleanYesNoAdapter BOOLEAN_ADAPTER = new BooleanYesNoAdapter();
+    private static final SpaceDelimitedStringListAdapter STRING_LIST_ADAPTER = new SpaceDelimitedStringListAdapter();
+    private static final SpaceDelimitedPlatformTypeAdapter PLATFORM_ADAPTER = new SpaceDelimitedPlatformTypeAdapter();
+
+    private final XMLStreamWriter xml;
+    private final boolean prettyPrint;
+
+    /**
+     * Create a writer that encodes the document as UTF-8 to the given stream
+     * @param outputStream the destination, it is not closed by this writer
+     * @param prettyPrint whether the XML should be indented and have newlines
+     */
+    UrlSetXmlWriter(OutputStream outputStream, boolean prettyPrint) {
+        try {
+            this.xml = OUTPUT_FACTORY.createXMLStreamWriter(outputStream, "UTF-8");
+        } catch (XMLStreamException e) {
+            throw new DataSerializationException(e);
+        }
+        this.prettyPrint = prettyPrint;
+    }
+
+    /**
+     * Writes the XML declaration and the opening &lt;urlset&gt; tag with all the namespace declarations
+     */
+    void writeStartUrlSet() {
+        try {
+            xml.writeStartDocument("UTF-8", "1.0");
+            newLine();
+            xml.writeStartElement("", "urlset", SITEMAP_NS);
+            xml.writeDefaultNamespace(SITEMAP_NS);
+            xml.writeNamespace("news", NEWS_NS);
+            xml.writeNamespace("image", IMAGE_NS);
+            xml.writeNamespace("video", VIDEO_NS);
+            xml.writeNamespace("xhtml", XHTML_NS);
+            //Writing characters closes the start tag, so it is complete when the header is flushed on its own
+            xml.writeCharacters(prettyPrint ? "\n" : "");
+        } catch (XMLStreamException e) {
+            throw new DataSerializationException(e);
+        }
+    }
+
+    /**
+     * Writes the closing &lt;/urlset&gt; tag and flushes the document
+     */
+    void writeEndUrlSet() {
+        try {
+            xml.writeEndElement();
+            newLine();
+            xml.writeEndDocument();
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new DataSerializationException(e);
+        }
+    }
+
+    /**
+     * Writes a single &lt;url&gt; element
+     * @param url the url entry to write
+     */
+    void writeUrl(Url url) {
+        try {
+            startComplex(1, "", "url", SITEMAP_NS);
+            leaf(2, "", "loc", SITEMAP_NS, url(url.getCompactLocation()));
+            leaf(2, "", "lastmod", SITEMAP_NS, date(url.getLastModifiedDate()));
+            leaf(2, "", "changefreq", SITEMAP_NS, url.getChangeFrequency() == null ? null : url.getChangeFrequency().getValue());
+            leaf(2, "", "priority", SITEMAP_NS, decimal(url.getPriority()));
+            for (Image image : nullSafe(url.getImages())) {
+                writeImage(image);
+            }
+            for (Link link : nullSafe(url.getLinks())) {
+                writeLink(link);
+            }
+            if (url.getNews() != null) {
+                writeNews(url.getNews());
+            }
+            for (Video video : nullSafe(url.getVideos())) {
+                writeVideo(video);
+            }
+            endComplex(1);
+        } catch (XMLStreamException e) {
+            throw new DataSerializationException(e);
+        }
+    }
+
+    /**
+     * Flushes any buffered XML to the underlying stream
+     */
+    void flush() {
+        try {
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new DataSerializationException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new DataSerializationException(e);
+        }
+    }
+
+    private void writeImage(Image image) throws XMLStreamException {
+        startComplex(2, "image", "image", IMAGE_NS);
+        leaf(3, "image", "loc", IMAGE_NS, url(image.getCompactLocation()));
+        endComplex(2);
+    }
+
+    private void writeLink(Link link) throws XMLStreamException {
+        indent(2);
+        xml.writeEmptyElement("xhtml", "link", XHTML_NS);
+        attribute("rel", link.getRelationship());
+        attribute("hreflang", link.getLanguage());
+        attribute("href", url(link.getCompactHref()));
+        newLine();
+    }
+
+    private void writeNews(News news) throws XMLStreamException {
+        startComplex(2, "news", "news", NEWS_NS);
+        Publication publication = news.getPublication();
+        if (publication != null) {
+            startComplex(3, "news", "publication", NEWS_NS);
+            leaf(4, "news", "name", NEWS_NS, publication.getName());
+            leaf(4, "news", "language", NEWS_NS, publication.getLanguage());
+            endComplex(3);
+        }
+        leaf(3, "news", "publication_date", NEWS_NS, date(news.getPublicationDate()));
+        leaf(3, "news", "title", NEWS_NS, news.getTitle());
+        endComplex(2);
+    }
+
+    private void writeVideo(Video video) throws XMLStreamException {
+        startComplex(2, "video", "video", VIDEO_NS);
+        leaf(3, "video", "thumbnail_loc", VIDEO_NS, url(video.getCompactThumbnailUrl()));
+        leaf(3, "video", "title", VIDEO_NS, video.getTitle());
+        leaf(3, "video", "description", VIDEO_NS, video.getDescription());
+        leaf(3, "video", "content_loc", VIDEO_NS, url(video.getCompactContentUrl()));
+        leaf(3, "video", "player_loc", VIDEO_NS, url(video.getCompactPlayerUrl()));
+        leaf(3, "video", "duration", VIDEO_NS, integer(video.getDuration()));
+        leaf(3, "video", "expiration_date", VIDEO_NS, date(video.getExpirationDate()));
+        leaf(3, "video", "rating", VIDEO_NS, decimal(video.getRating()));
+        leaf(3, "video", "view_count", VIDEO_NS, integer(video.getViewCount()));
+        leaf(3, "video", "publication_date", VIDEO_NS, date(video.getPublicationDate()));
+        leaf(3, "video", "family_friendly", VIDEO_NS, BOOLEAN_ADAPTER.marshal(video.getFamilyFriendly()));
+        Restriction restriction = video.getRestriction();
+        if (restriction != null) {
+            valueWithAttribute("restriction", "relationship",
+                    restriction.getRelationship() == null ? null : restriction.getRelationship().getValue(),
+                    stringList(restriction.getCountries()));
+        }
+        Platform platform = video.getPlatform();
+        if (platform != null) {
+            valueWithAttribute("platform", "relationship",
+                    platform.getRelationship() == null ? null : platform.getRelationship().getValue(),
+                    platforms(platform.getPlatforms()));
+        }
+        leaf(3, "video", "requires_subscription", VIDEO_NS, BOOLEAN_ADAPTER.marshal(video.getRequiresSubscription()));
+        Uploader uploader = video.getUploader();
+        if (uploader != null) {
+            valueWithAttribute("uploader", "info", url(uploader.getCompactUploaderInfoUrl()), uploader.getName());
+        }
+        leaf(3, "video", "live", VIDEO_NS, BOOLEAN_ADAPTER.marshal(video.getLive()));
+        for (String tag : nullSafe(video.getTags())) {
+            leaf(3, "video", "tag", VIDEO_NS, tag);
+        }
+        endComplex(2);
+    }
+
+    private void valueWithAttribute(String name, String attributeName, String attributeValue, String value) throws XMLStreamException {
+        indent(3);
+        xml.writeStartElement("video", name, VIDEO_NS);
+        attribute(attributeName, attributeValue);
+        if (value != null) {
+            xml.writeCharacters(value);
+        }
+        xml.writeEndElement();
+        newLine();
+    }
+
+    private void startComplex(int depth, String prefix, String name, String namespace) throws XMLStreamException {
+        indent(depth);
+        xml.writeStartElement(prefix, name, namespace);
+        newLine();
+    }
+
+    private void endComplex(int depth) throws XMLStreamException {
+        indent(depth);
+        xml.writeEndElement();
+        newLine();
+    }
+
+    private void leaf(int depth, String prefix, String name, String namespace, String value) throws XMLStreamException {
+        if (value == null) return;
+        indent(depth);
+        xml.writeStartElement(prefix, name, namespace);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+        newLine();
+    }
+
+    private void attribute(String name, String value) throws XMLStreamException {
+        if (value != null) {
+            xml.writeAttribute(name, value);
+        }
+    }
+
+    private void indent(int depth) throws XMLStreamException {
+        if (prettyPrint) {
+            xml.writeCharacters(INDENT.repeat(depth));
+        }
+    }
+
+    private void newLine() throws XMLStreamException {
+        if (prettyPrint) {
+            xml.writeCharacters("\n");
+        }
+    }
+
+    private static <T> List<T> nullSafe(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    private static String url(CompactUrl url) {
+        try {
+            return URL_ADAPTER.marshal(url);
+        } catch (Exception e) {
+            throw new DataSerializationException(e);
+        }
+    }
+
+    private static String date(OffsetDateTime dateTime) {
+        try {
+            return DATE_ADAPTER.marshal(dateTime);
+        } catch (Exception e) {
+            throw new DataSerializationException(e);
+        }
+    }
+
+    private static String stringList(List<String> strings) {
+        try {
+            return STRING_LIST_ADAPTER.marshal(strings);
+        } catch (Exception e) {
+            throw new DataSerializationException(e);
+        }
+    }
+
+    private static String platforms(List<Platform.Type> types) {
+        try {
+            return PLATFORM_ADAPTER.marshal(types);
+        } catch (Exception e) {
+            throw new DataSerializationException(e);
+        }
+    }
+
+    private static String integer(Integer value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Formats a double the same way as the JAXB xs:double printer
+     */
+    private static String decimal(Double value) {
+        if (value == null) return null;
+        if (value.isNaN()) return "NaN";
+        if (value == Double.POSITIVE_INFINITY) return "INF";
+        if (value == Double.NEGATIVE_INFINITY) return "-INF";
+        return value.toString();
+    }
+}
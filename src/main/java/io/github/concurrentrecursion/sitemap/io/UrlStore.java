@@ -0,0 +1,545 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.exception.DataAccessException;
+import io.github.concurrentrecursion.exception.DataSerializationException;
+import io.github.concurrentrecursion.sitemap.model.ChangeFrequency;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An append-only store of {@link Url}s kept outside the Java heap, for building sitemaps with more urls than fit in
+ * memory.<br>
+ * Each field is stored in its own column file: the location, the last modified date as epoch milliseconds and offset
+ * seconds, the change frequency ordinal and the priority. The files are written and read through direct
+ * {@link ByteBuffer}s, so the heap holds only the buffers no matter how many urls are stored. The few urls that have
+ * images, links, news or videos are stored as XML in an extra column.<br>
+ * Iterating the store reuses a single Url instance for every url without extensions, so each url must be used before
+ * moving to the next one, as the {@link StreamingSitemapWriter} and {@link RollingSitemapWriter} do. The location is
+ * read into a reused buffer, and the last modified date is reused while it is the same as the previous url's, but each
+ * url still gets its own {@link CompactUrl}, and its own {@link OffsetDateTime} when the date changes, as they are
+ * immutable and may be kept after moving on. Urls with extensions are unmarshalled as new objects. Last modified dates
+ * are kept to the millisecond.<br>
+ * A UrlStore isn't thread safe, and its files are deleted when it is closed.
+ */
+@Slf4j
+public class UrlStore implements Iterable<Url>, Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final QName URL_ELEMENT = new QName(UrlSetXmlWriter.SITEMAP_NS, "url");
+    private static final JAXBContext JAXB_CONTEXT;
+
+    private static final int CHANGE_FREQUENCY_MASK = 0x0F;
+    private static final int HAS_LAST_MODIFIED = 0x10;
+    private static final int HAS_PRIORITY = 0x20;
+    private static final int HAS_EXTENSIONS = 0x40;
+    private static final ChangeFrequency[] CHANGE_FREQUENCIES = ChangeFrequency.values();
+
+    static {
+        try {
+            JAXB_CONTEXT = JAXBContext.newInstance(Url.class);
+        } catch (JAXBException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Path directory;
+    private final ColumnWriter flags;
+    private final ColumnWriter lastModified;
+    private final ColumnWriter priorities;
+    private final ColumnWriter locations;
+    private final ColumnWriter extensions;
+    private final Set<Cursor> cursors = ConcurrentHashMap.newKeySet();
+    private Marshaller marshaller;
+    private long size;
+    private boolean closed;
+
+    /**
+     * Create a store in the default temporary-file directory
+     * @throws IOException if the store files can't be created
+     */
+    public UrlStore() throws IOException {
+        this(null);
+    }
+
+    /**
+     * Create a store with its files in a new directory inside the given directory
+     * @param parent the directory to create the store directory in, or null for the default temporary-file directory
+     * @throws IOException if the store files can't be created
+     */
+    public UrlStore(Path parent) throws IOException {
+        this.directory = parent == null ? Files.createTempDirectory("urlstore") : Files.createTempDirectory(parent, "urlstore");
+        List<ColumnWriter> opened = new ArrayList<>();
+        try {
+            this.flags = open("flags.col", opened);
+            this.lastModified = open("lastmod.col", opened);
+            this.priorities = open("priority.col", opened);
+            this.locations = open("loc.col", opened);
+            this.extensions = open("ext.col", opened);
+        } catch (IOException e) {
+            for (ColumnWriter column : opened) {
+                column.closeQuietly();
+            }
+            deleteFiles();
+            throw e;
+        }
+    }
+
+    private ColumnWriter open(String name, List<ColumnWriter> opened) throws IOException {
+        ColumnWriter column = new ColumnWriter(directory.resolve(name));
+        opened.add(column);
+        return column;
+    }
+
+    /**
+     * Adds a url to the end of the store
+     * @param url the url to add
+     * @return this store
+     * @throws DataSerializationException if the url can't be written to the store files
+     */
+    public UrlStore add(Url url) {
+        if (closed) {
+            throw new IllegalStateException("UrlStore is closed");
+        }
+        boolean hasExtensions = hasExtensions(url);
+        int flag = url.getChangeFrequency() == null ? 0 : url.getChangeFrequency().ordinal() + 1;
+        if (url.getLastModifiedDate() != null) flag |= HAS_LAST_MODIFIED;
+        if (url.getPriority() != null) flag |= HAS_PRIORITY;
+        if (hasExtensions) flag |= HAS_EXTENSIONS;
+        OffsetDateTime lastmod = url.getLastModifiedDate();
+        CompactUrl location = url.getCompactLocation();
+        byte[] locationBytes = location == null ? null : location.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] extensionBytes;
+        try {
+            //Marshalled before anything is appended, so a url that can't be marshalled leaves the columns in step
+            extensionBytes = hasExtensions ? marshal(url) : null;
+        } catch (JAXBException e) {
+            throw new DataSerializationException(e);
+        }
+
+        List<ColumnWriter> columns = List.of(flags, lastModified, priorities, locations, extensions);
+        long[] marks = new long[columns.size()];
+        for (int i = 0; i < marks.length; i++) {
+            marks[i] = columns.get(i).position();
+        }
+        try {
+            flags.reserve(1).put((byte) flag);
+            lastModified.reserve(Long.BYTES + Integer.BYTES)
+                    .putLong(lastmod == null ? 0 : lastmod.toInstant().toEpochMilli())
+                    .putInt(lastmod == null ? 0 : lastmod.getOffset().getTotalSeconds());
+            priorities.reserve(Double.BYTES).putDouble(url.getPriority() == null ? 0 : url.getPriority());
+            locations.putBytes(locationBytes);
+            if (hasExtensions) {
+                extensions.putBytes(extensionBytes);
+            }
+        } catch (IOException e) {
+            //Drop the part of the row that was appended, so the columns stay in step with the size
+            for (int i = 0; i < marks.length; i++) {
+                try {
+                    columns.get(i).truncate(marks[i]);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new DataSerializationException(e);
+        }
+        size++;
+        return this;
+    }
+
+    /**
+     * Adds every url of the stream to the end of the store
+     * @param urls the urls to add, the stream is consumed but not closed
+     * @return this store
+     * @throws DataSerializationException if a url can't be written to the store files
+     */
+    public UrlStore addAll(Stream<Url> urls) {
+        urls.forEachOrdered(this::add);
+        return this;
+    }
+
+    /**
+     * Gets the number of urls in the store
+     * @return the number of urls
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Iterates the urls in the order they were added. Urls added after the iterator was created aren't included.<br>
+     * The same Url instance is returned for every url without extensions, with its fields replaced.
+     * @return an iterator over the urls
+     * @throws DataAccessException if the store files can't be read
+     */
+    @Override
+    public Iterator<Url> iterator() {
+        if (closed) {
+            throw new IllegalStateException("UrlStore is closed");
+        }
+        try {
+            for (ColumnWriter column : List.of(flags, lastModified, priorities, locations, extensions)) {
+                column.flush();
+            }
+            Cursor cursor = new Cursor(size);
+            cursors.add(cursor);
+            return cursor;
+        } catch (IOException e) {
+            throw new DataAccessException(e);
+        }
+    }
+
+    /**
+     * Streams the urls in the order they were added, the stream should be closed when it is no longer needed.<br>
+     * The same Url instance is returned for every url without extensions, with its fields replaced.
+     * @return a sequential stream of the urls
+     * @throws DataAccessException if the store files can't be read
+     */
+    public Stream<Url> stream() {
+        Cursor cursor = (Cursor) iterator();
+        return StreamSupport.stream(Spliterators.spliterator(cursor, cursor.remaining,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(cursor::closeQuietly);
+    }
+
+    /**
+     * Closes the store and any open iterators, and deletes its files
+     * @throws IOException if a file can't be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Cursor cursor : cursors) {
+            cursor.closeQuietly();
+        }
+        for (ColumnWriter column : List.of(flags, lastModified, priorities, locations, extensions)) {
+            column.closeQuietly();
+        }
+        deleteFiles();
+    }
+
+    private void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private static boolean hasExtensions(Url url) {
+        return url.getNews() != null || !isEmpty(url.getImages()) || !isEmpty(url.getLinks()) || !isEmpty(url.getVideos());
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private byte[] marshal(Url url) throws JAXBException {
+        if (marshaller == null) {
+            marshaller = JAXB_CONTEXT.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        }
+        ByteArrayOutputStream os = new ByteArrayOutputStream(1024);
+        marshaller.marshal(new JAXBElement<>(URL_ELEMENT, Url.class, url), os);
+        return os.toByteArray();
+    }
+
+    /**
+     * Reads the columns in step, one url at a time
+     */
+    private class Cursor implements Iterator<Url>, Closeable {
+        private final ColumnReader flagReader;
+        private final ColumnReader lastModifiedReader;
+        private final ColumnReader priorityReader;
+        private final ColumnReader locationReader;
+        private final ColumnReader extensionReader;
+        private final Url view = new Url((CompactUrl) null);
+        private Unmarshaller unmarshaller;
+        private OffsetDateTime lastDate;
+        private long lastEpochMilli;
+        private int lastOffsetSeconds;
+        private long remaining;
+
+        Cursor(long size) throws IOException {
+            List<ColumnReader> opened = new ArrayList<>();
+            try {
+                this.flagReader = open(flags, opened);
+                this.lastModifiedReader = open(lastModified, opened);
+                this.priorityReader = open(priorities, opened);
+                this.locationReader = open(locations, opened);
+                this.extensionReader = open(extensions, opened);
+            } catch (IOException e) {
+                for (ColumnReader column : opened) {
+                    column.closeQuietly();
+                }
+                throw e;
+            }
+            this.remaining = size;
+        }
+
+        private ColumnReader open(ColumnWriter column, List<ColumnReader> opened) throws IOException {
+            ColumnReader reader = new ColumnReader(column.file);
+            opened.add(reader);
+            return reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (remaining > 0) {
+                return true;
+            }
+            closeQuietly();
+            return false;
+        }
+
+        @Override
+        public Url next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            try {
+                int flag = flagReader.require(1).get();
+                ByteBuffer lastmod = lastModifiedReader.require(Long.BYTES + Integer.BYTES);
+                long epochMilli = lastmod.getLong();
+                int offsetSeconds = lastmod.getInt();
+                double priority = priorityReader.require(Double.BYTES).getDouble();
+                int locationLength = locationReader.readBytes();
+                if ((flag & HAS_EXTENSIONS) != 0) {
+                    //Urls with extensions are rare, so they are unmarshalled as new objects
+                    int length = extensionReader.readBytes();
+                    return unmarshal(extensionReader.bytes, length);
+                }
+                int changeFrequency = flag & CHANGE_FREQUENCY_MASK;
+                view.setCompactLocation(locationLength < 0 ? null : CompactUrl.ofValid(locationReader.bytes, 0, locationLength))
+                        .setLastModifiedDate((flag & HAS_LAST_MODIFIED) == 0 ? null : lastModifiedDate(epochMilli, offsetSeconds))
+                        .setChangeFrequency(changeFrequency == 0 ? null : CHANGE_FREQUENCIES[changeFrequency - 1])
+                        .setPriority((flag & HAS_PRIORITY) == 0 ? null : priority)
+                        .setNews(null);
+                view.getImages().clear();
+                view.getLinks().clear();
+                view.getVideos().clear();
+                return view;
+            } catch (IOException | JAXBException e) {
+                closeQuietly();
+                throw new DataAccessException(e);
+            }
+        }
+
+        /**
+         * Gets the date of the previous url when it is the same, as OffsetDateTime is immutable and urls are often
+         * added with the same last modified date
+         */
+        private OffsetDateTime lastModifiedDate(long epochMilli, int offsetSeconds) {
+            if (lastDate == null || epochMilli != lastEpochMilli || offsetSeconds != lastOffsetSeconds) {
+                lastDate = OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.ofTotalSeconds(offsetSeconds));
+                lastEpochMilli = epochMilli;
+                lastOffsetSeconds = offsetSeconds;
+            }
+            return lastDate;
+        }
+
+        private Url unmarshal(byte[] xml, int length) throws JAXBException {
+            if (unmarshaller == null) {
+                unmarshaller = JAXB_CONTEXT.createUnmarshaller();
+            }
+            return unmarshaller.unmarshal(new StreamSource(new ByteArrayInputStream(xml, 0, length)), Url.class).getValue();
+        }
+
+        @Override
+        public void close() throws IOException {
+            remaining = 0;
+            cursors.remove(this);
+            for (ColumnReader column : List.of(flagReader, lastModifiedReader, priorityReader, locationReader, extensionReader)) {
+                column.channel.close();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                close();
+            } catch (IOException e) {
+                log.debug("Exception closing url store cursor", e);
+            }
+        }
+    }
+
+    /**
+     * Appends to a column file through a direct buffer
+     */
+    private static class ColumnWriter {
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long written;
+
+        ColumnWriter(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Gets the buffer with room for at least the given number of bytes
+         */
+        ByteBuffer reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        /**
+         * Writes the length of the bytes, -1 for null, followed by the bytes
+         */
+        void putBytes(byte[] bytes) throws IOException {
+            reserve(Integer.BYTES).putInt(bytes == null ? -1 : bytes.length);
+            if (bytes == null) {
+                return;
+            }
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Gets the length of the column, including the bytes still in the buffer
+         */
+        long position() {
+            return written + buffer.position();
+        }
+
+        /**
+         * Drops everything appended after the given {@link #position()}
+         */
+        void truncate(long position) throws IOException {
+            if (position >= written) {
+                buffer.position((int) (position - written));
+                return;
+            }
+            buffer.clear();
+            channel.truncate(position);
+            channel.position(position);
+            written = position;
+        }
+
+        void closeQuietly() {
+            try {
+                try {
+                    flush();
+                } finally {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                log.debug("Exception closing url store column {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Reads a column file through a direct buffer
+     */
+    private static class ColumnReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private byte[] bytes = new byte[256];
+
+        ColumnReader(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.limit(0);
+        }
+
+        /**
+         * Gets the buffer with at least the given number of bytes remaining
+         */
+        ByteBuffer require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                buffer.compact();
+                while (buffer.position() < bytes) {
+                    if (channel.read(buffer) < 0) {
+                        throw new EOFException("Unexpected end of url store column");
+                    }
+                }
+                buffer.flip();
+            }
+            return buffer;
+        }
+
+        /**
+         * Reads bytes written by {@link ColumnWriter#putBytes(byte[])} into {@link #bytes}, which is replaced by a
+         * larger array when they don't fit and is overwritten by the next call
+         * @return the number of bytes read, or -1 for null
+         */
+        int readBytes() throws IOException {
+            int length = require(Integer.BYTES).getInt();
+            if (length < 0) {
+                return -1;
+            }
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            int offset = 0;
+            while (offset < length) {
+                int chunk = Math.min(BUFFER_SIZE, length - offset);
+                require(chunk).get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return length;
+        }
+
+        void closeQuietly() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Exception closing url store column", e);
+            }
+        }
+    }
+}
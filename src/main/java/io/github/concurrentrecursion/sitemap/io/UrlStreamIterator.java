@@ -0,0 +1,139 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.exception.DataAccessException;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pulls &lt;url&gt; elements from a &lt;urlset&gt; document one at a time using an {@link XMLStreamReader}.<br>
+ * Only the current element is unmarshalled, so memory use doesn't depend on the size of the document.
+ */
+@Slf4j
+class UrlStreamIterator implements Iterator<Url>, Closeable {
+    private static final XMLInputFactory INPUT_FACTORY;
+
+    static {
+        INPUT_FACTORY = XMLInputFactory.newDefaultFactory();
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final InputStream inputStream;
+    private final XMLStreamReader xml;
+    private final Unmarshaller unmarshaller;
+    private Url next;
+    private boolean finished;
+
+    /**
+     * Create an iterator positioned inside the root &lt;urlset&gt; element
+     * @param inputStream the urlset document, it is closed when this iterator is closed
+     * @param jaxbContext a context that knows the {@link Url} type
+     */
+    UrlStreamIterator(InputStream inputStream, JAXBContext jaxbContext) {
+        this.inputStream = inputStream;
+        try {
+            this.unmarshaller = jaxbContext.createUnmarshaller();
+            this.xml = INPUT_FACTORY.createXMLStreamReader(inputStream);
+            xml.nextTag();
+            if (!"urlset".equals(xml.getLocalName())) {
+                throw new DataAccessException(new XMLStreamException("Expected a <urlset> but found <" + xml.getLocalName() + ">", xml.getLocation()));
+            }
+            xml.next();
+        } catch (XMLStreamException | JAXBException e) {
+            closeQuietly();
+            throw new DataAccessException(e);
+        } catch (DataAccessException e) {
+            closeQuietly();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = advance();
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public Url next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Url url = next;
+        next = null;
+        return url;
+    }
+
+    private Url advance() {
+        try {
+            while (xml.hasNext()) {
+                int event = xml.getEventType();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if ("url".equals(xml.getLocalName())) {
+                        //Leaves the reader on the event after </url>
+                        return unmarshaller.unmarshal(xml, Url.class).getValue();
+                    }
+                    skipElement();
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    //</urlset>
+                    return null;
+                }
+                xml.next();
+            }
+            return null;
+        } catch (XMLStreamException | JAXBException e) {
+            throw new DataAccessException(e);
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        next = null;
+        try {
+            if (xml != null) {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            log.debug("Exception closing urlset input stream", e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package io.github.concurrentrecursion.sitemap.io;
+
+import io.github.concurrentrecursion.sitemap.model.Url;
+import jakarta.validation.ConstraintViolation;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Collects the invalid urls found while a streaming writer validates each url as it is written.<br>
+ * Only the first {@link #getMaxErrors() maxErrors} invalid urls are kept with their violations, so memory use stays
+ * bounded however many urls are invalid. Every invalid url is still counted, along with the number of violations of
+ * each constraint type, such as {@code UrlLengthConstraint} or {@code DecimalMax}.<br>
+ * The same collector can be shared by writers on different threads, or by several writes to see their total.
+ */
+public class ValidationErrors {
+    /**
+     * The default number of invalid urls that are kept
+     */
+    public static final int DEFAULT_MAX_ERRORS = 100;
+
+    /**
+     * The maximum number of invalid urls kept with their violations
+     * @return the maximum number of invalid urls kept
+     */
+    @Getter
+    private final int maxErrors;
+    private final List<InvalidUrl> errors = new ArrayList<>();
+    private final Map<String, Long> countsByConstraint = new TreeMap<>();
+    private long invalidUrlCount;
+
+    /**
+     * Create a collector that keeps the first {@value #DEFAULT_MAX_ERRORS} invalid urls
+     */
+    public ValidationErrors() {
+        this(DEFAULT_MAX_ERRORS);
+    }
+
+    /**
+     * Create a collector
+     * @param maxErrors the number of invalid urls kept with their violations, zero to only count them
+     */
+    public ValidationErrors(int maxErrors) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("maxErrors cannot be negative");
+        }
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Records an invalid url
+     * @param position the position of the url in the source, starting from zero
+     * @param url the url
+     * @param violations the violations of the url, not empty
+     */
+    void add(long position, Url url, Set<ConstraintViolation<Url>> violations) {
+        List<Violation> copies = new ArrayList<>(violations.size());
+        for (ConstraintViolation<Url> violation : violations) {
+            copies.add(new Violation(constraintType(violation), String.valueOf(violation.getPropertyPath()), violation.getMessage()));
+        }
+        add(position, url, copies);
+    }
+
+    /**
+     * Records an invalid url with violations found by the writer rather than by Bean Validation, such as a news url
+     * past the limit of a urlset
+     * @param position the position of the url in the source, starting from zero
+     * @param url the url
+     * @param violations the violations of the url, not empty
+     */
+    synchronized void add(long position, Url url, List<Violation> violations) {
+        invalidUrlCount++;
+        for (Violation violation : violations) {
+            countsByConstraint.merge(violation.getConstraint(), 1L, Long::sum);
+        }
+        if (errors.size() < maxErrors) {
+            errors.add(new InvalidUrl(position, String.valueOf(url.getCompactLocation()), violations));
+        }
+    }
+
+    private static String constraintType(ConstraintViolation<?> violation) {
+        return violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName();
+    }
+
+    /**
+     * The invalid urls that were kept, in the order they were found
+     * @return a copy of the invalid urls, no more than maxErrors of them
+     */
+    public synchronized List<InvalidUrl> getErrors() {
+        return Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    /**
+     * The number of violations of each constraint type, counting every invalid url, including those that weren't kept
+     * @return a copy of the counts, sorted by the simple name of the constraint annotation
+     */
+    public synchronized Map<String, Long> getCountsByConstraint() {
+        return Collections.unmodifiableMap(new TreeMap<>(countsByConstraint));
+    }
+
+    /**
+     * The number of invalid urls, including those that weren't kept
+     * @return the number of invalid urls
+     */
+    public synchronized long getInvalidUrlCount() {
+        return invalidUrlCount;
+    }
+
+    /**
+     * Whether no invalid urls were found
+     * @return true if there are no invalid urls
+     */
+    public synchronized boolean isEmpty() {
+        return invalidUrlCount == 0;
+    }
+
+    /**
+     * Removes every invalid url and count, so the collector can be used for another write
+     */
+    public synchronized void clear() {
+        errors.clear();
+        countsByConstraint.clear();
+        invalidUrlCount = 0;
+    }
+
+    /**
+     * An invalid url and its violations
+     */
+    @Getter
+    @ToString
+    public static final class InvalidUrl {
+        /**
+         * The position of the url in the urls given to the writer, starting from zero
+         * @return the position of the url
+         */
+        private final long position;
+        /**
+         * The location of the url
+         * @return the location
+         */
+        private final String location;
+        /**
+         * The constraints the url violates, sorted by path and constraint
+         * @return the violations
+         */
+        private final List<Violation> violations;
+
+        private InvalidUrl(long position, String location, List<Violation> violations) {
+            this.position = position;
+            this.location = location;
+            //Only the messages are kept, the violations reference the url, which the writers' sources may reuse
+            List<Violation> copies = new ArrayList<>(violations);
+            copies.sort(Comparator.comparing(Violation::getPath).thenComparing(Violation::getConstraint));
+            this.violations = Collections.unmodifiableList(copies);
+        }
+    }
+
+    /**
+     * A constraint violated by an invalid url
+     */
+    @Getter
+    @ToString
+    public static final class Violation {
+        /**
+         * The simple name of the constraint annotation, such as {@code UrlLengthConstraint}
+         * @return the constraint type
+         */
+        private final String constraint;
+        /**
+         * The path of the invalid value from the url, such as {@code priority}, empty when it is the url itself
+         * @return the property path
+         */
+        private final String path;
+        /**
+         * The message describing the violation
+         * @return the message
+         */
+        private final String message;
+
+        Violation(String constraint, String path, String message) {
+            this.constraint = constraint;
+            this.path = path;
+            this.message = message;
+        }
+    }
+}
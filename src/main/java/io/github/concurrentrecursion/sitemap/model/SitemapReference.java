@@ -2,11 +2,13 @@ package io.github.concurrentrecursion.sitemap.model;
 
 import io.github.concurrentrecursion.exception.RuntimeMalformedUrlException;
 import io.github.concurrentrecursion.sitemap.adapters.OffsetDateTimeAdapter;
-import io.github.concurrentrecursion.sitemap.adapters.UrlAdapter;
-import io.github.concurrentrecursion.sitemap.util.UrlUtil;
+import io.github.concurrentrecursion.sitemap.adapters.CompactUrlAdapter;
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
 import jakarta.xml.bind.annotation.*;
 import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 import java.net.URL;
@@ -21,6 +23,8 @@ import java.time.OffsetDateTime;
     "lastModifiedDate"
 })
 @Data
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
 @Accessors(chain = true)
 public class SitemapReference {
 
@@ -34,13 +38,11 @@ public class SitemapReference {
 
     /**
      * The location of the UrlSet file
-     * @param location the URL location of the sitemap
-     * @return the URL
      */
     @XmlElement(required = true, name = "loc")
     @XmlSchemaType(name = "anyURI")
-    @XmlJavaTypeAdapter(UrlAdapter.class)
-    private URL location;
+    @XmlJavaTypeAdapter(CompactUrlAdapter.class)
+    private CompactUrl location;
 
     /**
      * The date of last modification of the UrlSet file
@@ -57,7 +59,7 @@ public class SitemapReference {
      * @return the sitemap URL
      */
     public SitemapReference setLocation(URL location){
-        this.location = location;
+        this.location = CompactUrl.of(location);
         return this;
     }
 
@@ -68,7 +70,33 @@ public class SitemapReference {
      * @throws RuntimeMalformedUrlException if the url is malformed
      */
     public SitemapReference setLocation(String location) throws RuntimeMalformedUrlException {
-        this.location = UrlUtil.convertToUrl(location);
+        this.location = CompactUrl.of(location);
+        return this;
+    }
+
+    /**
+     * The location of the UrlSet file. A new URL is created on every call, use {@link #getCompactLocation()} to avoid it.
+     * @return the URL
+     */
+    public URL getLocation() {
+        return CompactUrl.toUrl(location);
+    }
+
+    /**
+     * The location of the UrlSet file, as it is stored
+     * @return the URL
+     */
+    public CompactUrl getCompactLocation() {
+        return location;
+    }
+
+    /**
+     * Set the URL for the sitemap file
+     * @param location the URL where the sitemap xml file is located
+     * @return the sitemap URL
+     */
+    public SitemapReference setCompactLocation(CompactUrl location) {
+        this.location = location;
         return this;
     }
 
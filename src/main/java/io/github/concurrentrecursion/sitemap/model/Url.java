@@ -2,14 +2,14 @@ package io.github.concurrentrecursion.sitemap.model;
 
 import io.github.concurrentrecursion.exception.RuntimeMalformedUrlException;
 import io.github.concurrentrecursion.sitemap.adapters.OffsetDateTimeAdapter;
-import io.github.concurrentrecursion.sitemap.adapters.UrlAdapter;
+import io.github.concurrentrecursion.sitemap.adapters.CompactUrlAdapter;
 import io.github.concurrentrecursion.sitemap.model.google.image.Image;
 import io.github.concurrentrecursion.sitemap.model.google.news.News;
 import io.github.concurrentrecursion.sitemap.model.google.video.Video;
 import io.github.concurrentrecursion.sitemap.model.validation.UrlLengthConstraint;
 import io.github.concurrentrecursion.sitemap.model.validation.WriteValidation;
 import io.github.concurrentrecursion.sitemap.model.xhtml.Link;
-import io.github.concurrentrecursion.sitemap.util.UrlUtil;
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
@@ -18,6 +18,8 @@ import jakarta.validation.constraints.Size;
 import jakarta.xml.bind.annotation.*;
 import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 import java.net.URL;
@@ -40,19 +42,19 @@ import java.util.List;
         "videos"
 })
 @Data
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
 @Accessors(chain = true)
 public class Url {
     /**
      * URL of the page. This URL must begin with the protocol (such as http) and end with a trailing slash,
      * if your web server requires it. This value must be less than 2,048 characters.
-     * @param location the URL to add to the sitemap
-     * @return the URL
      */
     @XmlElement(required = true, name = "loc")
     @XmlSchemaType(name = "anyURI")
-    @XmlJavaTypeAdapter(UrlAdapter.class)
+    @XmlJavaTypeAdapter(CompactUrlAdapter.class)
     @UrlLengthConstraint(groups = WriteValidation.class)
-    private URL location;
+    private CompactUrl location;
 
     /**
      * The date of last modification of the page.<br>
@@ -150,7 +152,7 @@ public class Url {
      * @throws RuntimeMalformedUrlException if the url is malformed
      */
     public Url(@NotNull String location) throws RuntimeMalformedUrlException {
-        this.location = UrlUtil.convertToUrl(location);
+        this.location = CompactUrl.of(location);
     }
 
     /**
@@ -158,9 +160,53 @@ public class Url {
      * @param location the location of the page
      */
     public Url(@NotNull URL location) {
+        this.location = CompactUrl.of(location);
+    }
+
+    /**
+     * Create a new Url with the given URL
+     * @param location the location of the page
+     */
+    public Url(@NotNull CompactUrl location) {
         this.location = location;
     }
 
+    /**
+     * URL of the page. A new URL is created on every call, use {@link #getCompactLocation()} to avoid it.
+     * @return the URL
+     */
+    public URL getLocation() {
+        return CompactUrl.toUrl(location);
+    }
+
+    /**
+     * Set the URL of the page
+     * @param location the URL to add to the sitemap
+     * @return this Url with the given location set
+     */
+    public Url setLocation(URL location) {
+        this.location = CompactUrl.of(location);
+        return this;
+    }
+
+    /**
+     * URL of the page, as it is stored
+     * @return the URL
+     */
+    public CompactUrl getCompactLocation() {
+        return location;
+    }
+
+    /**
+     * Set the URL of the page
+     * @param location the URL to add to the sitemap
+     * @return this Url with the given location set
+     */
+    public Url setCompactLocation(CompactUrl location) {
+        this.location = location;
+        return this;
+    }
+
     /**
      * Add the given image to this Url entry
      * @param image the image to add
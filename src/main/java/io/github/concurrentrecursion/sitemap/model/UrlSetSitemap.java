@@ -13,7 +13,6 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -35,7 +34,8 @@ public class UrlSetSitemap implements Sitemap {
     private Path file = Paths.get("sitemap.xml");
 
     /**
-     * The urls contained in this UrlSet
+     * The urls contained in this UrlSet. A list given to the setter is kept as it is, so later changes to it change
+     * this UrlSet
      * @param urls the urls
      * @return the urls
      */
@@ -44,6 +44,7 @@ public class UrlSetSitemap implements Sitemap {
     @MaxNewsConstraint(groups = WriteValidation.class)
     private List<@Valid Url> urls = new ArrayList<>();
 
+
     /**
      * Adds a Url to the Sitemap.
      *
@@ -56,13 +57,40 @@ public class UrlSetSitemap implements Sitemap {
     }
 
 
+    /**
+     * The number of urls that have news, which can't be more than 1,000 in a urlset. The urls are counted on each call,
+     * a {@link io.github.concurrentrecursion.sitemap.io.StreamingSitemapWriter} counts them as they are written instead
+     * @return the number of news urls
+     */
+    public int getNewsCount(){
+        return urls == null ? 0 : (int) urls.stream().filter(url -> url != null && url.getNews() != null).count();
+    }
+
+    /**
+     * The number of images of all the urls, counted on each call
+     * @return the number of images
+     */
+    public long getImageCount(){
+        return urls == null ? 0 : urls.stream().filter(url -> url != null && url.getImages() != null).mapToLong(url -> url.getImages().size()).sum();
+    }
+
+    /**
+     * The number of videos of all the urls, counted on each call
+     * @return the number of videos
+     */
+    public long getVideoCount(){
+        return urls == null ? 0 : urls.stream().filter(url -> url != null && url.getVideos() != null).mapToLong(url -> url.getVideos().size()).sum();
+    }
+
     /**
      * Build a UrlSetSitemap from the given urls
      * @param urls A stream of Urls
      * @return the urlsetsitemap
      */
     public static UrlSetSitemap fromUrls(Stream<Url> urls){
-        return new UrlSetSitemap().setUrls(urls.collect(Collectors.toList()));
+        UrlSetSitemap urlSet = new UrlSetSitemap();
+        urls.forEachOrdered(urlSet::addUrl);
+        return urlSet;
     }
     /**
      * Build a UrlSetSitemap from the given urls
@@ -1,15 +1,17 @@
 package io.github.concurrentrecursion.sitemap.model.google.image;
 
 import io.github.concurrentrecursion.exception.RuntimeMalformedUrlException;
-import io.github.concurrentrecursion.sitemap.adapters.UrlAdapter;
+import io.github.concurrentrecursion.sitemap.adapters.SharedCompactUrlAdapter;
 import io.github.concurrentrecursion.sitemap.model.validation.UrlLengthConstraint;
 import io.github.concurrentrecursion.sitemap.model.validation.WriteValidation;
-import io.github.concurrentrecursion.sitemap.util.UrlUtil;
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlElement;
 import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 import java.net.URL;
@@ -19,17 +21,17 @@ import java.net.URL;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @Data
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
 @Accessors(chain=true)
 public class Image {
     /**
      * The URL of the image
-     * @param location The image url
-     * @return the image url
      */
     @XmlElement(name = "loc",required = true)
-    @XmlJavaTypeAdapter(UrlAdapter.class)
+    @XmlJavaTypeAdapter(SharedCompactUrlAdapter.class)
     @UrlLengthConstraint(groups = WriteValidation.class)
-    private URL location;
+    private CompactUrl location;
 
     /**
      * Create a new Image
@@ -42,7 +44,7 @@ public class Image {
      * @throws RuntimeMalformedUrlException if the url is malformed
      */
     public Image(String location) throws RuntimeMalformedUrlException {
-        this.location = UrlUtil.convertToUrl(location);
+        this.location = CompactUrl.shared(location);
     }
 
     /**
@@ -50,6 +52,42 @@ public class Image {
      * @param location the image url
      */
     public Image(URL location){
+        this.location = CompactUrl.shared(location);
+    }
+
+    /**
+     * The URL of the image. A new URL is created on every call, use {@link #getCompactLocation()} to avoid it.
+     * @return the image url
+     */
+    public URL getLocation() {
+        return CompactUrl.toUrl(location);
+    }
+
+    /**
+     * Set the URL of the image
+     * @param location The image url
+     * @return the Image with the given location set
+     */
+    public Image setLocation(URL location) {
+        this.location = CompactUrl.shared(location);
+        return this;
+    }
+
+    /**
+     * The URL of the image, as it is stored
+     * @return the image url
+     */
+    public CompactUrl getCompactLocation() {
+        return location;
+    }
+
+    /**
+     * Set the URL of the image
+     * @param location The image url
+     * @return the Image with the given location set
+     */
+    public Image setCompactLocation(CompactUrl location) {
         this.location = location;
+        return this;
     }
 }
@@ -1,10 +1,10 @@
 package io.github.concurrentrecursion.sitemap.model.google.video;
 
 import io.github.concurrentrecursion.exception.RuntimeMalformedUrlException;
-import io.github.concurrentrecursion.sitemap.adapters.UrlAdapter;
+import io.github.concurrentrecursion.sitemap.adapters.SharedCompactUrlAdapter;
 import io.github.concurrentrecursion.sitemap.model.validation.UrlLengthConstraint;
 import io.github.concurrentrecursion.sitemap.model.validation.WriteValidation;
-import io.github.concurrentrecursion.sitemap.util.UrlUtil;
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
 import jakarta.validation.constraints.Size;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
@@ -12,6 +12,8 @@ import jakarta.xml.bind.annotation.XmlAttribute;
 import jakarta.xml.bind.annotation.XmlValue;
 import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 import java.net.URL;
@@ -21,17 +23,17 @@ import java.net.URL;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @Data
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
 @Accessors(chain = true)
 public class Uploader {
     /**
      * Specifies the URL of a web page with additional information about this uploader. This URL must be in the same domain
-     * @param uploaderInfoUrl the url to additional information about the uploader
-     * @return the uploader info url
      */
     @XmlAttribute(name="info")
-    @XmlJavaTypeAdapter(UrlAdapter.class)
+    @XmlJavaTypeAdapter(SharedCompactUrlAdapter.class)
     @UrlLengthConstraint(groups = WriteValidation.class)
-    private URL uploaderInfoUrl;
+    private CompactUrl uploaderInfoUrl;
 
     /**
      * The video uploader name. The string value can be a maximum of 255 characters.
@@ -50,7 +52,7 @@ public class Uploader {
      * @return the uploader instance with the updated uploaderInfoUrl
      */
     public Uploader setUploaderInfoUrl(final URL uploaderInfoUrl) {
-        this.uploaderInfoUrl = uploaderInfoUrl;
+        this.uploaderInfoUrl = CompactUrl.shared(uploaderInfoUrl);
         return this;
     }
 
@@ -63,7 +65,38 @@ public class Uploader {
      * @throws RuntimeMalformedUrlException if the url is malformed
      */
     public Uploader setUploaderInfoUrl(final String info) throws RuntimeMalformedUrlException{
-        this.uploaderInfoUrl = UrlUtil.convertToUrl(info);
+        this.uploaderInfoUrl = CompactUrl.shared(info);
+        return this;
+    }
+
+    /**
+     * Gets the URL of a web page with additional information about the uploader. A new URL is created on every call,
+     * use {@link #getCompactUploaderInfoUrl()} to avoid it.
+     *
+     * @return the uploader info url
+     */
+    public URL getUploaderInfoUrl() {
+        return CompactUrl.toUrl(uploaderInfoUrl);
+    }
+
+    /**
+     * Gets the URL of a web page with additional information about the uploader, as it is stored
+     *
+     * @return the uploader info url
+     */
+    public CompactUrl getCompactUploaderInfoUrl() {
+        return uploaderInfoUrl;
+    }
+
+    /**
+     * Sets the URL of a web page with additional information about the uploader.
+     * This URL must be in the same domain.
+     *
+     * @param uploaderInfoUrl the URL to the additional information about the uploader
+     * @return the uploader instance with the updated uploaderInfoUrl
+     */
+    public Uploader setCompactUploaderInfoUrl(final CompactUrl uploaderInfoUrl) {
+        this.uploaderInfoUrl = uploaderInfoUrl;
         return this;
     }
 }
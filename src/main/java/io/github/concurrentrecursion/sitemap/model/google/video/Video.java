@@ -3,10 +3,10 @@ package io.github.concurrentrecursion.sitemap.model.google.video;
 import io.github.concurrentrecursion.exception.RuntimeMalformedUrlException;
 import io.github.concurrentrecursion.sitemap.adapters.BooleanYesNoAdapter;
 import io.github.concurrentrecursion.sitemap.adapters.OffsetDateTimeAdapter;
-import io.github.concurrentrecursion.sitemap.adapters.UrlAdapter;
+import io.github.concurrentrecursion.sitemap.adapters.SharedCompactUrlAdapter;
 import io.github.concurrentrecursion.sitemap.model.validation.UrlLengthConstraint;
 import io.github.concurrentrecursion.sitemap.model.validation.WriteValidation;
-import io.github.concurrentrecursion.sitemap.util.UrlUtil;
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
 import jakarta.validation.constraints.*;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
@@ -14,6 +14,8 @@ import jakarta.xml.bind.annotation.XmlElement;
 import jakarta.xml.bind.annotation.XmlType;
 import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 import java.net.URL;
@@ -45,17 +47,17 @@ import java.util.List;
         "tags"
 })
 @Data
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
 @Accessors(chain = true)
 public class Video {
     /**
      * A URL pointing to the video thumbnail image file
-     * @param thumbnailUrl the url to the video thumbnail
-     * @return the url to the thumbnail
      */
     @XmlElement(name = "thumbnail_loc")
-    @XmlJavaTypeAdapter(UrlAdapter.class)
+    @XmlJavaTypeAdapter(SharedCompactUrlAdapter.class)
     @UrlLengthConstraint(groups = WriteValidation.class)
-    private URL thumbnailUrl;
+    private CompactUrl thumbnailUrl;
     /**
      * The title of the video. It is recommended that this match the video title displayed on the web page where the
      * video is embedded.
@@ -74,22 +76,18 @@ public class Video {
     private String description;
     /**
      * A URL pointing to the actual video media file
-     * @param contentUrl the url to the video file
-     * @return the url to the video file
      */
     @XmlElement(name = "content_loc")
-    @XmlJavaTypeAdapter(UrlAdapter.class)
+    @XmlJavaTypeAdapter(SharedCompactUrlAdapter.class)
     @UrlLengthConstraint(groups = WriteValidation.class)
-    private URL contentUrl;
+    private CompactUrl contentUrl;
     /**
      * A URL pointing to a player for a specific video. Usually this is the information in the src attribute of an {@code <embed>} tag.
-     * @param playerUrl the url to the player
-     * @return the url to the player
      */
     @XmlElement(name = "player_loc")
-    @XmlJavaTypeAdapter(UrlAdapter.class)
+    @XmlJavaTypeAdapter(SharedCompactUrlAdapter.class)
     @UrlLengthConstraint(groups = WriteValidation.class)
-    private URL playerUrl;
+    private CompactUrl playerUrl;
     /**
      * The duration of the video, in seconds. Value must be from 1 to 28800 (8 hours)
      * @param duration the duration in seconds
@@ -195,7 +193,7 @@ public class Video {
      * @return the Video object with the given thumbnail URL set
      */
     public Video setThumbnailUrl(URL thumbnailUrl) {
-        this.thumbnailUrl = thumbnailUrl;
+        this.thumbnailUrl = CompactUrl.shared(thumbnailUrl);
         return this;
     }
 
@@ -206,7 +204,7 @@ public class Video {
      * @throws RuntimeMalformedUrlException if the url is malformed
      */
     public Video setThumbnailUrl(String thumbnailUrl) throws RuntimeMalformedUrlException {
-        this.thumbnailUrl = UrlUtil.convertToUrl(thumbnailUrl);
+        this.thumbnailUrl = CompactUrl.shared(thumbnailUrl);
         return this;
     }
 
@@ -216,7 +214,7 @@ public class Video {
      * @return the Video object with the given content URL set
      */
     public Video setContentUrl(URL contentUrl) {
-        this.contentUrl = contentUrl;
+        this.contentUrl = CompactUrl.shared(contentUrl);
         return this;
     }
     /**
@@ -226,7 +224,7 @@ public class Video {
      * @throws RuntimeMalformedUrlException if the url is malformed
      */
     public Video setContentUrl(String contentUrl) throws RuntimeMalformedUrlException {
-        this.contentUrl = UrlUtil.convertToUrl(contentUrl);
+        this.contentUrl = CompactUrl.shared(contentUrl);
         return this;
     }
 
@@ -236,7 +234,7 @@ public class Video {
      * @return the Video object with the given player URL set
      */
     public Video setPlayerUrl(URL playerUrl) {
-        this.playerUrl = playerUrl;
+        this.playerUrl = CompactUrl.shared(playerUrl);
         return this;
     }
     /**
@@ -246,7 +244,84 @@ public class Video {
      * @throws RuntimeMalformedUrlException if the url is malformed
      */
     public Video setPlayerUrl(String playerUrl) throws RuntimeMalformedUrlException {
-        this.playerUrl = UrlUtil.convertToUrl(playerUrl);
+        this.playerUrl = CompactUrl.shared(playerUrl);
+        return this;
+    }
+    /**
+     * Get the video thumbnail URL. A new URL is created on every call, use {@link #getCompactThumbnailUrl()} to avoid it.
+     * @return the video thumbnail URL
+     */
+    public URL getThumbnailUrl() {
+        return CompactUrl.toUrl(thumbnailUrl);
+    }
+
+    /**
+     * Get the video thumbnail URL, as it is stored
+     * @return the video thumbnail URL
+     */
+    public CompactUrl getCompactThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    /**
+     * Set the video thumbnail URL
+     * @param thumbnailUrl the video thumbnail URL
+     * @return the Video object with the given thumbnail URL set
+     */
+    public Video setCompactThumbnailUrl(CompactUrl thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+        return this;
+    }
+
+    /**
+     * Get the video content URL. A new URL is created on every call, use {@link #getCompactContentUrl()} to avoid it.
+     * @return the video content URL
+     */
+    public URL getContentUrl() {
+        return CompactUrl.toUrl(contentUrl);
+    }
+
+    /**
+     * Get the video content URL, as it is stored
+     * @return the video content URL
+     */
+    public CompactUrl getCompactContentUrl() {
+        return contentUrl;
+    }
+
+    /**
+     * Set the video content URL
+     * @param contentUrl the video content URL
+     * @return the Video object with the given content URL set
+     */
+    public Video setCompactContentUrl(CompactUrl contentUrl) {
+        this.contentUrl = contentUrl;
+        return this;
+    }
+
+    /**
+     * Get the video player URL. A new URL is created on every call, use {@link #getCompactPlayerUrl()} to avoid it.
+     * @return the video player URL
+     */
+    public URL getPlayerUrl() {
+        return CompactUrl.toUrl(playerUrl);
+    }
+
+    /**
+     * Get the video player URL, as it is stored
+     * @return the video player URL
+     */
+    public CompactUrl getCompactPlayerUrl() {
+        return playerUrl;
+    }
+
+    /**
+     * Set the video player URL
+     * @param playerUrl the video player URL
+     * @return the Video object with the given player URL set
+     */
+    public Video setCompactPlayerUrl(CompactUrl playerUrl) {
+        this.playerUrl = playerUrl;
         return this;
     }
 }
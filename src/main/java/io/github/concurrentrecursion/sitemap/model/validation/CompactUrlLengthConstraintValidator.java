@@ -0,0 +1,25 @@
+package io.github.concurrentrecursion.sitemap.model.validation;
+
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * The CompactUrlLengthConstraintValidator class checks that a {@link CompactUrl} does not exceed the maximum length of
+ * a {@link UrlLengthConstraint} once it is percent-encoded.
+ */
+public class CompactUrlLengthConstraintValidator implements ConstraintValidator<UrlLengthConstraint, CompactUrl> {
+    private int max;
+
+    @Override
+    public boolean isValid(CompactUrl url, ConstraintValidatorContext constraintValidatorContext) {
+        if(url == null || max <= 0) return true;
+        return url.asciiLength() <= max;
+    }
+
+    @Override
+    public void initialize(UrlLengthConstraint constraintAnnotation) {
+        ConstraintValidator.super.initialize(constraintAnnotation);
+        this.max = constraintAnnotation.max();
+    }
+}
@@ -10,10 +10,10 @@ import java.lang.annotation.Target;
 
 /**
  * The UrlLengthConstraint annotation is used to apply a maximum length constraint on a URL
- * field. It can be applied to any field with a URL data type.
+ * field. It can be applied to any field with a URL or CompactUrl data type.
  */
 @Target(ElementType.FIELD)
-@Constraint(validatedBy = UrlLengthConstraintValidator.class)
+@Constraint(validatedBy = {UrlLengthConstraintValidator.class, CompactUrlLengthConstraintValidator.class})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface UrlLengthConstraint {
     /**
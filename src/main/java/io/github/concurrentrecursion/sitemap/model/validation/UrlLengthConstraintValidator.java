@@ -1,9 +1,9 @@
 package io.github.concurrentrecursion.sitemap.model.validation;
 
+import io.github.concurrentrecursion.sitemap.util.UrlUtil;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
-import java.net.URI;
 import java.net.URL;
 
 /**
@@ -19,7 +19,7 @@ public class UrlLengthConstraintValidator implements ConstraintValidator<UrlLeng
     @Override
     public boolean isValid(URL url, ConstraintValidatorContext constraintValidatorContext) {
         if(url == null || max <= 0) return true;
-        String asciiUrl = URI.create(url.toString()).toASCIIString();
+        String asciiUrl = UrlUtil.toAsciiString(url.toString());
         return asciiUrl.length() <= max;
     }
 
@@ -0,0 +1,169 @@
+package io.github.concurrentrecursion.sitemap.model.validation;
+
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.model.google.image.Image;
+import io.github.concurrentrecursion.sitemap.model.google.news.News;
+import io.github.concurrentrecursion.sitemap.model.google.news.Publication;
+import io.github.concurrentrecursion.sitemap.model.google.video.Video;
+import io.github.concurrentrecursion.sitemap.model.xhtml.Link;
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
+import lombok.experimental.UtilityClass;
+
+import java.util.List;
+
+/**
+ * Checks the {@link WriteValidation} constraints of the sitemap model in a single pass, without Bean Validation.<br>
+ * It checks the same constraints as validating with the WriteValidation group: the url counts of {@link UrlSetSitemap},
+ * the length of every url, the priority, image, video and tag limits, and the publication language. It doesn't
+ * allocate once the percent-encoded form of each url is cached, so it is much cheaper than Bean Validation for a
+ * large urlset. It only says whether the model is valid, Bean Validation should be used to find the violations.<br>
+ * Constraints added to the model some other way, such as a constraint mapping file, are not checked.
+ */
+@UtilityClass
+public class WriteValidationChecker {
+    private static final int MAX_URLS = 50_000;
+    private static final int MAX_NEWS = 1_000;
+    private static final int MAX_URL_LENGTH = 2048;
+    private static final int MAX_IMAGES = 1_000;
+    private static final int MAX_DESCRIPTION_LENGTH = 2048;
+    private static final int MAX_DURATION = 28_800;
+    private static final int MAX_TAGS = 32;
+
+    /**
+     * Checks a urlset and every url in it
+     * @param urlSet the urlset
+     * @return true if validating it with the WriteValidation group would find no violations
+     */
+    public static boolean isValid(UrlSetSitemap urlSet) {
+        List<Url> urls = urlSet.getUrls();
+        if (urls == null) {
+            return true;
+        }
+        if (urls.size() > MAX_URLS) {
+            return false;
+        }
+        //The news are counted in the loop that checks each url, rather than in a pass of their own
+        int news = 0;
+        for (int i = 0, size = urls.size(); i < size; i++) {
+            Url url = urls.get(i);
+            if (url == null) {
+                continue;
+            }
+            if (!isValid(url)) {
+                return false;
+            }
+            if (url.getNews() != null && ++news > MAX_NEWS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a sitemap index. The index and its references have no WriteValidation constraints, and the urlsets of the
+     * references aren't validated with it, so it is always valid.
+     * @param index the sitemap index
+     * @return true
+     */
+    public static boolean isValid(IndexSitemap index) {
+        return true;
+    }
+
+    /**
+     * Checks a single url, not counting the limits of the urlset it is in
+     * @param url the url
+     * @return true if validating it with the WriteValidation group would find no violations
+     */
+    public static boolean isValid(Url url) {
+        if (!isValidLength(url.getCompactLocation())) {
+            return false;
+        }
+        Double priority = url.getPriority();
+        if (priority != null && !(priority >= 0.0d && priority <= 1.0d)) {
+            return false;
+        }
+        List<Image> images = url.getImages();
+        if (images != null) {
+            if (images.size() > MAX_IMAGES) {
+                return false;
+            }
+            for (int i = 0, size = images.size(); i < size; i++) {
+                Image image = images.get(i);
+                if (image != null && !isValidLength(image.getCompactLocation())) {
+                    return false;
+                }
+            }
+        }
+        List<Link> links = url.getLinks();
+        if (links != null) {
+            for (int i = 0, size = links.size(); i < size; i++) {
+                Link link = links.get(i);
+                if (link != null && !isValidLength(link.getCompactHref())) {
+                    return false;
+                }
+            }
+        }
+        News news = url.getNews();
+        if (news != null && news.getPublication() != null && !isValidLanguage(news.getPublication())) {
+            return false;
+        }
+        List<Video> videos = url.getVideos();
+        if (videos != null) {
+            for (int i = 0, size = videos.size(); i < size; i++) {
+                Video video = videos.get(i);
+                if (video != null && !isValid(video)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isValid(Video video) {
+        if (!isValidLength(video.getCompactThumbnailUrl()) || !isValidLength(video.getCompactContentUrl())
+                || !isValidLength(video.getCompactPlayerUrl())) {
+            return false;
+        }
+        if (video.getDescription() != null && video.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+            return false;
+        }
+        Integer duration = video.getDuration();
+        if (duration != null && (duration < 1 || duration > MAX_DURATION)) {
+            return false;
+        }
+        Double rating = video.getRating();
+        if (rating != null && !(rating >= 0.0d && rating <= 5.0d)) {
+            return false;
+        }
+        return video.getTags() == null || video.getTags().size() <= MAX_TAGS;
+    }
+
+    private static boolean isValidLength(CompactUrl url) {
+        return url == null || url.asciiLength() <= MAX_URL_LENGTH;
+    }
+
+    /**
+     * The same as the pattern {@code ^(zh-cn|zh-tw|([a-z]{2,3}))$} of {@link Publication#getLanguage()}
+     */
+    private static boolean isValidLanguage(Publication publication) {
+        String language = publication.getLanguage();
+        if (language == null) {
+            return true;
+        }
+        if (language.equals("zh-cn") || language.equals("zh-tw")) {
+            return true;
+        }
+        if (language.length() < 2 || language.length() > 3) {
+            return false;
+        }
+        for (int i = 0; i < language.length(); i++) {
+            char c = language.charAt(i);
+            if (c < 'a' || c > 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
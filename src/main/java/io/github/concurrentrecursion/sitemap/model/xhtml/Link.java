@@ -1,16 +1,18 @@
 package io.github.concurrentrecursion.sitemap.model.xhtml;
 
 import io.github.concurrentrecursion.exception.RuntimeMalformedUrlException;
-import io.github.concurrentrecursion.sitemap.adapters.UrlAdapter;
+import io.github.concurrentrecursion.sitemap.adapters.CompactUrlAdapter;
 import io.github.concurrentrecursion.sitemap.model.validation.UrlLengthConstraint;
 import io.github.concurrentrecursion.sitemap.model.validation.WriteValidation;
-import io.github.concurrentrecursion.sitemap.util.UrlUtil;
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
 import jakarta.validation.constraints.Pattern;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlAttribute;
 import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 import java.net.URL;
@@ -20,6 +22,8 @@ import java.net.URL;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @Data
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
 @Accessors(chain = true)
 public class Link {
     /**
@@ -39,12 +43,11 @@ public class Link {
     private String language;
     /**
      * The link
-     * @return the link
      */
     @XmlAttribute
-    @XmlJavaTypeAdapter(UrlAdapter.class)
+    @XmlJavaTypeAdapter(CompactUrlAdapter.class)
     @UrlLengthConstraint(groups = WriteValidation.class)
-    private URL href;
+    private CompactUrl href;
 
     /**
      * Create a link with the given language and href
@@ -53,7 +56,7 @@ public class Link {
      * @throws RuntimeMalformedUrlException if the url is malformed
      */
     public Link(String language, String href) throws RuntimeMalformedUrlException {
-        this.href = UrlUtil.convertToUrl(href);
+        this.href = CompactUrl.of(href);
         this.language = language;
     }
     /**
@@ -62,7 +65,7 @@ public class Link {
      * @param href The URL to the alternate site
      */
     public Link(String language,URL href){
-        this.href = href;
+        this.href = CompactUrl.of(href);
         this.language = language;
     }
 
@@ -77,7 +80,7 @@ public class Link {
      * @return the Link with the given href set
      */
     public Link setHref(final URL href) {
-        this.href = href;
+        this.href = CompactUrl.of(href);
         return this;
     }
 
@@ -87,7 +90,33 @@ public class Link {
      * @return the Link with the given href set
      */
     public Link setHref(final String href) {
-        this.href = UrlUtil.convertToUrl(href);
+        this.href = CompactUrl.of(href);
+        return this;
+    }
+
+    /**
+     * The link. A new URL is created on every call, use {@link #getCompactHref()} to avoid it.
+     * @return the link
+     */
+    public URL getHref() {
+        return CompactUrl.toUrl(href);
+    }
+
+    /**
+     * The link, as it is stored
+     * @return the link
+     */
+    public CompactUrl getCompactHref() {
+        return href;
+    }
+
+    /**
+     * Set the href of the link
+     * @param href the href to set
+     * @return the Link with the given href set
+     */
+    public Link setCompactHref(final CompactUrl href) {
+        this.href = href;
         return this;
     }
 }
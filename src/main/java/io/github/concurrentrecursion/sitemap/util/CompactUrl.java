@@ -0,0 +1,316 @@
+package io.github.concurrentrecursion.sitemap.util;
+
+import io.github.concurrentrecursion.exception.RuntimeMalformedUrlException;
+import jakarta.validation.constraints.NotNull;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An absolute url stored as a compact string.<br>
+ * A {@link URL} keeps each of its components as a separate string and is several times larger than the url text.
+ * CompactUrl keeps only the text, as Latin-1 bytes when possible, and creates a {@link URL} when one is asked for.
+ * The percent-encoded form used in sitemap files is computed once and kept for urls that need encoding.<br>
+ * When a {@link UrlPool} is set as the default, the scheme and host are shared with the other urls in the pool.
+ */
+public final class CompactUrl {
+    private static final byte[] NOT_ENCODED = new byte[0];
+
+    /**
+     * The shared scheme and host of the url as Latin-1 bytes, or null if they aren't shared
+     */
+    private final byte[] prefix;
+    /**
+     * The url, or the part after the prefix, as Latin-1 bytes, or null if it has other characters
+     */
+    private final byte[] latin1;
+    /**
+     * The url, only set when it can't be stored as Latin-1
+     */
+    private final String text;
+    /**
+     * The percent-encoded url, {@link #NOT_ENCODED} until it is first needed. Urls that are already ASCII are never encoded
+     */
+    private volatile byte[] ascii = NOT_ENCODED;
+
+    CompactUrl(String url) {
+        this.prefix = null;
+        if (isLatin1(url)) {
+            this.latin1 = url.getBytes(StandardCharsets.ISO_8859_1);
+            this.text = null;
+        } else {
+            this.latin1 = null;
+            this.text = url;
+        }
+    }
+
+    CompactUrl(byte[] prefix, byte[] suffix) {
+        this.prefix = prefix;
+        this.latin1 = suffix;
+        this.text = null;
+    }
+
+    /**
+     * Creates a compact url from a string, checking that it is a valid absolute url the same way as
+     * {@link UrlUtil#convertToUrl(String)}, but without creating a {@link URL} for http and https urls.
+     *
+     * @param location the url
+     * @return the compact url
+     * @throws RuntimeMalformedUrlException if the url is malformed
+     */
+    @NotNull
+    public static CompactUrl of(@NotNull String location) throws RuntimeMalformedUrlException {
+        return create(validate(location), false);
+    }
+
+    /**
+     * Creates a compact url from a URL
+     *
+     * @param url the url
+     * @return the compact url, or null if url is null
+     */
+    public static CompactUrl of(URL url) {
+        return url == null ? null : create(url.toString(), false);
+    }
+
+    /**
+     * Creates a compact url from a string like {@link #of(String)}. When a default {@link UrlPool} is set, an existing
+     * instance is returned if the same url was already shared. Use this for urls that are likely repeated between
+     * entries, such as image and video urls.
+     *
+     * @param location the url
+     * @return the compact url
+     * @throws RuntimeMalformedUrlException if the url is malformed
+     */
+    @NotNull
+    public static CompactUrl shared(@NotNull String location) throws RuntimeMalformedUrlException {
+        return create(validate(location), true);
+    }
+
+    /**
+     * Creates a compact url from a string that is already known to be valid, such as the {@link #toString()} of another
+     * compact url. The url isn't checked.
+     *
+     * @param location the url
+     * @return the compact url
+     */
+    @NotNull
+    public static CompactUrl ofValid(@NotNull String location) {
+        return create(location, false);
+    }
+
+    /**
+     * Creates a compact url from the UTF-8 bytes of a url that is already known to be valid, like
+     * {@link #ofValid(String)}. The bytes are copied, so the array can be reused. An ASCII url is kept as a copy of the
+     * bytes without decoding it to a string first, unless a default {@link UrlPool} is set.
+     *
+     * @param utf8 the array holding the url
+     * @param offset the index of the first byte of the url
+     * @param length the number of bytes of the url
+     * @return the compact url
+     */
+    @NotNull
+    public static CompactUrl ofValid(@NotNull byte[] utf8, int offset, int length) {
+        if (UrlPool.getDefault() == null && isAscii(utf8, offset, length)) {
+            //ASCII bytes are the same in UTF-8 and Latin-1
+            return new CompactUrl(null, Arrays.copyOfRange(utf8, offset, offset + length));
+        }
+        return create(new String(utf8, offset, length, StandardCharsets.UTF_8), false);
+    }
+
+    /**
+     * Creates a compact url from a URL like {@link #of(URL)}, sharing it like {@link #shared(String)}
+     *
+     * @param url the url
+     * @return the compact url, or null if url is null
+     */
+    public static CompactUrl shared(URL url) {
+        return url == null ? null : create(url.toString(), true);
+    }
+
+    /**
+     * Checks the url is valid
+     * @return the url as it would be given by {@link URL#toString()}
+     */
+    private static String validate(String location) {
+        try {
+            URI uri = new URI(location);
+            String scheme = uri.getScheme();
+            if (uri.getHost() != null && ("http".equals(scheme) || "https".equals(scheme))) {
+                return location;
+            }
+            //Leave everything else to URL, which knows the other protocols, rejects relative urls and lower cases the scheme
+            return uri.toURL().toString();
+        } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+            throw new RuntimeMalformedUrlException(e);
+        }
+    }
+
+    private static CompactUrl create(String url, boolean shared) {
+        UrlPool pool = UrlPool.getDefault();
+        if (pool == null) {
+            return new CompactUrl(url);
+        }
+        return shared ? pool.share(url) : pool.compact(url);
+    }
+
+    /**
+     * Creates a new URL for this url. A new URL is created on every call.
+     *
+     * @return the URL
+     * @throws RuntimeMalformedUrlException if the URL can't be created
+     */
+    @NotNull
+    public URL toUrl() throws RuntimeMalformedUrlException {
+        try {
+            return new URL(toString());
+        } catch (MalformedURLException e) {
+            throw new RuntimeMalformedUrlException(e);
+        }
+    }
+
+    /**
+     * Converts a nullable compact url to a URL
+     *
+     * @param url the compact url
+     * @return the URL, or null if url is null
+     */
+    public static URL toUrl(CompactUrl url) {
+        return url == null ? null : url.toUrl();
+    }
+
+    /**
+     * Gets the US-ASCII form of this url, with non-ASCII characters percent-encoded, as it is written to a sitemap.
+     *
+     * @return the percent-encoded url
+     * @see UrlUtil#toAsciiString(String)
+     */
+    @NotNull
+    public String toAsciiString() {
+        byte[] encoded = ascii;
+        if (encoded == NOT_ENCODED) {
+            String url = toString();
+            String asciiUrl = UrlUtil.toAsciiString(url);
+            //Only keep the encoded form when it differs from the url
+            encoded = asciiUrl.equals(url) ? null : asciiUrl.getBytes(StandardCharsets.ISO_8859_1);
+            ascii = encoded;
+            return asciiUrl;
+        }
+        return encoded == null ? toString() : new String(encoded, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Gets the length of {@link #toAsciiString()}. The encoded form is cached by the first call, so later calls don't
+     * allocate.
+     *
+     * @return the length of the percent-encoded url
+     */
+    public int asciiLength() {
+        byte[] encoded = ascii;
+        if (encoded == NOT_ENCODED) {
+            return toAsciiString().length();
+        }
+        if (encoded != null) {
+            return encoded.length;
+        }
+        return latin1 != null ? prefixLength() + latin1.length : text.length();
+    }
+
+    /**
+     * Gets the url as it was given, without percent-encoding
+     *
+     * @return the url
+     */
+    @Override
+    public String toString() {
+        if (latin1 == null) {
+            return text;
+        }
+        if (prefix == null) {
+            return new String(latin1, StandardCharsets.ISO_8859_1);
+        }
+        byte[] url = Arrays.copyOf(prefix, prefix.length + latin1.length);
+        System.arraycopy(latin1, 0, url, prefix.length, latin1.length);
+        return new String(url, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Gets the number of bytes stored by this url, not counting a shared prefix
+     */
+    int storedLength() {
+        return latin1 != null ? latin1.length : text.length() * 2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompactUrl)) return false;
+        CompactUrl other = (CompactUrl) o;
+        if (latin1 == null || other.latin1 == null) {
+            //A url with characters outside Latin-1 can't equal one without
+            return text != null && text.equals(other.text);
+        }
+        if (prefix == other.prefix) {
+            return Arrays.equals(latin1, other.latin1);
+        }
+        int length = prefixLength() + latin1.length;
+        if (length != other.prefixLength() + other.latin1.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (byteAt(i) != other.byteAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        if (latin1 == null) {
+            return text.hashCode();
+        }
+        //The same as Arrays.hashCode of the whole url, so it doesn't depend on whether the prefix is shared
+        int hash = 1;
+        if (prefix != null) {
+            for (byte b : prefix) {
+                hash = 31 * hash + b;
+            }
+        }
+        for (byte b : latin1) {
+            hash = 31 * hash + b;
+        }
+        return hash;
+    }
+
+    private int prefixLength() {
+        return prefix == null ? 0 : prefix.length;
+    }
+
+    private byte byteAt(int index) {
+        int prefixLength = prefixLength();
+        return index < prefixLength ? prefix[index] : latin1[index - prefixLength];
+    }
+
+    static boolean isLatin1(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
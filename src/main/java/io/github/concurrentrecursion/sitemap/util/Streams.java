@@ -3,8 +3,10 @@ package io.github.concurrentrecursion.sitemap.util;
 import lombok.experimental.UtilityClass;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -21,25 +23,109 @@ public class Streams {
      * This method does NOT load the entire stream in memory and is capable of processing an endless stream
      * @param stream The input stream of data
      * @param batchSize The size of the List that will be returned by the stream.
-     * @return A Stream of Lists consisting of data from the input stream
+     * @return A sequential Stream of Lists consisting of data from the input stream
      * @param <T> The Type of object contained in the input/output stream
      */
     public static <T> Stream<List<T>> batchStream(Stream<T> stream, final int batchSize) {
-        Iterator<T> iterator = stream.iterator();
-        Iterator<List<T>> listIterator = new Iterator<>() {
+        return batchStream(stream, batchSize, false);
+    }
+
+    /**
+     * Converts a stream to a stream of batches using the given batchSize to split the stream, like
+     * {@link #batchStream(Stream, int)}.<br>
+     * The returned stream can be split, so when it is parallel the work done on each batch, such as marshalling a
+     * urlset, runs on all cores. The batches themselves are still taken from the input stream in order, a few at a
+     * time, so every batch except the last has batchSize elements and the input is never loaded in memory all at once.
+     * When the input stream has a known size, so does the stream of batches. Closing the returned stream closes the
+     * input stream.
+     * @param stream The input stream of data
+     * @param batchSize The size of the List that will be returned by the stream, at least 1
+     * @param parallel whether the returned stream is parallel
+     * @return A Stream of Lists consisting of data from the input stream
+     * @param <T> The Type of object contained in the input/output stream
+     */
+    public static <T> Stream<List<T>> batchStream(Stream<T> stream, final int batchSize, boolean parallel) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        return StreamSupport.stream(new BatchSpliterator<>(stream.spliterator(), batchSize), parallel).onClose(stream::close);
+    }
+
+    /**
+     * Groups the elements of a spliterator into lists. Splitting takes the next few batches from the source into an
+     * array, one more batch each time it is split, so the batches keep their order and size.
+     * @param <T> the type of the elements
+     */
+    private static final class BatchSpliterator<T> implements Spliterator<List<T>> {
+        private static final int MAX_SPLIT_BATCHES = 64;
+
+        private final Spliterator<T> source;
+        private final int batchSize;
+        private int splitBatches;
+
+        BatchSpliterator(Spliterator<T> source, int batchSize) {
+            this.source = source;
+            this.batchSize = batchSize;
+        }
+
+        private List<T> nextBatch() {
+            long remaining = source.getExactSizeIfKnown();
+            List<T> batch = new ArrayList<>(remaining < 0 ? batchSize : (int) Math.min(batchSize, remaining));
+            while (batch.size() < batchSize && source.tryAdvance(batch::add)) {
+                //The element was added to the batch
+            }
+            return batch.isEmpty() ? null : batch;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<T>> action) {
+            List<T> batch = nextBatch();
+            if (batch == null) {
+                return false;
+            }
+            action.accept(batch);
+            return true;
+        }
+
+        @Override
+        public Spliterator<List<T>> trySplit() {
+            long remaining = estimateSize();
+            if (remaining <= 1) {
+                return null;
+            }
+            int count = (int) Math.min(Math.min(splitBatches + 1, MAX_SPLIT_BATCHES), remaining);
+            Object[] batches = new Object[count];
+            int taken = 0;
+            List<T> batch;
+            while (taken < count && (batch = nextBatch()) != null) {
+                batches[taken++] = batch;
+            }
+            if (taken == 0) {
+                return null;
+            }
+            splitBatches = taken;
+            @SuppressWarnings("unchecked")
+            Spliterator<List<T>> prefix = (Spliterator<List<T>>) (Spliterator<?>) Spliterators.spliterator(batches, 0, taken, characteristics());
+            return prefix;
+        }
 
-            public boolean hasNext() {
-                return iterator.hasNext();
+        @Override
+        public long estimateSize() {
+            long size = source.estimateSize();
+            if (size == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
             }
+            return size / batchSize + (size % batchSize == 0 ? 0 : 1);
+        }
 
-            public List<T> next() {
-                List<T> result = new ArrayList<>(batchSize);
-                for (int i = 0; i < batchSize && iterator.hasNext(); i++) {
-                    result.add(iterator.next());
-                }
-                return result;
+        @Override
+        public int characteristics() {
+            int characteristics = Spliterator.NONNULL | (source.characteristics() & Spliterator.ORDERED);
+            if (source.hasCharacteristics(Spliterator.SIZED)) {
+                //Splits are whole batches, so the rest of the batches keep an exact size
+                characteristics |= Spliterator.SIZED | Spliterator.SUBSIZED;
             }
-        };
-        return StreamSupport.stream(((Iterable<List<T>>) () -> listIterator).spliterator(), false);
+            return characteristics;
+        }
     }
 }
@@ -0,0 +1,245 @@
+package io.github.concurrentrecursion.sitemap.util;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool that makes {@link CompactUrl}s smaller by sharing the parts they have in common.<br>
+ * The scheme and host of each url (for example {@code https://www.example.com/}) is kept once in a dictionary and
+ * shared by every url that starts with it, so only the rest of the url is stored per url. Urls that are often repeated
+ * between entries, such as image and video urls, are also deduplicated so identical urls are the same instance.<br>
+ * Both the dictionary and the deduplicated urls are limited in size; urls are stored without sharing once either is
+ * full. Set a pool with {@link #setDefault(UrlPool)} to have it used whenever a {@link CompactUrl} is created, including
+ * by the {@code Url}, {@code Image} and {@code Video} constructors and setters and when reading sitemaps.
+ */
+public class UrlPool {
+    /**
+     * The default maximum number of scheme and host prefixes
+     */
+    public static final int DEFAULT_MAX_PREFIXES = 1_024;
+    /**
+     * The default maximum number of deduplicated urls
+     */
+    public static final int DEFAULT_MAX_SHARED_URLS = 1_000_000;
+
+    private static volatile UrlPool defaultPool;
+
+    /**
+     * The maximum number of scheme and host prefixes kept in the dictionary
+     * @return the maximum number of prefixes
+     */
+    @Getter
+    private final int maxPrefixes;
+    /**
+     * The maximum number of deduplicated urls
+     * @return the maximum number of deduplicated urls
+     */
+    @Getter
+    private final int maxSharedUrls;
+
+    private final ConcurrentHashMap<String, byte[]> prefixes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<CompactUrl, CompactUrl> sharedUrls = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder prefixHits = new LongAdder();
+    private final LongAdder sharedRequests = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * Create a pool with the default limits
+     */
+    public UrlPool() {
+        this(DEFAULT_MAX_PREFIXES, DEFAULT_MAX_SHARED_URLS);
+    }
+
+    /**
+     * Create a pool with the given limits
+     * @param maxPrefixes the maximum number of scheme and host prefixes, 0 disables prefix sharing
+     * @param maxSharedUrls the maximum number of deduplicated urls, 0 disables deduplication
+     */
+    public UrlPool(int maxPrefixes, int maxSharedUrls) {
+        if (maxPrefixes < 0 || maxSharedUrls < 0) {
+            throw new IllegalArgumentException("Pool limits cannot be negative");
+        }
+        this.maxPrefixes = maxPrefixes;
+        this.maxSharedUrls = maxSharedUrls;
+    }
+
+    /**
+     * Gets the pool used when a {@link CompactUrl} is created
+     * @return the default pool, or null if urls aren't pooled
+     */
+    public static UrlPool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Sets the pool used when a {@link CompactUrl} is created. Urls that were already created aren't changed.
+     * @param pool the pool to use, or null to stop pooling urls
+     */
+    public static void setDefault(UrlPool pool) {
+        defaultPool = pool;
+    }
+
+    /**
+     * Creates a compact url that shares its scheme and host with the other urls in this pool.<br>
+     * The url must already be valid, use {@link CompactUrl#of(String)} to check it.
+     * @param url the url
+     * @return the compact url
+     */
+    CompactUrl compact(String url) {
+        requests.increment();
+        int split = prefixLength(url);
+        if (split > 0 && CompactUrl.isLatin1(url)) {
+            byte[] prefix = prefix(url.substring(0, split));
+            if (prefix != null) {
+                prefixHits.increment();
+                bytesSaved.add(prefix.length);
+                return new CompactUrl(prefix, url.substring(split).getBytes(StandardCharsets.ISO_8859_1));
+            }
+        }
+        return new CompactUrl(url);
+    }
+
+    /**
+     * Creates a compact url like {@link #compact(String)}, and returns the existing instance if the same url was
+     * already shared.
+     * @param url the url
+     * @return the compact url
+     */
+    CompactUrl share(String url) {
+        CompactUrl compactUrl = compact(url);
+        if (maxSharedUrls == 0) {
+            return compactUrl;
+        }
+        sharedRequests.increment();
+        CompactUrl existing = sharedUrls.get(compactUrl);
+        if (existing == null && sharedUrls.size() < maxSharedUrls) {
+            existing = sharedUrls.putIfAbsent(compactUrl, compactUrl);
+        }
+        if (existing == null) {
+            return compactUrl;
+        }
+        sharedHits.increment();
+        bytesSaved.add(compactUrl.storedLength());
+        return existing;
+    }
+
+    private byte[] prefix(String prefix) {
+        byte[] bytes = prefixes.get(prefix);
+        if (bytes == null && prefixes.size() < maxPrefixes) {
+            bytes = prefixes.computeIfAbsent(prefix, p -> p.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the length of the scheme, host and first slash of the url
+     * @return the length, or 0 if the url doesn't have a host
+     */
+    private static int prefixLength(String url) {
+        int authority = url.indexOf("://");
+        if (authority <= 0) {
+            return 0;
+        }
+        int path = url.indexOf('/', authority + 3);
+        return path < 0 ? 0 : path + 1;
+    }
+
+    /**
+     * Removes every prefix and shared url from this pool and resets the statistics.
+     * Urls that were already created keep their shared parts.
+     */
+    public void clear() {
+        prefixes.clear();
+        sharedUrls.clear();
+        requests.reset();
+        prefixHits.reset();
+        sharedRequests.reset();
+        sharedHits.reset();
+        bytesSaved.reset();
+    }
+
+    /**
+     * Gets a snapshot of the statistics of this pool
+     * @return the statistics
+     */
+    public Stats getStats() {
+        return new Stats(requests.sum(), prefixHits.sum(), sharedRequests.sum(), sharedHits.sum(), bytesSaved.sum(),
+                prefixes.size(), sharedUrls.size());
+    }
+
+    /**
+     * Statistics of a {@link UrlPool}
+     */
+    @Getter
+    @ToString
+    public static class Stats {
+        /**
+         * The number of urls created through the pool
+         * @return the number of urls
+         */
+        private final long requests;
+        /**
+         * The number of urls that share a prefix from the dictionary
+         * @return the number of prefix hits
+         */
+        private final long prefixHits;
+        /**
+         * The number of urls that were looked up in the deduplicated urls
+         * @return the number of lookups
+         */
+        private final long sharedRequests;
+        /**
+         * The number of urls that were replaced by an identical existing url
+         * @return the number of deduplicated urls
+         */
+        private final long sharedHits;
+        /**
+         * The approximate number of bytes of url text that didn't need to be stored
+         * @return the bytes saved
+         */
+        private final long bytesSaved;
+        /**
+         * The number of prefixes in the dictionary
+         * @return the number of prefixes
+         */
+        private final int prefixCount;
+        /**
+         * The number of deduplicated urls
+         * @return the number of deduplicated urls
+         */
+        private final int sharedUrlCount;
+
+        Stats(long requests, long prefixHits, long sharedRequests, long sharedHits, long bytesSaved, int prefixCount, int sharedUrlCount) {
+            this.requests = requests;
+            this.prefixHits = prefixHits;
+            this.sharedRequests = sharedRequests;
+            this.sharedHits = sharedHits;
+            this.bytesSaved = bytesSaved;
+            this.prefixCount = prefixCount;
+            this.sharedUrlCount = sharedUrlCount;
+        }
+
+        /**
+         * The fraction of urls that share a prefix from the dictionary
+         * @return the prefix hit rate, from 0.0 to 1.0
+         */
+        public double getPrefixHitRate() {
+            return requests == 0 ? 0.0 : (double) prefixHits / requests;
+        }
+
+        /**
+         * The fraction of deduplication lookups that found an identical url
+         * @return the deduplication hit rate, from 0.0 to 1.0
+         */
+        public double getSharedHitRate() {
+            return sharedRequests == 0 ? 0.0 : (double) sharedHits / sharedRequests;
+        }
+    }
+}
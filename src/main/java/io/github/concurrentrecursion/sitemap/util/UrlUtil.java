@@ -9,12 +9,14 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.text.Normalizer;
 
 /**
  * This class provides utility methods for working with URLs.
  */
 @UtilityClass
 public class UrlUtil {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
 
     /**
      * Converts the given location string to a URL.
@@ -48,4 +50,81 @@ public class UrlUtil {
             throw new RuntimeMalformedUrlException(e);
         }
     }
+
+    /**
+     * Converts the url to its US-ASCII form, the same as {@link URI#toASCIIString()}.<br>
+     * Any non-ASCII characters are normalized to NFC and percent-encoded as UTF-8. Urls that are already ASCII are
+     * returned as is. The url is only parsed as a {@link URI} when it contains characters that aren't legal in a URI,
+     * in which case the same exception as {@link URI#create(String)} is thrown.
+     *
+     * @param url the url
+     * @return the percent-encoded url
+     * @throws IllegalArgumentException if the url isn't a valid URI
+     */
+    @NotNull
+    public String toAsciiString(@NotNull String url) {
+        boolean ascii = true;
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c < 0x80) {
+                if (!isUriChar(c) || (c == '%' && !isEscape(url, i))) {
+                    return URI.create(url).toASCIIString();
+                }
+            } else if (Character.isSpaceChar(c) || Character.isISOControl(c) || Character.isSurrogate(c)) {
+                //Rare enough to leave to URI, which rejects the first two and replaces unpaired surrogates
+                return URI.create(url).toASCIIString();
+            } else {
+                ascii = false;
+            }
+        }
+        if (url.indexOf('#') != url.lastIndexOf('#')) {
+            return URI.create(url).toASCIIString();
+        }
+        return ascii ? url : percentEncode(Normalizer.normalize(url, Normalizer.Form.NFC));
+    }
+
+    /**
+     * Percent-encodes the non-ASCII characters as UTF-8, the url must not contain surrogates
+     */
+    private String percentEncode(String url) {
+        StringBuilder sb = new StringBuilder(url.length() + 16);
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c < 0x80) {
+                sb.append(c);
+                continue;
+            }
+            if (c < 0x800) {
+                appendEscape(sb, 0xC0 | (c >> 6));
+            } else {
+                appendEscape(sb, 0xE0 | (c >> 12));
+                appendEscape(sb, 0x80 | ((c >> 6) & 0x3F));
+            }
+            appendEscape(sb, 0x80 | (c & 0x3F));
+        }
+        return sb.toString();
+    }
+
+    private void appendEscape(StringBuilder sb, int b) {
+        sb.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+    }
+
+    /**
+     * Whether the ASCII character can appear anywhere in a URI without being escaped.
+     * Brackets are left out as they are only legal in an IPv6 host.
+     */
+    private boolean isUriChar(char c) {
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+            return true;
+        }
+        return "-_.!~*'();/?:@&=+$,%#".indexOf(c) >= 0;
+    }
+
+    private boolean isEscape(String url, int index) {
+        return index + 2 < url.length() && isHexDigit(url.charAt(index + 1)) && isHexDigit(url.charAt(index + 2));
+    }
+
+    private boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
 }
@@ -0,0 +1,105 @@
+package io.github.concurrentrecursion.sitemap;
+
+import io.github.concurrentrecursion.sitemap.io.Compression;
+import io.github.concurrentrecursion.sitemap.io.SitemapReader;
+import io.github.concurrentrecursion.sitemap.io.StreamingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+
+import static io.github.concurrentrecursion.sitemap.TestSitemaps.decompress;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionTest {
+
+    private static byte[] compress(Compression compression, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream os = compression.newOutputStream(bytes)) {
+            //Uneven writes, to cross the buffer boundaries
+            int offset = 0;
+            for (int chunk = 1; offset < data.length; chunk = chunk * 3 + 1) {
+                int length = Math.min(chunk, data.length - offset);
+                os.write(data, offset, length);
+                offset += length;
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] sampleData() {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            sb.append("<url><loc>https://www.example.com/page/").append(random.nextInt()).append("</loc></url>");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        byte[] data = sampleData();
+        List<Compression> compressions = List.of(Compression.gzip(), Compression.gzip(Deflater.BEST_SPEED),
+                Compression.gzip(Deflater.BEST_COMPRESSION), Compression.gzip().withStrategy(Deflater.FILTERED),
+                Compression.gzip().withBufferSize(512), Compression.storeOnly());
+        for (Compression compression : compressions) {
+            assertArrayEquals(data, decompress(compress(compression, data)), compression.toString());
+        }
+        assertArrayEquals(new byte[0], decompress(compress(Compression.gzip(), new byte[0])));
+    }
+
+    @Test
+    void testLevels() throws Exception {
+        byte[] data = sampleData();
+        int stored = compress(Compression.storeOnly(), data).length;
+        int fast = compress(Compression.gzip(Deflater.BEST_SPEED), data).length;
+        int best = compress(Compression.gzip(Deflater.BEST_COMPRESSION), data).length;
+        assertTrue(stored > data.length);
+        assertTrue(fast < stored);
+        assertTrue(best <= fast);
+    }
+
+    @Test
+    void testDeflaterIsReused() throws Exception {
+        Compression compression = Compression.gzip(5);
+        byte[] data = sampleData();
+        byte[] first = compress(compression, data);
+        byte[] second = compress(compression, data);
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void testWriteAfterClose() throws Exception {
+        OutputStream os = Compression.gzip().newOutputStream(new ByteArrayOutputStream());
+        os.close();
+        os.close();
+        assertThrows(IOException.class, () -> os.write(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> Compression.gzip(10));
+        assertThrows(IllegalArgumentException.class, () -> Compression.gzip().withStrategy(7));
+        assertThrows(IllegalArgumentException.class, () -> Compression.gzip().withBufferSize(10));
+    }
+
+    @Test
+    void testStoreOnlySitemap(@TempDir Path tempDir) throws Exception {
+        Path file = new StreamingSitemapWriter().setUseGzip(true).setCompression(Compression.storeOnly())
+                .write(IntStream.range(0, 1000).mapToObj(i -> new Url("https://www.example.com/" + i)), tempDir.resolve("sitemap.xml"));
+        assertEquals("sitemap.xml.gz", file.getFileName().toString());
+        UrlSetSitemap sitemap = (UrlSetSitemap) new SitemapReader().read(Files.newInputStream(file));
+        assertEquals(1000, sitemap.getUrls().size());
+    }
+}
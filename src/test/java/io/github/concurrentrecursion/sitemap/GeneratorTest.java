@@ -25,6 +25,9 @@ import java.security.SecureRandom;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 
@@ -137,6 +140,28 @@ class GeneratorTest {
     }
 
 
+    @Test
+    void testConcurrentWrites() throws Exception {
+        UrlSetSitemap urlSet = UrlSetSitemap.fromUrls(Stream.of(new Url("https://www.example.com/a"), new Url("https://www.example.com/b")));
+        String compact = new SitemapWriter().writeToString(urlSet);
+        String pretty = new SitemapWriter().setPrettyPrint(true).writeToString(urlSet);
+        assertNotEquals(compact, pretty);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                boolean prettyPrint = i % 2 == 0;
+                results.add(executor.submit(() -> new SitemapWriter().setPrettyPrint(prettyPrint).writeToString(urlSet).equals(prettyPrint ? pretty : compact)));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     void testTooBig() throws Exception {
         UrlSetSitemap big = new UrlSetSitemap();
@@ -146,7 +171,9 @@ class GeneratorTest {
         log.debug("Urls added");
         SitemapWriter generator = new SitemapWriter().setPrettyPrint(false);
         Path tempDir = Files.createTempDirectory("sitemap");
-        assertThrows(DataSerializationException.class,() ->generator.write(big,tempDir));
+        Path file = tempDir.resolve("sitemap.xml");
+        assertThrows(DataSerializationException.class,() ->generator.write(big,file));
+        assertFalse(Files.exists(file));
     }
 
 
@@ -178,7 +205,7 @@ class GeneratorTest {
                             .setRating(3.0)
                             .setTags(List.of("stuff","things","seo","sitemaps","guessing","pagerank","math","testing"))
                             .setUploader(new Uploader().setName("Rufus Barksalot").setUploaderInfoUrl("https://www.example.org/profiles/dogs/rufus"))
-                            .setDuration(RANDOM.nextInt(28800))
+                            .setDuration(RANDOM.nextInt(28800) + 1)
                             .setContentUrl(url.getLocation().toString() + "/content/video" + i)
                             .setThumbnailUrl(url.getLocation().toString() + "/thumbnails/video" + i)
                             .setPlayerUrl(url.getLocation().toString() + "/player/video" + i)
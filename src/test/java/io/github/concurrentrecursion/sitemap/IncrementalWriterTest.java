@@ -0,0 +1,134 @@
+package io.github.concurrentrecursion.sitemap;
+
+import io.github.concurrentrecursion.sitemap.io.RollingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.SitemapReference;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.io.SitemapReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URL;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalWriterTest {
+    private static final FileTime OLD = FileTime.fromMillis(0);
+
+    private static List<Url> urls(int count, int changed) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Url("https://www.example.com/page/" + i + (i == changed ? "?v=2" : "")))
+                .collect(Collectors.toList());
+    }
+
+    private static RollingSitemapWriter writer() {
+        return new RollingSitemapWriter().setIncremental(true).setUseGzip(true).setMaxUrls(1000);
+    }
+
+    private static IndexSitemap write(RollingSitemapWriter writer, List<Url> urls, Path directory) throws Exception {
+        IndexSitemap index = writer.write(URI.create("https://www.example.com/").toURL(), urls.stream(), directory);
+        //Mark every file as old, so the files written by the next run can be told apart
+        for (int i = 1; i <= index.getSitemapReferences().size(); i++) {
+            Files.setLastModifiedTime(directory.resolve("sitemap-" + i + ".xml.gz"), OLD);
+        }
+        return index;
+    }
+
+    private static Map<URL, OffsetDateTime> lastModified(IndexSitemap index) {
+        return index.getSitemapReferences().stream().collect(Collectors.toMap(SitemapReference::getLocation, SitemapReference::getLastModifiedDate));
+    }
+
+    @Test
+    void testUnchangedFilesAreSkipped(@TempDir Path tempDir) throws Exception {
+        IndexSitemap first = write(writer(), urls(2500, -1), tempDir);
+        assertTrue(Files.exists(tempDir.resolve("sitemap-manifest.properties")));
+        Thread.sleep(5);
+        IndexSitemap second = writer().write(URI.create("https://www.example.com/").toURL(), urls(2500, -1).stream(), tempDir);
+        assertEquals(lastModified(first), lastModified(second));
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(OLD, Files.getLastModifiedTime(tempDir.resolve("sitemap-" + i + ".xml.gz")));
+        }
+        try (var files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void testOnlyChangedFileIsWritten(@TempDir Path tempDir) throws Exception {
+        IndexSitemap first = write(writer(), urls(2500, -1), tempDir);
+        Thread.sleep(5);
+        IndexSitemap second = writer().write(URI.create("https://www.example.com/").toURL(), urls(2500, 1500).stream(), tempDir);
+
+        List<SitemapReference> before = first.getSitemapReferences();
+        List<SitemapReference> after = second.getSitemapReferences();
+        assertEquals(before.get(0).getLastModifiedDate(), after.get(0).getLastModifiedDate());
+        assertTrue(after.get(1).getLastModifiedDate().isAfter(before.get(1).getLastModifiedDate()));
+        assertEquals(before.get(2).getLastModifiedDate(), after.get(2).getLastModifiedDate());
+        assertEquals(OLD, Files.getLastModifiedTime(tempDir.resolve("sitemap-1.xml.gz")));
+        assertNotEquals(OLD, Files.getLastModifiedTime(tempDir.resolve("sitemap-2.xml.gz")));
+        assertEquals(OLD, Files.getLastModifiedTime(tempDir.resolve("sitemap-3.xml.gz")));
+
+        UrlSetSitemap changed = (UrlSetSitemap) new SitemapReader().read(Files.newInputStream(tempDir.resolve("sitemap-2.xml.gz")));
+        Map<String, Url> byLocation = changed.getUrls().stream().collect(Collectors.toMap(url -> url.getLocation().toString(), Function.identity()));
+        assertTrue(byLocation.containsKey("https://www.example.com/page/1500?v=2"));
+    }
+
+    @Test
+    void testMissingFileIsWritten(@TempDir Path tempDir) throws Exception {
+        write(writer(), urls(2500, -1), tempDir);
+        Files.delete(tempDir.resolve("sitemap-3.xml.gz"));
+        writer().write(URI.create("https://www.example.com/").toURL(), urls(2500, -1).stream(), tempDir);
+        assertTrue(Files.exists(tempDir.resolve("sitemap-3.xml.gz")));
+        assertEquals(OLD, Files.getLastModifiedTime(tempDir.resolve("sitemap-1.xml.gz")));
+    }
+
+    @Test
+    void testStaleFilesAreRemoved(@TempDir Path tempDir) throws Exception {
+        write(writer(), urls(2500, -1), tempDir);
+        IndexSitemap index = writer().write(URI.create("https://www.example.com/").toURL(), urls(1500, -1).stream(), tempDir);
+        assertEquals(2, index.getSitemapReferences().size());
+        assertFalse(Files.exists(tempDir.resolve("sitemap-3.xml.gz")));
+        assertFalse(Files.readString(tempDir.resolve("sitemap-manifest.properties")).contains("sitemap-3.xml.gz"));
+    }
+
+    @Test
+    void testStaleCopiesAndChecksumsAreRemoved(@TempDir Path tempDir) throws Exception {
+        RollingSitemapWriter writer = writer().setWriteUncompressedCopy(true).setChecksumAlgorithm("SHA-256");
+        write(writer, urls(2500, -1), tempDir);
+        List<String> stale = List.of("sitemap-3.xml.gz", "sitemap-3.xml", "sitemap-3.xml.gz.sha256", "sitemap-3.xml.sha256");
+        for (String name : stale) {
+            assertTrue(Files.exists(tempDir.resolve(name)), name);
+        }
+        writer.write(URI.create("https://www.example.com/").toURL(), urls(1500, -1).stream(), tempDir);
+        for (String name : stale) {
+            assertFalse(Files.exists(tempDir.resolve(name)), name);
+        }
+        assertTrue(Files.exists(tempDir.resolve("sitemap-2.xml")));
+        assertTrue(Files.exists(tempDir.resolve("sitemap-2.xml.sha256")));
+    }
+
+    @Test
+    void testFailedWriteIsNotPublished(@TempDir Path tempDir) throws Exception {
+        write(writer(), urls(2500, -1), tempDir);
+        byte[] manifest = Files.readAllBytes(tempDir.resolve("sitemap-manifest.properties"));
+        List<Url> urls = urls(2500, -1);
+        urls.set(1800, null);
+        assertThrows(RuntimeException.class, () -> writer().write(URI.create("https://www.example.com/").toURL(), urls.stream(), tempDir));
+        assertEquals(OLD, Files.getLastModifiedTime(tempDir.resolve("sitemap-2.xml.gz")));
+        assertArrayEquals(manifest, Files.readAllBytes(tempDir.resolve("sitemap-manifest.properties")));
+        try (var files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.concurrentrecursion.sitemap;
+
+import io.github.concurrentrecursion.sitemap.io.InvalidUrlPolicy;
+import io.github.concurrentrecursion.sitemap.io.RollingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.SitemapReader;
+import io.github.concurrentrecursion.sitemap.io.StreamingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.ValidationErrors;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.model.google.news.News;
+import io.github.concurrentrecursion.sitemap.model.google.news.Publication;
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InlineValidationTest {
+    private static final String LONG_PATH = "a".repeat(2048);
+
+    /**
+     * Every third url has a priority that is too high, and every fifth url is too long
+     */
+    private static Stream<Url> urls(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            Url url = new Url("https://www.example.com/" + (i % 5 == 4 ? LONG_PATH : "page") + "/" + i);
+            return i % 3 == 2 ? url.setPriority(1.5) : url;
+        });
+    }
+
+    @Test
+    void testNoPolicyWritesEverything() {
+        String xml = new StreamingSitemapWriter().writeToString(urls(10));
+        assertEquals(10, xml.split("<url>").length - 1);
+    }
+
+    @Test
+    void testSkip() {
+        ValidationErrors errors = new ValidationErrors(3);
+        StreamingSitemapWriter writer = new StreamingSitemapWriter().setInvalidUrlPolicy(InvalidUrlPolicy.SKIP).setValidationErrors(errors);
+        UrlSetSitemap urlSet = new SitemapReader().readUrlSet(new ByteArrayInputStream(writer.writeToString(urls(30)).getBytes(StandardCharsets.UTF_8)));
+        //Positions 2, 4, 5, 8, 9, 11, 14, ... are invalid
+        long invalid = IntStream.range(0, 30).filter(i -> i % 3 == 2 || i % 5 == 4).count();
+        assertEquals(30 - invalid, urlSet.getUrls().size());
+        assertTrue(urlSet.getUrls().stream().allMatch(url -> url.getPriority() == null && url.getLocation().toString().length() < 2048));
+
+        assertEquals(invalid, errors.getInvalidUrlCount());
+        assertEquals(List.of(2L, 4L, 5L), errors.getErrors().stream().map(ValidationErrors.InvalidUrl::getPosition).collect(Collectors.toList()));
+        assertEquals("https://www.example.com/page/2", errors.getErrors().get(0).getLocation());
+        List<ValidationErrors.Violation> violations = errors.getErrors().get(0).getViolations();
+        assertEquals(1, violations.size());
+        assertEquals("DecimalMax", violations.get(0).getConstraint());
+        assertEquals("priority", violations.get(0).getPath());
+        assertNotNull(violations.get(0).getMessage());
+        assertEquals(Map.of("DecimalMax", 10L, "UrlLengthConstraint", 6L), errors.getCountsByConstraint());
+    }
+
+    @Test
+    void testWriteAnyway() {
+        ValidationErrors errors = new ValidationErrors();
+        StreamingSitemapWriter writer = new StreamingSitemapWriter().setInvalidUrlPolicy(InvalidUrlPolicy.WRITE_ANYWAY).setValidationErrors(errors);
+        String xml = writer.writeToString(urls(10));
+        assertEquals(10, xml.split("<url>").length - 1);
+        assertEquals(5, errors.getInvalidUrlCount());
+        assertEquals(5, errors.getErrors().size());
+        errors.clear();
+        assertTrue(errors.isEmpty());
+        assertTrue(errors.getCountsByConstraint().isEmpty());
+    }
+
+    @Test
+    void testFailFast(@TempDir Path tempDir) {
+        ValidationErrors errors = new ValidationErrors();
+        StreamingSitemapWriter writer = new StreamingSitemapWriter().setUseGzip(true).setInvalidUrlPolicy(InvalidUrlPolicy.FAIL_FAST).setValidationErrors(errors);
+        ConstraintViolationException e = assertThrows(ConstraintViolationException.class, () -> writer.write(urls(10), tempDir.resolve("sitemap.xml")));
+        assertEquals(1, e.getConstraintViolations().size());
+        assertEquals(1, errors.getInvalidUrlCount());
+        assertFalse(Files.exists(tempDir.resolve("sitemap.xml.gz")));
+
+        assertDoesNotThrow(() -> writer.write(urls(2), tempDir.resolve("sitemap.xml")));
+        assertTrue(Files.exists(tempDir.resolve("sitemap.xml.gz")));
+    }
+
+    @Test
+    void testRollingWriter(@TempDir Path tempDir) throws Exception {
+        ValidationErrors errors = new ValidationErrors();
+        RollingSitemapWriter writer = new RollingSitemapWriter().setMaxUrls(10).setInvalidUrlPolicy(InvalidUrlPolicy.SKIP).setValidationErrors(errors);
+        IndexSitemap index = writer.write(URI.create("https://www.example.com/").toURL(), urls(30), tempDir);
+        assertEquals(2, index.getSitemapReferences().size());
+        assertEquals(14, errors.getInvalidUrlCount());
+
+        writer.setInvalidUrlPolicy(InvalidUrlPolicy.FAIL_FAST).setFilenamePrefix("strict")
+                .setUseGzip(true).setWriteUncompressedCopy(true).setChecksumAlgorithm("SHA-256");
+        assertThrows(ConstraintViolationException.class, () -> writer.write(URI.create("https://www.example.com/").toURL(), urls(30), tempDir));
+        assertFalse(Files.exists(tempDir.resolve("strict-index.xml")));
+        //Nothing of the urlset that was being written is left behind
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(), files.map(file -> file.getFileName().toString()).filter(name -> name.startsWith("strict")).collect(Collectors.toList()));
+        }
+    }
+
+    private static Stream<Url> news(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new Url("https://www.example.com/news/" + i)
+                .setNews(new News().setTitle("News " + i).setPublication(new Publication("The Example Times", "en"))));
+    }
+
+    @Test
+    void testNewsLimit(@TempDir Path tempDir) {
+        ValidationErrors errors = new ValidationErrors();
+        StreamingSitemapWriter writer = new StreamingSitemapWriter().setInvalidUrlPolicy(InvalidUrlPolicy.SKIP).setValidationErrors(errors);
+        UrlSetSitemap urlSet = new SitemapReader().readUrlSet(new ByteArrayInputStream(writer.writeToString(news(1010)).getBytes(StandardCharsets.UTF_8)));
+        assertEquals(1000, urlSet.getNewsCount());
+        assertEquals(Map.of("MaxNewsConstraint", 10L), errors.getCountsByConstraint());
+        assertEquals(1000L, errors.getErrors().get(0).getPosition());
+        assertEquals("news", errors.getErrors().get(0).getViolations().get(0).getPath());
+
+        errors.clear();
+        writer.setInvalidUrlPolicy(InvalidUrlPolicy.WRITE_ANYWAY);
+        assertEquals(1010, writer.writeToString(news(1010)).split("<url>").length - 1);
+        assertEquals(10, errors.getInvalidUrlCount());
+
+        writer.setInvalidUrlPolicy(InvalidUrlPolicy.FAIL_FAST);
+        ConstraintViolationException e = assertThrows(ConstraintViolationException.class, () -> writer.write(news(1010), tempDir.resolve("news.xml")));
+        assertTrue(e.getMessage().contains("position 1000"), e.getMessage());
+        assertFalse(Files.exists(tempDir.resolve("news.xml")));
+        assertDoesNotThrow(() -> writer.write(news(1000), tempDir.resolve("news.xml")));
+    }
+
+    @Test
+    void testInvalidMaxErrors() {
+        assertThrows(IllegalArgumentException.class, () -> new ValidationErrors(-1));
+    }
+}
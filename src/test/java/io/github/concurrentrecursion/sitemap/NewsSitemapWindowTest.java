@@ -0,0 +1,174 @@
+package io.github.concurrentrecursion.sitemap;
+
+import io.github.concurrentrecursion.sitemap.io.NewsSitemapWindow;
+import io.github.concurrentrecursion.sitemap.io.SitemapReader;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.model.google.news.News;
+import io.github.concurrentrecursion.sitemap.model.google.news.Publication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NewsSitemapWindowTest {
+    private static final OffsetDateTime START = OffsetDateTime.parse("2024-05-01T00:00:00Z");
+
+    /**
+     * A clock that only moves when the test moves it
+     */
+    private static final class TestClock extends Clock {
+        private Instant now = START.toInstant();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private static Url article(int i, OffsetDateTime published) {
+        return new Url("https://news.example.com/article/" + i).setNews(new News()
+                .setTitle("Article " + i)
+                .setPublication(new Publication("The Example Times", "en"))
+                .setPublicationDate(published));
+    }
+
+    private static URL directoryUrl() throws Exception {
+        return URI.create("https://news.example.com/").toURL();
+    }
+
+    private static UrlSetSitemap read(Path file) throws Exception {
+        try (InputStream is = Files.newInputStream(file)) {
+            return new SitemapReader().readUrlSet(is);
+        }
+    }
+
+    private static void resetModifiedTimes(Path directory, int files) throws Exception {
+        for (int i = 1; i <= files; i++) {
+            Path file = directory.resolve("news-sitemap-" + i + ".xml");
+            if (Files.exists(file)) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+            }
+        }
+    }
+
+    private static boolean rewritten(Path directory, int number) throws Exception {
+        return !Files.getLastModifiedTime(directory.resolve("news-sitemap-" + number + ".xml")).equals(FileTime.fromMillis(0));
+    }
+
+    @Test
+    void testRollingWindow(@TempDir Path directory) throws Exception {
+        TestClock clock = new TestClock();
+        NewsSitemapWindow window = new NewsSitemapWindow().setClock(clock).setMaxNewsPerFile(100);
+        //An article a minute for 250 minutes, the oldest first
+        for (int i = 0; i < 250; i++) {
+            clock.advance(Duration.ofMinutes(1));
+            assertTrue(window.add(article(i, OffsetDateTime.now(clock))));
+        }
+        IndexSitemap index = window.publish(directoryUrl(), directory);
+        assertEquals(List.of("https://news.example.com/news-sitemap-1.xml", "https://news.example.com/news-sitemap-2.xml", "https://news.example.com/news-sitemap-3.xml"),
+                index.getSitemapReferences().stream().map(reference -> reference.getLocation().toString()).collect(Collectors.toList()));
+        assertEquals(100, read(directory.resolve("news-sitemap-1.xml")).getNewsCount());
+        assertEquals(50, read(directory.resolve("news-sitemap-3.xml")).getNewsCount());
+        assertTrue(Files.exists(directory.resolve("news-sitemap-index.xml")));
+
+        //The first 100 articles leave the window, so only the first file changes and it is deleted
+        resetModifiedTimes(directory, 3);
+        clock.advance(Duration.ofDays(2).minusMinutes(250).plusMinutes(100).plusSeconds(30));
+        index = window.publish(directoryUrl(), directory);
+        assertEquals(150, window.size());
+        assertFalse(Files.exists(directory.resolve("news-sitemap-1.xml")));
+        assertFalse(rewritten(directory, 2));
+        assertFalse(rewritten(directory, 3));
+        assertEquals(2, index.getSitemapReferences().size());
+
+        //A new article goes to the first file with room
+        assertTrue(window.add(article(250, OffsetDateTime.now(clock))));
+        window.publish(directoryUrl(), directory);
+        assertFalse(rewritten(directory, 2));
+        assertTrue(rewritten(directory, 3));
+        assertEquals(51, read(directory.resolve("news-sitemap-3.xml")).getNewsCount());
+
+        //Updating an article only rewrites its own file
+        resetModifiedTimes(directory, 3);
+        Url updated = article(150, START.plusMinutes(151));
+        updated.getNews().setTitle("Updated");
+        assertTrue(window.add(updated));
+        assertEquals(151, window.size());
+        window.publish(directoryUrl(), directory);
+        assertTrue(rewritten(directory, 2));
+        assertFalse(rewritten(directory, 3));
+        assertTrue(read(directory.resolve("news-sitemap-2.xml")).getUrls().stream().anyMatch(url -> url.getNews().getTitle().equals("Updated")));
+
+        //Nothing changed, so nothing is written
+        resetModifiedTimes(directory, 3);
+        window.publish(directoryUrl(), directory);
+        assertFalse(rewritten(directory, 2));
+        assertFalse(rewritten(directory, 3));
+    }
+
+    @Test
+    void testNewFileReusesFreedNumber(@TempDir Path directory) throws Exception {
+        TestClock clock = new TestClock();
+        NewsSitemapWindow window = new NewsSitemapWindow().setClock(clock).setMaxNewsPerFile(10).setWindow(Duration.ofHours(1));
+        for (int i = 0; i < 20; i++) {
+            window.add(article(i, OffsetDateTime.now(clock).minusMinutes(20 - i)));
+        }
+        window.publish(directoryUrl(), directory);
+        clock.advance(Duration.ofMinutes(50));
+        assertEquals(10, window.evictExpired());
+        for (int i = 20; i < 25; i++) {
+            window.add(article(i, OffsetDateTime.now(clock)));
+        }
+        IndexSitemap index = window.publish(directoryUrl(), directory);
+        assertEquals(2, index.getSitemapReferences().size());
+        assertEquals(5, read(directory.resolve("news-sitemap-1.xml")).getNewsCount());
+        assertEquals(10, read(directory.resolve("news-sitemap-2.xml")).getNewsCount());
+    }
+
+    @Test
+    void testAddAndRemove() {
+        TestClock clock = new TestClock();
+        NewsSitemapWindow window = new NewsSitemapWindow().setClock(clock);
+        assertFalse(window.add(article(1, START.minusDays(3))));
+        assertTrue(window.add(article(2, START.minusHours(1))));
+        assertTrue(window.remove("https://news.example.com/article/2"));
+        assertFalse(window.remove("https://news.example.com/article/2"));
+        assertEquals(0, window.size());
+
+        assertThrows(IllegalArgumentException.class, () -> window.add(new Url("https://news.example.com/")));
+        assertThrows(IllegalArgumentException.class, () -> window.add(new Url("https://news.example.com/").setNews(new News().setTitle("No date"))));
+        assertThrows(IllegalArgumentException.class, () -> window.setMaxNewsPerFile(1001));
+        assertThrows(IllegalArgumentException.class, () -> window.setWindow(Duration.ZERO));
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.concurrentrecursion.sitemap;
+
+import io.github.concurrentrecursion.sitemap.io.ParallelSitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.SitemapReader;
+import io.github.concurrentrecursion.sitemap.io.SitemapWriter;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.SitemapReference;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelWriterTest {
+
+    private static IndexSitemap index(int urls) throws Exception {
+        URL directory = URI.create("https://www.example.com/sitemaps/").toURL();
+        return new IndexSitemap(directory, IntStream.range(0, urls).mapToObj(i -> new Url("https://www.example.com/page/" + i)));
+    }
+
+    @Test
+    void testMatchesSerialOutput(@TempDir Path tempDir) throws Exception {
+        URL directory = URI.create("https://www.example.com/sitemaps/").toURL();
+        IndexSitemap index = new ParallelSitemapWriter().setParallelism(4).write(directory, index(120_001), tempDir);
+
+        List<SitemapReference> references = index.getSitemapReferences();
+        assertEquals(3, references.size());
+        assertEquals(tempDir.resolve("sitemap-index.xml"), index.getFile());
+        SitemapWriter serial = new SitemapWriter();
+        for (int i = 0; i < references.size(); i++) {
+            SitemapReference reference = references.get(i);
+            assertEquals("https://www.example.com/sitemaps/sitemap-" + (i + 1) + ".xml", reference.getLocation().toString());
+            assertNotNull(reference.getLastModifiedDate());
+            Path expected = Files.createTempFile(tempDir, "serial", ".xml");
+            serial.write(reference.getSitemap(), expected);
+            assertEquals(Files.readString(expected), Files.readString(tempDir.resolve("sitemap-" + (i + 1) + ".xml")));
+        }
+        //Every reference was written with the same timestamp
+        assertEquals(1, references.stream().map(SitemapReference::getLastModifiedDate).distinct().count());
+
+        IndexSitemap written = (IndexSitemap) new SitemapReader().read(Files.newInputStream(index.getFile()));
+        assertEquals(3, written.getSitemapReferences().size());
+    }
+
+    @Test
+    void testGzipWithExecutor(@TempDir Path tempDir) throws Exception {
+        URL directory = URI.create("https://www.example.com/sitemaps/").toURL();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            IndexSitemap index = new ParallelSitemapWriter(new SitemapWriter().setUseGzip(true).setFilenamePrefix("products")).setExecutor(pool)
+                    .write(directory, index(60_000), tempDir);
+            assertEquals("https://www.example.com/sitemaps/products-2.xml.gz", index.getSitemapReferences().get(1).getLocation().toString());
+            try (InputStream is = new GZIPInputStream(Files.newInputStream(tempDir.resolve("products-2.xml.gz")))) {
+                UrlSetSitemap urlSet = (UrlSetSitemap) new SitemapReader().read(is);
+                assertEquals(10_000, urlSet.getUrls().size());
+                assertEquals("https://www.example.com/page/50000", urlSet.getUrls().get(0).getLocation().toString());
+            }
+            assertTrue(Files.exists(tempDir.resolve("products-index.xml")));
+            assertFalse(pool.isShutdown());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testInvalidUrlSet(@TempDir Path tempDir) throws Exception {
+        URL directory = URI.create("https://www.example.com/sitemaps/").toURL();
+        IndexSitemap index = index(60_000);
+        index.getSitemapReferences().get(1).getSitemap().getUrls().get(0).setPriority(2.0);
+        ParallelSitemapWriter writer = new ParallelSitemapWriter().setParallelism(2);
+        assertThrows(ConstraintViolationException.class, () -> writer.write(directory, index, tempDir));
+        assertFalse(Files.exists(tempDir.resolve("sitemap-index.xml")));
+        //The urlset that was written before the failure is deleted
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testFailureDeletesWrittenUrlSets(@TempDir Path tempDir) throws Exception {
+        URL directory = URI.create("https://www.example.com/sitemaps/").toURL();
+        IndexSitemap index = new IndexSitemap();
+        for (int i = 0; i < 20; i++) {
+            index.getSitemapReferences().add(new SitemapReference().setSitemap(UrlSetSitemap.fromUrls(new Url("https://www.example.com/page/" + i))));
+        }
+        //The urlsets are written one at a time, so every other urlset, with its checksum, is written before the last one fails
+        index.getSitemapReferences().get(19).getSitemap().getUrls().get(0).setPriority(2.0);
+        ParallelSitemapWriter writer = new ParallelSitemapWriter(new SitemapWriter().setUseGzip(true).setChecksumAlgorithm("SHA-256")).setParallelism(1);
+        assertThrows(ConstraintViolationException.class, () -> writer.write(directory, index, tempDir));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(), files.collect(Collectors.toList()));
+        }
+    }
+}
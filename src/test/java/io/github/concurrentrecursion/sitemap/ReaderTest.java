@@ -2,17 +2,32 @@ package io.github.concurrentrecursion.sitemap;
 
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
 import io.github.concurrentrecursion.exception.DataAccessException;
+import io.github.concurrentrecursion.sitemap.io.HttpCache;
 import io.github.concurrentrecursion.sitemap.io.SitemapReader;
+import io.github.concurrentrecursion.sitemap.io.UrlSetResult;
 import io.github.concurrentrecursion.sitemap.model.*;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -162,5 +177,250 @@ class ReaderTest {
         assertInstanceOf(IndexSitemap.class, sitemap);
     }
 
+    @Test
+    void testStreamUrls() {
+        stubFor(get("/sitemap.xml").withHost(equalTo("www.example.com")).willReturn(ok().withHeader("Content-Type", "text/xml;charset=utf-8").withBodyFile("sitemaps/video-sitemap.xml")));
+
+        SitemapReader reader = new SitemapReader();
+        List<Url> urls;
+        try (Stream<Url> stream = reader.streamUrls(SITEMAP_URL)) {
+            urls = stream.collect(Collectors.toList());
+        }
+        assertEquals(3, urls.size());
+        assertEquals("Grilling steaks for summer", urls.get(0).getVideos().get(0).getTitle());
+        assertEquals("Grilling steaks for winter", urls.get(0).getVideos().get(1).getTitle());
+        assertEquals("Lizzi is painting the wall", urls.get(1).getVideos().get(0).getTitle());
+    }
+
+    @Test
+    void testStreamUrlsClosesInputStream() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        InputStream is = new FilterInputStream(Thread.currentThread().getContextClassLoader().getResourceAsStream("__files/sitemaps/image-sitemap-withdeprecated.xml")) {
+            @Override
+            public void close() throws IOException {
+                closed.set(true);
+                super.close();
+            }
+        };
+        SitemapReader reader = new SitemapReader();
+        try (Stream<Url> stream = reader.streamUrls(is)) {
+            Url first = stream.findFirst().orElseThrow();
+            assertEquals(2, first.getImages().size());
+            assertFalse(closed.get());
+        }
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void testStreamUrlsFromIndex() {
+        SitemapReader reader = new SitemapReader();
+        InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream("__files/sitemaps/index-sitemap.xml");
+        assertThrows(DataAccessException.class, () -> reader.streamUrls(is));
+    }
+
+    @Test
+    void testHttpClientIsReused() {
+        stubFor(get("/sitemap.xml").withHost(equalTo("www.example.com")).willReturn(ok().withHeader("Content-Type", "text/xml;charset=utf-8").withBodyFile("sitemaps/minimal-sitemap.xml")));
+
+        SitemapReader reader = new SitemapReader();
+        HttpClient client = reader.getHttpClient();
+        reader.readUrlSet(SITEMAP_URL);
+        reader.readUrlSet(SITEMAP_URL);
+        assertSame(client, reader.getHttpClient());
 
+        reader.setConnectionTimeout(Duration.ofSeconds(1));
+        assertNotSame(client, reader.getHttpClient());
+        assertEquals(Duration.ofSeconds(1), reader.getHttpClient().connectTimeout().orElseThrow());
+    }
+
+    @Test
+    void testBuilderWithHttpClient() {
+        stubFor(get("/sitemap.xml").withHost(equalTo("www.example.com")).willReturn(ok().withHeader("Content-Type", "text/xml;charset=utf-8").withBodyFile("sitemaps/minimal-sitemap.xml")));
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        SitemapReader reader = SitemapReader.builder().httpClient(client).readTimeout(Duration.ofSeconds(2)).build();
+        reader.setConnectionTimeout(Duration.ofSeconds(1));
+        assertSame(client, reader.getHttpClient());
+        assertEquals(Duration.ofSeconds(2), reader.getReadTimeout());
+        assertEquals(Duration.ofSeconds(5), SitemapReader.builder().build().getConnectionTimeout());
+        assertEquals(1, reader.readUrlSet(SITEMAP_URL).getUrls().size());
+    }
+
+    private static IndexSitemap childIndex(String... paths) throws MalformedURLException {
+        IndexSitemap index = new IndexSitemap();
+        for (String path : paths) {
+            index.getSitemapReferences().add(new SitemapReference().setLocation(URI.create("http://www.example.com" + path).toURL()));
+        }
+        return index;
+    }
+
+    @Test
+    void testReadUrlSetsConcurrently() throws Exception {
+        stubFor(get("/slow.xml").withHost(equalTo("www.example.com")).willReturn(ok().withHeader("Content-Type", "text/xml;charset=utf-8").withFixedDelay(500).withBodyFile("sitemaps/video-sitemap.xml")));
+        stubFor(get("/minimal.xml").withHost(equalTo("www.example.com")).willReturn(ok().withHeader("Content-Type", "text/xml;charset=utf-8").withBodyFile("sitemaps/minimal-sitemap.xml")));
+        stubFor(get("/missing.xml").withHost(equalTo("www.example.com")).willReturn(notFound()));
+        IndexSitemap index = childIndex("/slow.xml", "/minimal.xml", "/missing.xml", "/minimal.xml");
+
+        SitemapReader reader = new SitemapReader();
+        List<UrlSetResult> ordered = reader.readUrlSets(index, 4, true);
+        assertEquals(4, ordered.size());
+        for (int i = 0; i < 4; i++) {
+            assertSame(index.getSitemapReferences().get(i), ordered.get(i).getReference());
+        }
+        assertEquals(3, ordered.get(0).getSitemap().getUrls().size());
+        assertEquals(1, ordered.get(1).getSitemap().getUrls().size());
+        assertFalse(ordered.get(2).isSuccess());
+        assertInstanceOf(DataAccessException.class, ordered.get(2).getError());
+        assertNull(ordered.get(2).getSitemap());
+        assertTrue(ordered.get(3).isSuccess());
+        assertFalse(ordered.get(0).toString().contains("How To Grill Steaks"));
+
+        List<UrlSetResult> unordered = reader.readUrlSets(index, 4, false);
+        assertEquals(4, unordered.size());
+        assertSame(index.getSitemapReferences().get(0), unordered.get(3).getReference());
+    }
+
+    @Test
+    void testReadUrlSetsInvalidConcurrency() {
+        SitemapReader reader = new SitemapReader();
+        IndexSitemap index = new IndexSitemap();
+        assertThrows(IllegalArgumentException.class, () -> reader.readUrlSets(index, 0, true));
+    }
+
+    private static byte[] gzipResource(String resource) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(resource);
+             OutputStream os = new GZIPOutputStream(bytes)) {
+            is.transferTo(os);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void testReadGzipFile() throws Exception {
+        byte[] gzip = gzipResource("__files/sitemaps/video-sitemap.xml");
+        stubFor(get("/sitemap.xml.gz").withHost(equalTo("www.example.com")).willReturn(ok().withHeader("Content-Type", "application/gzip").withBody(gzip)));
+
+        SitemapReader reader = new SitemapReader();
+        UrlSetSitemap sitemap = reader.readUrlSet(URI.create("http://www.example.com/sitemap.xml.gz").toURL());
+        assertEquals(3, sitemap.getUrls().size());
+        assertEquals(3, reader.readUrlSet(new ByteArrayInputStream(gzip)).getUrls().size());
+        try (Stream<Url> urls = reader.streamUrls(new ByteArrayInputStream(gzip))) {
+            assertEquals(3, urls.count());
+        }
+    }
+
+    @Test
+    void testReadGzipContentEncoding() throws Exception {
+        stubFor(get("/sitemap.xml").withHost(equalTo("www.example.com")).willReturn(ok()
+                .withHeader("Content-Type", "text/xml;charset=utf-8")
+                .withHeader("Content-Encoding", "gzip")
+                .withBody(gzipResource("__files/sitemaps/news-sitemap.xml"))));
+
+        SitemapReader reader = new SitemapReader();
+        Sitemap sitemap = reader.read(SITEMAP_URL);
+        assertInstanceOf(UrlSetSitemap.class, sitemap);
+        assertEquals("Companies A, B in Merger Talks", ((UrlSetSitemap) sitemap).getUrls().get(0).getNews().getTitle());
+        verify(getRequestedFor(urlEqualTo("/sitemap.xml")).withHeader("Accept-Encoding", equalTo("gzip")));
+    }
+
+    @Test
+    void testHttpCacheNotModified() throws Exception {
+        stubFor(get("/sitemap.xml").withHost(equalTo("www.example.com")).willReturn(ok()
+                .withHeader("Content-Type", "text/xml;charset=utf-8")
+                .withHeader("ETag", "\"v1\"")
+                .withBodyFile("sitemaps/minimal-sitemap.xml")));
+        stubFor(get("/sitemap.xml").withHost(equalTo("www.example.com")).withHeader("If-None-Match", equalTo("\"v1\""))
+                .atPriority(1).willReturn(aResponse().withStatus(304)));
+
+        HttpCache cache = new HttpCache(Files.createTempDirectory("http-cache"), 1024 * 1024);
+        SitemapReader reader = SitemapReader.builder().httpCache(cache).build();
+        assertTrue(reader.readIfModified(SITEMAP_URL).isPresent());
+        assertTrue(cache.getSize() > 0);
+        assertTrue(reader.readIfModified(SITEMAP_URL).isEmpty());
+        assertEquals(1, reader.readUrlSet(SITEMAP_URL).getUrls().size());
+        verify(3, getRequestedFor(urlEqualTo("/sitemap.xml")));
+        verify(2, getRequestedFor(urlEqualTo("/sitemap.xml")).withHeader("If-None-Match", equalTo("\"v1\"")));
+
+        //A new cache in the same directory keeps the entry
+        HttpCache reopened = new HttpCache(cache.getDirectory(), 1024 * 1024);
+        assertEquals(cache.getSize(), reopened.getSize());
+        assertTrue(SitemapReader.builder().httpCache(reopened).build().readIfModified(SITEMAP_URL).isEmpty());
+    }
+
+    @Test
+    void testHttpCacheNotModifiedWithoutBody() throws Exception {
+        stubFor(get("/sitemap.xml").withHost(equalTo("www.example.com")).willReturn(ok()
+                .withHeader("Content-Type", "text/xml;charset=utf-8")
+                .withHeader("ETag", "\"v1\"")
+                .withBodyFile("sitemaps/minimal-sitemap.xml")));
+        stubFor(get("/sitemap.xml").withHost(equalTo("www.example.com")).withHeader("If-None-Match", equalTo("\"v1\""))
+                .atPriority(1).willReturn(aResponse().withStatus(304)));
+
+        HttpCache cache = new HttpCache(Files.createTempDirectory("http-cache"), 1024 * 1024);
+        SitemapReader reader = new SitemapReader().setHttpCache(cache);
+        assertEquals(1, reader.readUrlSet(SITEMAP_URL).getUrls().size());
+        try (Stream<Path> files = Files.list(cache.getDirectory())) {
+            for (Path body : (Iterable<Path>) files.filter(file -> file.toString().endsWith(".body"))::iterator) {
+                Files.delete(body);
+            }
+        }
+        //The server says not modified, but there is nothing to serve, so the sitemap is requested again without validators
+        assertEquals(1, reader.readUrlSet(SITEMAP_URL).getUrls().size());
+        verify(3, getRequestedFor(urlEqualTo("/sitemap.xml")));
+        verify(1, getRequestedFor(urlEqualTo("/sitemap.xml")).withHeader("If-None-Match", equalTo("\"v1\"")));
+        assertTrue(cache.getSize() > 0);
+    }
+
+    @Test
+    void testHttpCacheEviction() throws Exception {
+        stubFor(get(urlMatching("/sitemap[0-9].xml")).withHost(equalTo("www.example.com")).willReturn(ok()
+                .withHeader("Content-Type", "text/xml;charset=utf-8")
+                .withHeader("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT")
+                .withBodyFile("sitemaps/minimal-sitemap.xml")));
+        long bodySize;
+        try (InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream("__files/sitemaps/minimal-sitemap.xml")) {
+            bodySize = is.readAllBytes().length;
+        }
+
+        HttpCache cache = new HttpCache(Files.createTempDirectory("http-cache"), bodySize * 2);
+        SitemapReader reader = new SitemapReader().setHttpCache(cache);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1, reader.readUrlSet(URI.create("http://www.example.com/sitemap" + i + ".xml").toURL()).getUrls().size());
+            assertTrue(cache.getSize() <= bodySize * 2);
+        }
+        try (Stream<Path> files = Files.list(cache.getDirectory())) {
+            long cached = files.filter(file -> file.toString().endsWith(".body")).count();
+            assertTrue(cached > 0 && cached < 5);
+        }
+        cache.clear();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void testHttpCacheEvictsLeastRecentlyUsed() throws Exception {
+        stubFor(get(urlMatching("/sitemap[0-9].xml")).withHost(equalTo("www.example.com")).willReturn(ok()
+                .withHeader("Content-Type", "text/xml;charset=utf-8")
+                .withHeader("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT")
+                .withBodyFile("sitemaps/minimal-sitemap.xml")));
+        stubFor(get(urlMatching("/sitemap[0-9].xml")).withHost(equalTo("www.example.com")).withHeader("If-Modified-Since", matching(".+"))
+                .atPriority(1).willReturn(aResponse().withStatus(304)));
+        //The size of a body as it is saved, so the cache holds exactly two
+        HttpCache probe = new HttpCache(Files.createTempDirectory("http-cache"), 1024 * 1024);
+        new SitemapReader().setHttpCache(probe).readIfModified(URI.create("http://www.example.com/sitemap9.xml").toURL());
+        long bodySize = probe.getSize();
+
+        HttpCache cache = new HttpCache(Files.createTempDirectory("http-cache"), bodySize * 2);
+        SitemapReader reader = new SitemapReader().setHttpCache(cache);
+        URL first = URI.create("http://www.example.com/sitemap0.xml").toURL();
+        URL second = URI.create("http://www.example.com/sitemap1.xml").toURL();
+        assertTrue(reader.readIfModified(first).isPresent());
+        assertTrue(reader.readIfModified(second).isPresent());
+        //Revalidating the first sitemap makes it more recently used than the second
+        assertTrue(reader.readIfModified(first).isEmpty());
+        assertTrue(reader.readIfModified(URI.create("http://www.example.com/sitemap2.xml").toURL()).isPresent());
+
+        assertTrue(reader.readIfModified(first).isEmpty());
+        assertTrue(reader.readIfModified(second).isPresent());
+    }
 }
@@ -0,0 +1,233 @@
+package io.github.concurrentrecursion.sitemap;
+
+import io.github.concurrentrecursion.sitemap.io.ParallelSitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.ShardPartitioner;
+import io.github.concurrentrecursion.sitemap.io.SitemapWriter;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.SitemapReference;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.model.google.news.News;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.github.concurrentrecursion.sitemap.TestSitemaps.urls;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardPartitionerTest {
+    private static final URL DIRECTORY = url("https://www.example.com/");
+
+    private static URL url(String url) {
+        try {
+            return URI.create(url).toURL();
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * The locations in each file, by file name
+     */
+    private static Map<String, List<String>> files(IndexSitemap index) {
+        Map<String, List<String>> files = new LinkedHashMap<>();
+        for (SitemapReference reference : index.getSitemapReferences()) {
+            files.put(reference.getSitemap().getFile().getFileName().toString(),
+                    reference.getSitemap().getUrls().stream().map(url -> url.getLocation().toString()).collect(Collectors.toList()));
+        }
+        return files;
+    }
+
+    @Test
+    void testOrderDoesNotMatter() {
+        List<Url> urls = urls(5000);
+        Map<String, List<String>> expected = files(ShardPartitioner.byHash(8).partition(DIRECTORY, urls.stream()));
+        Collections.shuffle(urls, new Random(7));
+        assertEquals(expected, files(ShardPartitioner.byHash(8).partition(DIRECTORY, urls.stream())));
+        assertEquals(8, expected.size());
+        assertEquals(5000, expected.values().stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    void testAddingUrlChangesOneFile() {
+        List<Url> urls = urls(5000);
+        Map<String, List<String>> before = files(ShardPartitioner.byHash(8).partition(DIRECTORY, urls.stream()));
+        Map<String, List<String>> after = files(ShardPartitioner.byHash(8).partition(DIRECTORY,
+                Stream.concat(Stream.of(new Url("https://www.example.com/new")), urls.stream())));
+        assertEquals(before.keySet(), after.keySet());
+        long changed = before.keySet().stream().filter(name -> !before.get(name).equals(after.get(name))).count();
+        assertEquals(1, changed);
+    }
+
+    @Test
+    void testMoreShardsMoveFewUrls() {
+        List<Url> urls = urls(10_000);
+        Map<String, String> before = fileOfUrl(ShardPartitioner.byHash(10).partition(DIRECTORY, urls.stream()));
+        Map<String, String> after = fileOfUrl(ShardPartitioner.byHash(11).partition(DIRECTORY, urls.stream()));
+        long moved = before.keySet().stream().filter(url -> !before.get(url).equals(after.get(url))).count();
+        //About 1/11 of the urls move to the new file, a modulo hash would move most of them
+        assertTrue(moved < 1500, "moved " + moved);
+        assertTrue(after.entrySet().stream().filter(e -> !before.get(e.getKey()).equals(e.getValue())).allMatch(e -> e.getValue().equals("sitemap-11.xml")));
+    }
+
+    private static Map<String, String> fileOfUrl(IndexSitemap index) {
+        Map<String, String> fileOfUrl = new LinkedHashMap<>();
+        files(index).forEach((file, locations) -> locations.forEach(location -> fileOfUrl.put(location, file)));
+        return fileOfUrl;
+    }
+
+    @Test
+    void testOverflow() {
+        IndexSitemap index = ShardPartitioner.byKey(url -> "all").setMaxUrls(1000).partition(DIRECTORY, urls(2500).stream());
+        Map<String, List<String>> files = files(index);
+        assertEquals("sitemap-all.xml", index.getSitemapReferences().get(0).getSitemap().getFile().toString());
+        assertTrue(files.keySet().stream().allMatch(name -> name.matches("sitemap-all(\\.[0-9]+)?\\.xml")), files.keySet().toString());
+        assertTrue(files.size() >= 3);
+        assertTrue(files.values().stream().allMatch(locations -> locations.size() <= 1000));
+        assertEquals(2500, files.values().stream().mapToInt(List::size).sum());
+        assertEquals("https://www.example.com/" + index.getSitemapReferences().get(1).getSitemap().getFile(), index.getSitemapReferences().get(1).getLocation().toString());
+
+        IndexSitemap bySize = ShardPartitioner.byKey(url -> "all").setMaxFileSize(10_000).partition(DIRECTORY, urls(2500).stream());
+        assertTrue(bySize.getSitemapReferences().size() > 10);
+        assertTrue(bySize.getSitemapReferences().stream().allMatch(reference -> reference.getSitemap().getUrls().size() < 200));
+    }
+
+    @Test
+    void testAddingUrlChangesOneOverflowPart() {
+        List<Url> urls = urls(5000);
+        Map<String, List<String>> before = files(ShardPartitioner.byKey(url -> "all").setMaxUrls(1000).partition(DIRECTORY, urls.stream()));
+        //Sorts before every other url, so it would shift every part if the parts were split by position
+        urls.add(new Url("https://www.example.com/a"));
+        Map<String, List<String>> after = files(ShardPartitioner.byKey(url -> "all").setMaxUrls(1000).partition(DIRECTORY, urls.stream()));
+        assertEquals(before.keySet(), after.keySet());
+        long changed = before.keySet().stream().filter(name -> !before.get(name).equals(after.get(name))).count();
+        assertEquals(1, changed);
+    }
+
+    @Test
+    void testOverflowPartsDontCollideWithKeys(@TempDir Path tempDir) {
+        Stream<Url> urls = Stream.of(new Url("https://www.example.com/blog/a"), new Url("https://www.example.com/blog/b"),
+                new Url("https://www.example.com/blog-2/c"));
+        IndexSitemap index = ShardPartitioner.byPathPrefix(1).setMaxUrls(1).partition(DIRECTORY, urls);
+        Map<String, List<String>> files = files(index);
+        assertEquals(3, files.size());
+        assertEquals(List.of("https://www.example.com/blog-2/c"), files.get("sitemap-blog-2.xml"));
+        assertDoesNotThrow(() -> new ParallelSitemapWriter().setKeepFilenames(true).write(DIRECTORY, index, tempDir));
+    }
+
+    @Test
+    void testNewsOverflow() {
+        Stream<Url> urls = IntStream.range(0, 30).mapToObj(i -> {
+            Url url = new Url("https://www.example.com/page/" + (char) ('a' + i % 26) + i);
+            return i % 3 == 0 ? url.setNews(new News().setTitle("News " + i)) : url;
+        });
+        IndexSitemap index = ShardPartitioner.byKey(url -> "news").setMaxNews(4).partition(DIRECTORY, urls);
+        assertTrue(index.getSitemapReferences().size() >= 3);
+        assertTrue(index.getSitemapReferences().stream().allMatch(reference -> reference.getSitemap().getNewsCount() <= 4));
+        assertEquals(10, index.getSitemapReferences().stream().mapToInt(reference -> reference.getSitemap().getNewsCount()).sum());
+        assertEquals(30, index.getSitemapReferences().stream().mapToInt(reference -> reference.getSitemap().getUrls().size()).sum());
+    }
+
+    @Test
+    void testPathPrefix() {
+        Stream<Url> urls = Stream.of(new Url("https://www.example.com/"), new Url("https://www.example.com/blog/2024/post"),
+                new Url("https://www.example.com/blog/2023/post"), new Url("https://www.example.com/shop/item?id=1"),
+                new Url("https://www.example.com/caf%C3%A9/menu"));
+        Map<String, List<String>> files = files(ShardPartitioner.byPathPrefix(1).partition(DIRECTORY, urls));
+        assertEquals(List.of("sitemap-blog.xml", "sitemap-caf_C3_A9.xml", "sitemap-root.xml", "sitemap-shop.xml"), new ArrayList<>(files.keySet()));
+        assertEquals(List.of("https://www.example.com/blog/2023/post", "https://www.example.com/blog/2024/post"), files.get("sitemap-blog.xml"));
+
+        Map<String, List<String>> deeper = files(ShardPartitioner.byPathPrefix(2).partition(DIRECTORY, urls(1).stream()));
+        assertEquals(List.of("sitemap-page-0.xml"), new ArrayList<>(deeper.keySet()));
+    }
+
+    @Test
+    void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> ShardPartitioner.byHash(0));
+        assertThrows(IllegalArgumentException.class, () -> ShardPartitioner.byPathPrefix(0));
+        assertThrows(IllegalArgumentException.class, () -> ShardPartitioner.byHash(1).setMaxUrls(50_001));
+        assertThrows(IllegalArgumentException.class, () -> ShardPartitioner.byHash(1).setMaxFileSize(0));
+        assertThrows(IllegalArgumentException.class, () -> ShardPartitioner.byHash(1).setMaxNews(0));
+    }
+
+    @Test
+    void testIncrementalWrite(@TempDir Path tempDir) throws Exception {
+        ParallelSitemapWriter writer = new ParallelSitemapWriter(new SitemapWriter().setUseGzip(true)).setKeepFilenames(true).setIncremental(true);
+        List<Url> urls = urls(5000);
+        IndexSitemap first = writer.write(DIRECTORY, ShardPartitioner.byHash(4).partition(DIRECTORY, urls.stream()), tempDir);
+        List<Path> files = new ArrayList<>();
+        for (SitemapReference reference : first.getSitemapReferences()) {
+            files.add(reference.getSitemap().getFile());
+            Files.setLastModifiedTime(reference.getSitemap().getFile(), FileTime.fromMillis(0));
+        }
+        assertTrue(Files.exists(tempDir.resolve("sitemap-1.xml.gz")));
+        Thread.sleep(5);
+
+        urls.add(new Url("https://www.example.com/new"));
+        IndexSitemap second = writer.write(DIRECTORY, ShardPartitioner.byHash(4).partition(DIRECTORY, urls.stream()), tempDir);
+        int changed = 0;
+        for (int i = 0; i < files.size(); i++) {
+            boolean rewritten = !Files.getLastModifiedTime(files.get(i)).equals(FileTime.fromMillis(0));
+            boolean newDate = !first.getSitemapReferences().get(i).getLastModifiedDate().equals(second.getSitemapReferences().get(i).getLastModifiedDate());
+            assertEquals(rewritten, newDate);
+            changed += rewritten ? 1 : 0;
+        }
+        assertEquals(1, changed);
+    }
+
+    @Test
+    void testIncrementalWriteFollowsWriterSettings(@TempDir Path tempDir) throws Exception {
+        List<Url> urls = urls(100);
+        IndexSitemap first = new ParallelSitemapWriter().setKeepFilenames(true).setIncremental(true)
+                .write(DIRECTORY, ShardPartitioner.byHash(2).partition(DIRECTORY, urls.stream()), tempDir);
+        for (SitemapReference reference : first.getSitemapReferences()) {
+            Files.setLastModifiedTime(reference.getSitemap().getFile(), FileTime.fromMillis(0));
+        }
+        //The same urls written differently are a change, as the hash is of the bytes that are written
+        ParallelSitemapWriter pretty = new ParallelSitemapWriter(new SitemapWriter().setPrettyPrint(true)).setKeepFilenames(true).setIncremental(true);
+        pretty.write(DIRECTORY, ShardPartitioner.byHash(2).partition(DIRECTORY, urls.stream()), tempDir);
+        for (SitemapReference reference : first.getSitemapReferences()) {
+            assertNotEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(reference.getSitemap().getFile()));
+            assertTrue(Files.readString(reference.getSitemap().getFile()).contains("\n    <url>"));
+            Files.setLastModifiedTime(reference.getSitemap().getFile(), FileTime.fromMillis(0));
+        }
+        pretty.write(DIRECTORY, ShardPartitioner.byHash(2).partition(DIRECTORY, urls.stream()), tempDir);
+        for (SitemapReference reference : first.getSitemapReferences()) {
+            assertEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(reference.getSitemap().getFile()));
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void testDuplicateFilenamesAreRejected(@TempDir Path tempDir) {
+        //Urlsets that were never given a file name all default to sitemap.xml
+        IndexSitemap index = new IndexSitemap();
+        index.getSitemapReferences().add(new SitemapReference().setSitemap(UrlSetSitemap.fromUrls(new Url("https://www.example.com/a"))));
+        index.getSitemapReferences().add(new SitemapReference().setSitemap(UrlSetSitemap.fromUrls(new Url("https://www.example.com/b"))));
+        ParallelSitemapWriter writer = new ParallelSitemapWriter().setKeepFilenames(true);
+        assertThrows(IllegalArgumentException.class, () -> writer.write(DIRECTORY, index, tempDir));
+        assertFalse(Files.exists(tempDir.resolve("sitemap.xml")));
+        assertNull(index.getSitemapReferences().get(0).getLocation());
+
+        //A urlset can't take the name of the index either
+        index.getSitemapReferences().get(1).getSitemap().setFile(Paths.get("sitemap-index.xml"));
+        assertThrows(IllegalArgumentException.class, () -> writer.write(DIRECTORY, index, tempDir));
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.concurrentrecursion.sitemap;
+
+import io.github.concurrentrecursion.sitemap.io.RollingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.SitemapReader;
+import io.github.concurrentrecursion.sitemap.io.SitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.StreamingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.model.ChangeFrequency;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.model.google.image.Image;
+import io.github.concurrentrecursion.sitemap.model.google.news.News;
+import io.github.concurrentrecursion.sitemap.model.google.news.Publication;
+import io.github.concurrentrecursion.sitemap.model.google.video.*;
+import io.github.concurrentrecursion.sitemap.model.xhtml.Link;
+import org.junit.jupiter.api.Test;
+import org.xmlunit.matchers.CompareMatcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingWriterTest {
+
+    static List<Url> sampleUrls() {
+        return List.of(
+                new Url("http://www.example.com/ümlat.php?a=1&b=2")
+                        .setLastModifiedDate(OffsetDateTime.parse("2024-01-02T03:04:05.123+02:00"))
+                        .setChangeFrequency(ChangeFrequency.DAILY)
+                        .setPriority(0.8)
+                        .addImage(new Image("https://example.com/image.jpg"))
+                        .addImage(new Image("https://example.com/photo.jpg"))
+                        .addLink(new Link("de", "https://example.com/de?x=1&y=2"))
+                        .setNews(new News()
+                                .setTitle("Companies A & B <in> Merger Talks")
+                                .setPublication(new Publication("The Example Times", "en"))
+                                .setPublicationDate(OffsetDateTime.parse("2008-12-23T00:00:00.000Z"))),
+                new Url("https://example.com/v/play/3f22c1b")
+                        .addVideo(new Video()
+                                .setThumbnailUrl("https://example.com/t/3f22c1b.jpg")
+                                .setTitle("How To Grill Steaks")
+                                .setDescription("How to grill steaks without burning your face off.")
+                                .setContentUrl("https://example.com/v/play/3f22c1b.mp4")
+                                .setPlayerUrl("https://example.com/v/3f223c1b")
+                                .setDuration(360)
+                                .setExpirationDate(OffsetDateTime.parse("2034-01-01T10:00:00.000Z"))
+                                .setRating(4.3)
+                                .setViewCount(1234)
+                                .setPublicationDate(OffsetDateTime.parse("2024-01-01T10:00:30.000Z"))
+                                .setFamilyFriendly(true)
+                                .setRestriction(new Restriction(Relationship.DENY, List.of("CA", "US")))
+                                .setPlatform(new Platform(Relationship.ALLOW, List.of(Platform.Type.TV, Platform.Type.WEB)))
+                                .setRequiresSubscription(false)
+                                .setUploader(new Uploader().setName("Grill Erman").setUploaderInfoUrl("https://example.com/grillerman"))
+                                .setLive(false)
+                                .setTags(List.of("steaks", "grilling"))),
+                new Url("https://example.com/").setPriority(1.0)
+        );
+    }
+
+    @Test
+    void testMatchesJaxbOutput() {
+        String expected = new SitemapWriter().writeToString(UrlSetSitemap.fromUrls(sampleUrls().stream()));
+        String actual = new StreamingSitemapWriter().writeToString(sampleUrls().stream());
+        final String header = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+        assertTrue(actual.startsWith(header));
+        assertEquals(expected, actual.substring(header.length()));
+    }
+
+    @Test
+    void testPrettyPrintMatchesJaxbOutput() throws Exception {
+        Path dir = Files.createTempDirectory("sitemap");
+        UrlSetSitemap urlSet = UrlSetSitemap.fromUrls(sampleUrls().stream());
+        new SitemapWriter().setPrettyPrint(true).write(urlSet, dir.resolve("jaxb.xml"));
+        Path streamed = new StreamingSitemapWriter().setPrettyPrint(true).write(sampleUrls().stream(), dir.resolve("streamed.xml"));
+
+        String expected = Files.readString(dir.resolve("jaxb.xml"), StandardCharsets.UTF_8);
+        String actual = Files.readString(streamed, StandardCharsets.UTF_8);
+        assertThat(actual, CompareMatcher.isIdenticalTo(expected));
+        assertEquals(expected.substring(expected.indexOf("<url>")), actual.substring(actual.indexOf("<url>")));
+    }
+
+    @Test
+    void testGzipStream() throws Exception {
+        Path dir = Files.createTempDirectory("sitemap");
+        Stream<Url> urls = IntStream.range(0, 1_000).mapToObj(i -> new Url("https://example.com/page" + i + ".html"));
+        Path file = new StreamingSitemapWriter().setUseGzip(true).write(urls, dir.resolve("sitemap.xml"));
+        assertEquals("sitemap.xml.gz", file.getFileName().toString());
+        String xml;
+        try (InputStream is = new GZIPInputStream(Files.newInputStream(file))) {
+            xml = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertTrue(xml.contains("<loc>https://example.com/page999.html</loc>"));
+        assertTrue(xml.endsWith("</urlset>"));
+    }
+
+    @Test
+    void testRollingByUrlCount() throws Exception {
+        Path dir = Files.createTempDirectory("sitemap");
+        Stream<Url> urls = IntStream.range(0, 25).mapToObj(i -> new Url("https://example.com/page" + i + ".html"));
+        IndexSitemap index = new RollingSitemapWriter().setMaxUrls(10)
+                .write(URI.create("https://example.com/sitemaps/").toURL(), urls, dir);
+
+        assertEquals(3, index.getSitemapReferences().size());
+        assertEquals("https://example.com/sitemaps/sitemap-3.xml", index.getSitemapReferences().get(2).getLocation().toString());
+        assertTrue(Files.exists(dir.resolve("sitemap-index.xml")));
+        SitemapReader reader = new SitemapReader();
+        assertEquals(3, reader.readSitemapIndex(Files.newInputStream(dir.resolve("sitemap-index.xml"))).getSitemapReferences().size());
+        assertEquals(10, reader.readUrlSet(Files.newInputStream(dir.resolve("sitemap-1.xml"))).getUrls().size());
+        assertEquals(5, reader.readUrlSet(Files.newInputStream(dir.resolve("sitemap-3.xml"))).getUrls().size());
+    }
+
+    @Test
+    void testRollingByFileSize() throws Exception {
+        Path dir = Files.createTempDirectory("sitemap");
+        final long maxFileSize = 2_000;
+        Stream<Url> urls = IntStream.range(0, 100).mapToObj(i -> new Url("https://example.com/page" + i + ".html"));
+        IndexSitemap index = new RollingSitemapWriter().setMaxFileSize(maxFileSize).setUseGzip(true)
+                .write(URI.create("https://example.com/").toURL(), urls, dir);
+
+        assertTrue(index.getSitemapReferences().size() > 1);
+        int total = 0;
+        SitemapReader reader = new SitemapReader();
+        for (int i = 1; i <= index.getSitemapReferences().size(); i++) {
+            byte[] xml;
+            try (InputStream is = new GZIPInputStream(Files.newInputStream(dir.resolve("sitemap-" + i + ".xml.gz")))) {
+                xml = is.readAllBytes();
+            }
+            assertTrue(xml.length <= maxFileSize);
+            total += reader.readUrlSet(new ByteArrayInputStream(xml)).getUrls().size();
+        }
+        assertEquals(100, total);
+    }
+
+    @Test
+    void testRollingByNewsCount() throws Exception {
+        Path dir = Files.createTempDirectory("sitemap");
+        //Every other url has news
+        Stream<Url> urls = IntStream.range(0, 30).mapToObj(i -> {
+            Url url = new Url("https://example.com/page" + i + ".html");
+            return i % 2 == 0 ? url.setNews(new News().setTitle("News " + i).setPublication(new Publication("The Example Times", "en"))) : url;
+        });
+        IndexSitemap index = new RollingSitemapWriter().setMaxNews(5)
+                .write(URI.create("https://example.com/").toURL(), urls, dir);
+
+        assertEquals(3, index.getSitemapReferences().size());
+        SitemapReader reader = new SitemapReader();
+        for (int i = 1; i <= 3; i++) {
+            UrlSetSitemap urlSet = reader.readUrlSet(Files.newInputStream(dir.resolve("sitemap-" + i + ".xml")));
+            assertEquals(5, urlSet.getNewsCount());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new RollingSitemapWriter().setMaxNews(1001));
+    }
+
+    @Test
+    void testRollingFailureDeletesPartialFile() throws Exception {
+        Path dir = Files.createTempDirectory("sitemap");
+        Stream<Url> urls = IntStream.range(0, 25).mapToObj(i -> {
+            if (i == 15) {
+                throw new IllegalStateException("Source failed");
+            }
+            return new Url("https://example.com/page" + i + ".html");
+        });
+        RollingSitemapWriter writer = new RollingSitemapWriter().setMaxUrls(10);
+        assertThrows(IllegalStateException.class, () -> writer.write(URI.create("https://example.com/").toURL(), urls, dir));
+        assertTrue(Files.exists(dir.resolve("sitemap-1.xml")));
+        assertFalse(Files.exists(dir.resolve("sitemap-2.xml")));
+        assertFalse(Files.exists(dir.resolve("sitemap-index.xml")));
+    }
+}
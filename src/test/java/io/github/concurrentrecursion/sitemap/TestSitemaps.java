@@ -0,0 +1,40 @@
+package io.github.concurrentrecursion.sitemap;
+
+import io.github.concurrentrecursion.sitemap.model.Url;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Fixtures shared by the writer tests
+ */
+final class TestSitemaps {
+    private TestSitemaps() {
+    }
+
+    /**
+     * Creates a mutable list of urls under https://www.example.com/page/
+     */
+    static List<Url> urls(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new Url("https://www.example.com/page/" + i)).collect(Collectors.toList());
+    }
+
+    static byte[] decompress(Path file) throws IOException {
+        try (InputStream is = new GZIPInputStream(Files.newInputStream(file))) {
+            return is.readAllBytes();
+        }
+    }
+
+    static byte[] decompress(byte[] gzip) throws IOException {
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return is.readAllBytes();
+        }
+    }
+}
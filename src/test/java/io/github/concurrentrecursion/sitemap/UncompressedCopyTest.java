@@ -0,0 +1,95 @@
+package io.github.concurrentrecursion.sitemap;
+
+import io.github.concurrentrecursion.sitemap.io.RollingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.SitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.StreamingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static io.github.concurrentrecursion.sitemap.TestSitemaps.decompress;
+import static io.github.concurrentrecursion.sitemap.TestSitemaps.urls;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UncompressedCopyTest {
+
+    private static void assertChecksum(Path file) throws Exception {
+        Path sidecar = file.resolveSibling(file.getFileName() + ".sha256");
+        StringBuilder hash = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file))) {
+            hash.append(String.format("%02x", b));
+        }
+        assertEquals(hash + "  " + file.getFileName() + "\n", Files.readString(sidecar, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamingWriter(@TempDir Path tempDir) throws Exception {
+        Path file = new StreamingSitemapWriter().setUseGzip(true).setWriteUncompressedCopy(true).setChecksumAlgorithm("SHA-256")
+                .write(urls(5000).stream(), tempDir.resolve("sitemap.xml"));
+        Path copy = tempDir.resolve("sitemap.xml");
+        assertEquals("sitemap.xml.gz", file.getFileName().toString());
+        assertArrayEquals(Files.readAllBytes(copy), decompress(file));
+        assertChecksum(file);
+        assertChecksum(copy);
+    }
+
+    @Test
+    void testSitemapWriter(@TempDir Path tempDir) throws Exception {
+        UrlSetSitemap urlSet = new UrlSetSitemap().setUrls(urls(100));
+        new SitemapWriter().setUseGzip(true).setWriteUncompressedCopy(true).write(urlSet, tempDir.resolve("sitemap.xml"));
+        assertEquals(tempDir.resolve("sitemap.xml.gz"), urlSet.getFile());
+        assertArrayEquals(Files.readAllBytes(tempDir.resolve("sitemap.xml")), decompress(urlSet.getFile()));
+        assertFalse(Files.exists(tempDir.resolve("sitemap.xml.gz.sha256")));
+    }
+
+    @Test
+    void testRollingWriter(@TempDir Path tempDir) throws Exception {
+        IndexSitemap index = new RollingSitemapWriter().setUseGzip(true).setMaxUrls(1000)
+                .setWriteUncompressedCopy(true).setChecksumAlgorithm("SHA-256")
+                .write(URI.create("https://www.example.com/").toURL(), urls(2500).stream(), tempDir);
+        assertEquals(3, index.getSitemapReferences().size());
+        for (int i = 1; i <= 3; i++) {
+            Path file = tempDir.resolve("sitemap-" + i + ".xml.gz");
+            assertArrayEquals(Files.readAllBytes(tempDir.resolve("sitemap-" + i + ".xml")), decompress(file));
+            assertChecksum(file);
+        }
+        assertChecksum(index.getFile());
+    }
+
+    @Test
+    void testNoCopyWithoutGzip(@TempDir Path tempDir) throws Exception {
+        new StreamingSitemapWriter().setWriteUncompressedCopy(true).write(urls(10).stream(), tempDir.resolve("sitemap.xml"));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of(tempDir.resolve("sitemap.xml")), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testFailedWriteLeavesNoChecksums(@TempDir Path tempDir) throws Exception {
+        StreamingSitemapWriter writer = new StreamingSitemapWriter().setUseGzip(true).setWriteUncompressedCopy(true).setChecksumAlgorithm("SHA-256");
+        List<Url> urls = urls(10);
+        urls.set(5, null);
+        assertThrows(RuntimeException.class, () -> writer.write(urls.stream(), tempDir.resolve("sitemap.xml")));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of(), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testUnsupportedAlgorithm(@TempDir Path tempDir) {
+        StreamingSitemapWriter writer = new StreamingSitemapWriter().setChecksumAlgorithm("NOT-AN-ALGORITHM");
+        Path file = tempDir.resolve("sitemap.xml");
+        assertThrows(IllegalArgumentException.class, () -> writer.write(urls(10).stream(), file));
+        assertFalse(Files.exists(file));
+    }
+}
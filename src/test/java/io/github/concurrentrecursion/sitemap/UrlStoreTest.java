@@ -0,0 +1,135 @@
+package io.github.concurrentrecursion.sitemap;
+
+import io.github.concurrentrecursion.sitemap.io.RollingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.StreamingSitemapWriter;
+import io.github.concurrentrecursion.sitemap.io.UrlStore;
+import io.github.concurrentrecursion.sitemap.model.ChangeFrequency;
+import io.github.concurrentrecursion.sitemap.model.IndexSitemap;
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.util.CompactUrl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlStoreTest {
+
+    private static Stream<Url> generatedUrls(int count) {
+        OffsetDateTime start = OffsetDateTime.parse("2024-01-02T03:04:05.123-05:00");
+        ChangeFrequency[] frequencies = ChangeFrequency.values();
+        return IntStream.range(0, count).mapToObj(i -> {
+            Url url = new Url("https://www.example.com/products/" + i + "?q=" + "x".repeat(i % 50));
+            if (i % 3 != 0) url.setLastModifiedDate(start.plusMinutes(i));
+            if (i % 4 != 0) url.setChangeFrequency(frequencies[i % frequencies.length]);
+            if (i % 5 != 0) url.setPriority((i % 11) / 10.0);
+            return url;
+        });
+    }
+
+    @Test
+    void testRoundTripMatchesOriginal(@TempDir Path tempDir) throws Exception {
+        try (UrlStore store = new UrlStore(tempDir)) {
+            store.addAll(generatedUrls(20_000));
+            store.addAll(StreamingWriterTest.sampleUrls().stream());
+            assertEquals(20_000 + StreamingWriterTest.sampleUrls().size(), store.size());
+
+            StreamingSitemapWriter writer = new StreamingSitemapWriter();
+            String expected = writer.writeToString(Stream.concat(generatedUrls(20_000), StreamingWriterTest.sampleUrls().stream()));
+            try (Stream<Url> urls = store.stream()) {
+                assertEquals(expected, writer.writeToString(urls));
+            }
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testUrlsWithoutExtensionsReuseTheView() throws Exception {
+        try (UrlStore store = new UrlStore()) {
+            store.addAll(generatedUrls(3));
+            Iterator<Url> iterator = store.iterator();
+            Url first = iterator.next();
+            assertEquals("https://www.example.com/products/0?q=", first.getCompactLocation().toString());
+            assertNull(first.getLastModifiedDate());
+            assertNull(first.getChangeFrequency());
+            assertNull(first.getPriority());
+            Url second = iterator.next();
+            assertSame(first, second);
+            assertEquals("https://www.example.com/products/1?q=x", second.getCompactLocation().toString());
+            assertEquals(OffsetDateTime.parse("2024-01-02T03:05:05.123-05:00"), second.getLastModifiedDate());
+            assertEquals(ChangeFrequency.HOURLY, second.getChangeFrequency());
+            assertEquals(0.1, second.getPriority());
+            iterator.next();
+            assertFalse(iterator.hasNext());
+
+            //Urls added later are seen by new iterators
+            store.add(new Url("https://www.example.com/last"));
+            List<String> locations;
+            try (Stream<Url> urls = store.stream()) {
+                locations = urls.map(url -> url.getCompactLocation().toString()).collect(Collectors.toList());
+            }
+            assertEquals(4, locations.size());
+            assertEquals("https://www.example.com/last", locations.get(3));
+        }
+    }
+
+    @Test
+    void testViewKeepsEarlierLocationsAndReusesDates() throws Exception {
+        OffsetDateTime lastmod = OffsetDateTime.parse("2024-01-02T03:04:05.123-05:00");
+        try (UrlStore store = new UrlStore()) {
+            store.add(new Url("https://www.example.com/a").setLastModifiedDate(lastmod));
+            store.add(new Url("https://www.example.com/日本").setLastModifiedDate(lastmod));
+            store.add(new Url("https://www.example.com/b").setLastModifiedDate(lastmod.withOffsetSameInstant(ZoneOffset.UTC)));
+            Iterator<Url> iterator = store.iterator();
+            Url url = iterator.next();
+            CompactUrl first = url.getCompactLocation();
+            OffsetDateTime firstDate = url.getLastModifiedDate();
+            assertEquals(lastmod, firstDate);
+
+            iterator.next();
+            assertEquals("https://www.example.com/日本", url.getCompactLocation().toString());
+            assertSame(firstDate, url.getLastModifiedDate());
+            //The location of an earlier url is unchanged by reading the next one
+            assertEquals("https://www.example.com/a", first.toString());
+
+            iterator.next();
+            assertEquals("https://www.example.com/b", url.getCompactLocation().toString());
+            assertEquals(lastmod.withOffsetSameInstant(ZoneOffset.UTC), url.getLastModifiedDate());
+            assertEquals(ZoneOffset.UTC, url.getLastModifiedDate().getOffset());
+        }
+    }
+
+    @Test
+    void testRollingWriterFromStore(@TempDir Path tempDir) throws Exception {
+        Path output = Files.createDirectory(tempDir.resolve("out"));
+        try (UrlStore store = new UrlStore(tempDir)) {
+            store.addAll(generatedUrls(120_000));
+            IndexSitemap index = new RollingSitemapWriter()
+                    .write(URI.create("https://www.example.com/").toURL(), store, output);
+            assertEquals(3, index.getSitemapReferences().size());
+        }
+    }
+
+    @Test
+    void testClosedStore() throws Exception {
+        UrlStore store = new UrlStore();
+        store.add(new Url("https://www.example.com/"));
+        Iterator<Url> iterator = store.iterator();
+        store.close();
+        assertFalse(iterator.hasNext());
+        assertThrows(IllegalStateException.class, () -> store.add(new Url("https://www.example.com/")));
+        assertThrows(IllegalStateException.class, store::iterator);
+    }
+}
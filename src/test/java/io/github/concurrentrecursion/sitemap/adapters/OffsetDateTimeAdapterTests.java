@@ -0,0 +1,101 @@
+package io.github.concurrentrecursion.sitemap.adapters;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffsetDateTimeAdapterTests {
+    private static final DateTimeFormatter REFERENCE_PARSER = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy[-MM[-dd]]['T'HH[:mm[:ss[.SSS]]][XXX]]")
+            .parseDefaulting(ChronoField.MONTH_OF_YEAR, 1)
+            .parseDefaulting(ChronoField.DAY_OF_MONTH, 1)
+            .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+            .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+            .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+            .parseDefaulting(ChronoField.NANO_OF_SECOND, 0)
+            .parseDefaulting(ChronoField.OFFSET_SECONDS, 0)
+            .toFormatter(Locale.ENGLISH);
+
+    private final OffsetDateTimeAdapter adapter = new OffsetDateTimeAdapter();
+
+    private static String referenceFormat(OffsetDateTime dateTime) {
+        final String pattern;
+        if (dateTime.get(ChronoField.MILLI_OF_SECOND) > 0) {
+            pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+        } else if (dateTime.getSecond() > 0) {
+            pattern = "yyyy-MM-dd'T'HH:mm:ssXXX";
+        } else if (dateTime.getHour() + dateTime.getMinute() > 0) {
+            pattern = "yyyy-MM-dd'T'HH:mmXXX";
+        } else {
+            pattern = "yyyy-MM-dd";
+        }
+        return DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH).format(dateTime);
+    }
+
+    @Test
+    void testMarshalPrecision() throws Exception {
+        assertEquals("2024-01-02T03:04:05.123+02:00", adapter.marshal(OffsetDateTime.parse("2024-01-02T03:04:05.123456+02:00")));
+        assertEquals("2024-01-02T03:04:05Z", adapter.marshal(OffsetDateTime.parse("2024-01-02T03:04:05.000900Z")));
+        assertEquals("2024-01-02T00:30-05:30", adapter.marshal(OffsetDateTime.parse("2024-01-02T00:30:00-05:30")));
+        assertEquals("2024-01-02", adapter.marshal(OffsetDateTime.parse("2024-01-02T00:00:00+09:00")));
+        assertNull(adapter.marshal(null));
+    }
+
+    @Test
+    void testMarshalMatchesFormatters() throws Exception {
+        Random random = new Random(42);
+        List<ZoneOffset> offsets = List.of(ZoneOffset.UTC, ZoneOffset.ofHours(2), ZoneOffset.ofHoursMinutes(-9, -30),
+                ZoneOffset.ofHoursMinutes(5, 45), ZoneOffset.ofHoursMinutesSeconds(1, 2, 3), ZoneOffset.MAX);
+        for (int i = 0; i < 20_000; i++) {
+            int year = random.nextInt(10) == 0 ? random.nextInt(20_000) - 5_000 : 1990 + random.nextInt(50);
+            OffsetDateTime dateTime = OffsetDateTime.of(year, 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(4) == 0 ? 0 : random.nextInt(24), random.nextInt(4) == 0 ? 0 : random.nextInt(60),
+                    random.nextInt(3) == 0 ? 0 : random.nextInt(60), random.nextInt(3) == 0 ? 0 : random.nextInt(1_000_000_000),
+                    offsets.get(random.nextInt(offsets.size())));
+            assertEquals(referenceFormat(dateTime), adapter.marshal(dateTime), dateTime::toString);
+        }
+    }
+
+    @Test
+    void testUnmarshalMatchesFormatter() throws Exception {
+        List<String> values = List.of("2024", "2024-02", "2024-02-29", "2023-02-29", "2023-02-30", "2024-13-01", "2024-00-10",
+                "2024-01-01T05", "2024-01-01T05Z", "2024-01-01T05:06", "2024-01-01T05:06+01:00", "2024-01-01T05:06:07",
+                "2024-01-01T05:06:07.891", "2024-01-01T05:06:07.891-03:30", "2024-01-01T05:06:07.8", "2024-01-01T05:06:07.891234Z",
+                "2024-01-01T24:00", "2024-01-01T23:60", "2024-01-01T05:06:07+00:00", "2024-01-01T05:06:07-00:00",
+                "2024-01-01T05:06:07+18:00", "2024-01-01T05:06:07+19:00", "2024-01-01T05:06:07+05:30:15", "2024-01-01T05:06:07+0530",
+                "2024-01-01Z", "0000-01-01", "20240-01-01", "+2024-01-01", "2024-1-01", "2024-01-01T", "2024-01-01 05:06",
+                "2024-01-01T05:06:07ZZ", " 2024-01-01", "２０２４-01-01", "", "abc");
+        for (String value : values) {
+            OffsetDateTime expected;
+            try {
+                expected = OffsetDateTime.parse(value, REFERENCE_PARSER);
+            } catch (Exception e) {
+                assertThrows(Exception.class, () -> adapter.unmarshal(value), value);
+                continue;
+            }
+            assertEquals(expected, adapter.unmarshal(value), value);
+        }
+        assertNull(adapter.unmarshal(null));
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            OffsetDateTime dateTime = OffsetDateTime.of(1990 + random.nextInt(50), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1000) * 1_000_000,
+                    ZoneOffset.ofTotalSeconds((random.nextInt(24 * 4) - 48) * 15 * 60));
+            String text = adapter.marshal(dateTime);
+            assertEquals(text, adapter.marshal(adapter.unmarshal(text)));
+        }
+    }
+}
@@ -1,13 +1,34 @@
 package io.github.concurrentrecursion.sitemap.model;
 
 import io.github.concurrentrecursion.sitemap.io.SitemapReader;
+import io.github.concurrentrecursion.sitemap.io.SitemapWriter;
+import io.github.concurrentrecursion.sitemap.model.google.image.Image;
+import io.github.concurrentrecursion.sitemap.model.google.news.News;
+import io.github.concurrentrecursion.sitemap.model.google.news.Publication;
+import io.github.concurrentrecursion.sitemap.model.google.video.Video;
+import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class UrlSetSitemapTests {
+    private static Url news(int i) {
+        return new Url("https://example.com/news/" + i).setNews(new News().setTitle("News " + i).setPublication(new Publication("The Example Times", "en")));
+    }
+
+    private static Url media(int i) {
+        return new Url("https://example.com/media/" + i)
+                .addImage(new Image("https://example.com/" + i + ".png"))
+                .addImage(new Image("https://example.com/" + i + ".jpg"))
+                .addVideo(new Video().setTitle("Video").setDescription("Video").setThumbnailUrl("https://example.com/" + i + ".png"));
+    }
+
     @Test
     void testFromUrls(){
         Url one = new Url("http://example.com").setChangeFrequency(ChangeFrequency.NEVER);
@@ -31,4 +52,49 @@ class UrlSetSitemapTests {
         assertNull(sitemap.getUrls().get(1).getChangeFrequency());
 
     }
+
+    @Test
+    void testCounts() {
+        UrlSetSitemap urlSet = UrlSetSitemap.fromUrls(news(1), news(2), media(3));
+        urlSet.getUrls().add(news(5));
+        urlSet.addUrl(media(6));
+        urlSet.addUrl(null);
+        assertEquals(3, urlSet.getNewsCount());
+        assertEquals(4, urlSet.getImageCount());
+        assertEquals(2, urlSet.getVideoCount());
+        assertEquals(0, new UrlSetSitemap().setUrls(null).getNewsCount());
+    }
+
+    @Test
+    void testSetUrlsKeepsList() {
+        List<Url> source = new ArrayList<>(List.of(news(1), news(2), media(3)));
+        UrlSetSitemap urlSet = new UrlSetSitemap().setUrls(source);
+        assertSame(source, urlSet.getUrls());
+        source.add(news(4));
+        assertEquals(3, urlSet.getNewsCount());
+        //Changes to a url already in the urlset are counted too
+        source.get(2).setNews(new News().setTitle("Late").setPublication(new Publication("The Example Times", "en")));
+        assertEquals(4, urlSet.getNewsCount());
+    }
+
+    @Test
+    void testNewsSetAfterAddIsValidated() {
+        UrlSetSitemap urlSet = new UrlSetSitemap();
+        for (int i = 0; i < 1001; i++) {
+            urlSet.addUrl(new Url("https://example.com/news/" + i));
+        }
+        urlSet.getUrls().forEach(url -> url.setNews(new News().setTitle("Late").setPublication(new Publication("The Example Times", "en"))));
+        assertThrows(ConstraintViolationException.class, () -> new SitemapWriter().writeToString(urlSet));
+        assertThrows(ConstraintViolationException.class, () -> new SitemapWriter().setStrictValidation(true).writeToString(urlSet));
+    }
+
+    @Test
+    void testReadUrlSetIsCounted() {
+        String xml = new SitemapWriter().writeToString(UrlSetSitemap.fromUrls(news(1), media(2), news(3)));
+        UrlSetSitemap read = new SitemapReader().readUrlSet(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(3, read.getUrls().size());
+        assertEquals(2, read.getNewsCount());
+        assertEquals(2, read.getImageCount());
+        assertEquals(1, read.getVideoCount());
+    }
 }
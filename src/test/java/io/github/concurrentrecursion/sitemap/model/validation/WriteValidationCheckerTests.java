@@ -0,0 +1,122 @@
+package io.github.concurrentrecursion.sitemap.model.validation;
+
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.UrlSetSitemap;
+import io.github.concurrentrecursion.sitemap.model.google.image.Image;
+import io.github.concurrentrecursion.sitemap.model.google.news.News;
+import io.github.concurrentrecursion.sitemap.model.google.news.Publication;
+import io.github.concurrentrecursion.sitemap.model.google.video.Platform;
+import io.github.concurrentrecursion.sitemap.model.google.video.Video;
+import io.github.concurrentrecursion.sitemap.model.xhtml.Link;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteValidationCheckerTests {
+    private static final String LONG_PATH = "a".repeat(2048);
+
+    private static ValidatorFactory factory;
+    private static Validator validator;
+
+    @BeforeAll
+    static void createValidator() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        factory.close();
+    }
+
+    private static Url url() {
+        return new Url("https://www.example.com/page");
+    }
+
+    private static Video video() {
+        return new Video().setTitle("Title").setDescription("Description").setThumbnailUrl("https://www.example.com/t.png");
+    }
+
+    /**
+     * Each case is checked by both the checker and Bean Validation, and they have to agree
+     */
+    private static Map<String, Supplier<Url>> cases() {
+        Map<String, Supplier<Url>> cases = new LinkedHashMap<>();
+        cases.put("plain", WriteValidationCheckerTests::url);
+        cases.put("location at limit", () -> new Url("https://www.example.com/" + "a".repeat(2048 - 24)));
+        cases.put("location too long", () -> new Url("https://www.example.com/" + LONG_PATH));
+        cases.put("encoded location too long", () -> new Url("https://www.example.com/" + "ü".repeat(400)));
+        cases.put("priority 0", () -> url().setPriority(0d));
+        cases.put("priority 1", () -> url().setPriority(1d));
+        cases.put("priority negative", () -> url().setPriority(-0.1d));
+        cases.put("priority too high", () -> url().setPriority(1.1d));
+        cases.put("priority NaN", () -> url().setPriority(Double.NaN));
+        cases.put("1000 images", () -> url().setImages(IntStream.range(0, 1000).mapToObj(i -> new Image("https://www.example.com/" + i + ".png")).collect(Collectors.toList())));
+        cases.put("1001 images", () -> url().setImages(IntStream.range(0, 1001).mapToObj(i -> new Image("https://www.example.com/" + i + ".png")).collect(Collectors.toList())));
+        cases.put("image too long", () -> url().addImage(new Image("https://www.example.com/" + LONG_PATH)));
+        cases.put("link", () -> url().addLink(new Link("de", "https://www.example.com/de")));
+        cases.put("link too long", () -> url().addLink(new Link("de", "https://www.example.com/" + LONG_PATH)));
+        cases.put("news", () -> url().setNews(new News().setTitle("T").setPublication(new Publication("Times", "en"))));
+        cases.put("news zh-cn", () -> url().setNews(new News().setTitle("T").setPublication(new Publication("Times", "zh-cn"))));
+        cases.put("news bad language", () -> url().setNews(new News().setTitle("T").setPublication(new Publication("Times", "EN"))));
+        cases.put("news long language", () -> url().setNews(new News().setTitle("T").setPublication(new Publication("Times", "engl"))));
+        cases.put("news region language", () -> url().setNews(new News().setTitle("T").setPublication(new Publication("Times", "en-us"))));
+        cases.put("news without publication", () -> url().setNews(new News().setTitle("T")));
+        cases.put("video", () -> url().addVideo(video().setDuration(28800).setRating(5d)));
+        cases.put("video content too long", () -> url().addVideo(video().setContentUrl("https://www.example.com/" + LONG_PATH)));
+        cases.put("video player too long", () -> url().addVideo(video().setPlayerUrl("https://www.example.com/" + LONG_PATH)));
+        cases.put("video thumbnail too long", () -> url().addVideo(video().setThumbnailUrl("https://www.example.com/" + LONG_PATH)));
+        cases.put("video description too long", () -> url().addVideo(video().setDescription("d".repeat(2049))));
+        cases.put("video duration 0", () -> url().addVideo(video().setDuration(0)));
+        cases.put("video duration too long", () -> url().addVideo(video().setDuration(28801)));
+        cases.put("video rating too high", () -> url().addVideo(video().setRating(5.1d)));
+        cases.put("video rating negative", () -> url().addVideo(video().setRating(-1d)));
+        cases.put("video 32 tags", () -> url().addVideo(video().setTags(Collections.nCopies(32, "tag"))));
+        cases.put("video 33 tags", () -> url().addVideo(video().setTags(Collections.nCopies(33, "tag"))));
+        //Not cascaded by Bean Validation, so not checked
+        cases.put("video empty platform", () -> url().addVideo(video().setPlatform(new Platform())));
+        return cases;
+    }
+
+    @Test
+    void testSameResultAsBeanValidation() {
+        cases().forEach((name, url) -> {
+            UrlSetSitemap urlSet = new UrlSetSitemap().addUrl(url.get());
+            boolean expected = validator.validate(urlSet, WriteValidation.class).isEmpty();
+            assertEquals(expected, WriteValidationChecker.isValid(urlSet), name);
+            assertEquals(expected, WriteValidationChecker.isValid(urlSet.getUrls().get(0)), name);
+        });
+    }
+
+    @Test
+    void testUrlSetLimits() {
+        List<Url> urls = new ArrayList<>(Collections.nCopies(50_000, url()));
+        assertTrue(WriteValidationChecker.isValid(new UrlSetSitemap().setUrls(urls)));
+        urls.add(url());
+        assertFalse(WriteValidationChecker.isValid(new UrlSetSitemap().setUrls(urls)));
+
+        Url news = url().setNews(new News().setTitle("T").setPublication(new Publication("Times", "en")));
+        List<Url> newsUrls = new ArrayList<>(Collections.nCopies(1000, news));
+        newsUrls.add(url());
+        UrlSetSitemap urlSet = new UrlSetSitemap().setUrls(newsUrls);
+        assertTrue(WriteValidationChecker.isValid(urlSet));
+        assertEquals(validator.validate(urlSet, WriteValidation.class).isEmpty(), WriteValidationChecker.isValid(urlSet));
+        newsUrls.add(news);
+        assertFalse(WriteValidationChecker.isValid(urlSet));
+        assertFalse(validator.validate(urlSet, WriteValidation.class).isEmpty());
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.concurrentrecursion.sitemap.util;
+
+import io.github.concurrentrecursion.exception.RuntimeMalformedUrlException;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactUrlTests {
+
+    @Test
+    void testMatchesConvertToUrl() {
+        List<String> urls = List.of("http://example.com", "https://www.example.com/path/page.html?a=1&b=%20c#top",
+                "http://www.example.com/ümlat.php?q=日本", "HTTP://example.com/upper", "ftp://example.com/file.txt",
+                "file:/tmp/sitemap.xml", "http://user@example.com:8080/path");
+        for (String url : urls) {
+            URL expected = UrlUtil.convertToUrl(url);
+            CompactUrl compact = CompactUrl.of(url);
+            assertEquals(expected.toString(), compact.toString(), url);
+            assertEquals(expected, compact.toUrl(), url);
+            assertEquals(UrlUtil.toAsciiString(expected.toString()), compact.toAsciiString(), url);
+        }
+    }
+
+    @Test
+    void testMalformed() {
+        assertThrows(RuntimeMalformedUrlException.class, () -> CompactUrl.of("urn:isbn:096139210x"));
+        assertThrows(RuntimeMalformedUrlException.class, () -> CompactUrl.of("://example.com"));
+        assertThrows(RuntimeMalformedUrlException.class, () -> CompactUrl.of("/relative/path"));
+        assertThrows(RuntimeMalformedUrlException.class, () -> CompactUrl.of("http://example.com/a b"));
+    }
+
+    @Test
+    void testAsciiStringIsCached() {
+        CompactUrl url = CompactUrl.of("http://www.example.com/ümlat.php");
+        assertEquals("http://www.example.com/%C3%BCmlat.php", url.toAsciiString());
+        assertEquals("http://www.example.com/%C3%BCmlat.php", url.toAsciiString());
+        assertEquals("http://www.example.com/ümlat.php", url.toString());
+
+        CompactUrl nonLatin = CompactUrl.of("http://www.example.com/日本");
+        assertEquals("http://www.example.com/%E6%97%A5%E6%9C%AC", nonLatin.toAsciiString());
+        assertEquals("http://www.example.com/日本", nonLatin.toString());
+    }
+
+    @Test
+    void testOfValidBytes() {
+        for (String url : List.of("https://www.example.com/page", "http://www.example.com/ümlat.php", "http://example.com/日本")) {
+            byte[] bytes = ("<" + url + ">").getBytes(StandardCharsets.UTF_8);
+            CompactUrl compact = CompactUrl.ofValid(bytes, 1, bytes.length - 2);
+            assertEquals(url, compact.toString());
+            assertEquals(CompactUrl.of(url), compact);
+            //The bytes are copied, so the array can be reused
+            Arrays.fill(bytes, (byte) 'x');
+            assertEquals(url, compact.toString());
+        }
+    }
+
+    @Test
+    void testEquality() throws Exception {
+        CompactUrl url = CompactUrl.of("https://www.example.com/page");
+        assertEquals(url, CompactUrl.of(new URL("https://www.example.com/page")));
+        assertEquals(url.hashCode(), CompactUrl.of("https://www.example.com/page").hashCode());
+        assertNotEquals(url, CompactUrl.of("https://www.example.com/other"));
+        assertEquals(CompactUrl.of("http://example.com/日本"), CompactUrl.of("http://example.com/日本"));
+        assertNotEquals(url, CompactUrl.of("http://example.com/日本"));
+        assertNull(CompactUrl.of((URL) null));
+        assertNull(CompactUrl.toUrl(null));
+    }
+}
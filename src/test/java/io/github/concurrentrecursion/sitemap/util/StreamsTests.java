@@ -0,0 +1,77 @@
+package io.github.concurrentrecursion.sitemap.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamsTests {
+
+    private static List<Integer> sizes(Stream<List<Integer>> batches) {
+        return batches.map(List::size).collect(Collectors.toList());
+    }
+
+    @Test
+    void testBatchSizes() {
+        assertEquals(List.of(15, 15, 5), sizes(Streams.batchStream(IntStream.range(0, 35).boxed(), 15)));
+        assertEquals(List.of(5, 5), sizes(Streams.batchStream(IntStream.range(0, 10).boxed(), 5)));
+        assertEquals(List.of(), sizes(Streams.batchStream(Stream.<Integer>empty(), 5)));
+        assertFalse(Streams.batchStream(IntStream.range(0, 10).boxed(), 5).isParallel());
+        assertThrows(IllegalArgumentException.class, () -> Streams.batchStream(Stream.of(1), 0));
+    }
+
+    @Test
+    void testEndlessStream() {
+        List<List<Integer>> batches = Streams.batchStream(Stream.iterate(0, i -> i + 1), 3).limit(2).collect(Collectors.toList());
+        assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5)), batches);
+    }
+
+    @Test
+    void testSizedEstimate() {
+        Spliterator<List<Integer>> spliterator = Streams.batchStream(IntStream.range(0, 1001).boxed(), 100).spliterator();
+        assertEquals(11, spliterator.getExactSizeIfKnown());
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+        Spliterator<List<Integer>> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(1, prefix.getExactSizeIfKnown());
+        assertEquals(10, spliterator.getExactSizeIfKnown());
+        assertEquals(2, spliterator.trySplit().getExactSizeIfKnown());
+        assertEquals(8, spliterator.getExactSizeIfKnown());
+
+        Spliterator<List<Integer>> unsized = Streams.batchStream(Stream.iterate(0, i -> i + 1), 100).spliterator();
+        assertEquals(Long.MAX_VALUE, unsized.estimateSize());
+        assertFalse(unsized.hasCharacteristics(Spliterator.SIZED));
+    }
+
+    @Test
+    void testParallelKeepsBatchesAndOrder() {
+        List<List<Integer>> batches = Streams.batchStream(IntStream.range(0, 100_000).boxed(), 1000, true)
+                .collect(Collectors.toList());
+        assertEquals(100, batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            assertEquals(1000, batches.get(i).size());
+            assertEquals(i * 1000, batches.get(i).get(0));
+            assertEquals(i * 1000 + 999, batches.get(i).get(999));
+        }
+
+        //An unsized source is split as well
+        long count = Streams.batchStream(IntStream.range(0, 10_007).boxed().filter(i -> true), 10, true)
+                .mapToLong(List::size).sum();
+        assertEquals(10_007, count);
+    }
+
+    @Test
+    void testCloseClosesSource() {
+        AtomicBoolean closed = new AtomicBoolean();
+        try (Stream<List<Integer>> batches = Streams.batchStream(Stream.of(1, 2, 3).onClose(() -> closed.set(true)), 2)) {
+            assertEquals(2, batches.count());
+        }
+        assertTrue(closed.get());
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.concurrentrecursion.sitemap.util;
+
+import io.github.concurrentrecursion.sitemap.model.Url;
+import io.github.concurrentrecursion.sitemap.model.google.image.Image;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlPoolTests {
+
+    @AfterEach
+    void resetDefault() {
+        UrlPool.setDefault(null);
+    }
+
+    @Test
+    void testPrefixIsShared() {
+        UrlPool pool = new UrlPool();
+        CompactUrl first = pool.compact("https://www.example.com/page1");
+        CompactUrl second = pool.compact("https://www.example.com/page2");
+        CompactUrl other = pool.compact("https://other.example.com/page1");
+
+        assertEquals("https://www.example.com/page1", first.toString());
+        assertEquals("https://www.example.com/page2", second.toString());
+        assertEquals("https://other.example.com/page1", other.toString());
+
+        UrlPool.Stats stats = pool.getStats();
+        assertEquals(3, stats.getRequests());
+        assertEquals(3, stats.getPrefixHits());
+        assertEquals(2, stats.getPrefixCount());
+        assertEquals(1.0, stats.getPrefixHitRate());
+        assertEquals("https://www.example.com/".length() * 2 + "https://other.example.com/".length(), stats.getBytesSaved());
+    }
+
+    @Test
+    void testEqualityIgnoresSharing() {
+        UrlPool pool = new UrlPool();
+        CompactUrl pooled = pool.compact("https://www.example.com/page");
+        CompactUrl plain = new CompactUrl("https://www.example.com/page");
+        assertEquals(plain, pooled);
+        assertEquals(pooled, plain);
+        assertEquals(plain.hashCode(), pooled.hashCode());
+        assertNotEquals(plain, pool.compact("https://www.example.com/other"));
+    }
+
+    @Test
+    void testSharedUrlsAreDeduplicated() {
+        UrlPool pool = new UrlPool();
+        CompactUrl first = pool.share("https://cdn.example.com/logo.png");
+        CompactUrl second = pool.share("https://cdn.example.com/logo.png");
+        CompactUrl different = pool.share("https://cdn.example.com/banner.png");
+
+        assertSame(first, second);
+        assertNotSame(first, different);
+        UrlPool.Stats stats = pool.getStats();
+        assertEquals(3, stats.getSharedRequests());
+        assertEquals(1, stats.getSharedHits());
+        assertEquals(2, stats.getSharedUrlCount());
+        assertEquals(1.0 / 3, stats.getSharedHitRate());
+    }
+
+    @Test
+    void testLimits() {
+        UrlPool pool = new UrlPool(1, 1);
+        pool.share("https://a.example.com/1");
+        pool.share("https://b.example.com/1");
+        //Over both limits, but still a working url
+        CompactUrl url = pool.share("https://b.example.com/1");
+        assertEquals("https://b.example.com/1", url.toString());
+
+        UrlPool.Stats stats = pool.getStats();
+        assertEquals(1, stats.getPrefixCount());
+        assertEquals(1, stats.getSharedUrlCount());
+        assertEquals(1, stats.getPrefixHits());
+        assertEquals(0, stats.getSharedHits());
+
+        pool.clear();
+        assertEquals(0, pool.getStats().getRequests());
+        assertEquals(0, pool.getStats().getPrefixCount());
+    }
+
+    @Test
+    void testDefaultPoolIsUsedByModel() throws Exception {
+        UrlPool pool = new UrlPool();
+        UrlPool.setDefault(pool);
+        Url url = new Url("https://www.example.com/page")
+                .addImage(new Image("https://www.example.com/image.png"))
+                .addImage(new Image(new URL("https://www.example.com/image.png")));
+
+        assertEquals(new URL("https://www.example.com/page"), url.getLocation());
+        assertSame(url.getImages().get(0).getCompactLocation(), url.getImages().get(1).getCompactLocation());
+        UrlPool.Stats stats = pool.getStats();
+        assertEquals(3, stats.getRequests());
+        assertEquals(3, stats.getPrefixHits());
+        assertEquals(1, stats.getPrefixCount());
+        assertEquals(1, stats.getSharedHits());
+    }
+}